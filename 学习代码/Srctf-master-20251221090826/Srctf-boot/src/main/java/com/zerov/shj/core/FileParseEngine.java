@@ -5,15 +5,26 @@ import com.alibaba.excel.ExcelReader;
 import com.alibaba.excel.read.metadata.ReadSheet;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.TypeReference;
+import com.zerov.shj.common.exception.DatasourceException;
+import com.zerov.shj.core.memory.MemoryGovernor;
+import com.zerov.shj.core.memory.MemoryPolicy;
+import com.zerov.shj.core.memory.MemoryReservation;
+import com.zerov.shj.core.memory.SpillableRowBuffer;
+import com.zerov.shj.core.memory.SpilledRowList;
+import com.zerov.shj.core.model.ColumnVector;
+import com.zerov.shj.core.model.ColumnarData;
+import com.zerov.shj.core.model.ParsedFile;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.math.BigInteger;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -27,18 +38,56 @@ import java.util.stream.Collectors;
 @Component
 public class FileParseEngine {
 
+    @Autowired
+    private MemoryGovernor memoryGovernor;
+
+    /**
+     * 解析文件，解析结果按估算的字节数占用内存预算，响应写出后释放
+     */
     public Object parseFile(String filename, InputStream inputStream) throws Exception {
+        return parse(filename, inputStream).getData();
+    }
+
+    /**
+     * 解析文件，同时返回解析结果估算的占用和是否完整，用于缓存
+     */
+    public ParsedFile parse(String filename, InputStream inputStream) throws Exception {
+        MemoryReservation reservation = memoryGovernor.open("parseFile: " + filename);
+        boolean success = false;
+        try {
+            Object result = parseFile(filename, inputStream, reservation);
+            ParsedFile parsed = new ParsedFile();
+            parsed.setData(result);
+            parsed.setBytes(reservation.getBytes());
+            parsed.setComplete(!reservation.isExhausted() && !(result instanceof SpilledRowList));
+            success = true;
+            return parsed;
+        } finally {
+            if (success) {
+                memoryGovernor.closeAfterRequest(reservation);
+            } else {
+                reservation.close();
+            }
+        }
+    }
+
+    private Object parseFile(String filename, InputStream inputStream, MemoryReservation reservation) throws Exception {
         String suffix = filename.substring(filename.lastIndexOf(".") + 1);
         Object json;
         // 处理json 格式的数据
         if (StringUtils.equalsIgnoreCase(suffix, "json")) {
-            json = JSON.parse(IOUtils.toString(inputStream, "utf-8"));
+            String text = IOUtils.toString(inputStream, "utf-8");
+            // 文本和解析后的对象大致各占一份，JSON无法部分解析，预算不足时直接失败
+            if (!reservation.resize(4L * text.length())) {
+                DatasourceException.throwException("文件过大，超过可用的内存预算: " + filename);
+            }
+            json = JSON.parse(text);
             inputStream.close();
             return json;
         }
 
         if (StringUtils.equalsIgnoreCase(suffix, "xlsx") || StringUtils.equalsIgnoreCase(suffix, "xls")) {
-            json = excelSheetDataList(inputStream, true);
+            json = excelSheetDataList(inputStream, true, reservation);
             inputStream.close();
             return json;
         }
@@ -50,6 +99,8 @@ public class FileParseEngine {
             String[] split = s.split(",");
             List<List<String>> data = new ArrayList<>();
             String line;
+            long bytes = 0;
+            SpillableRowBuffer spill = null;
             while ((line = reader.readLine()) != null) {
                 String str;
                 line += ",";
@@ -65,7 +116,26 @@ public class FileParseEngine {
                     String s1 = new String(str.getBytes(), "UTF-8");
                     cells.add(s1);
                 }
+                // 超出内存预算后的行写入临时文件
+                if (spill != null) {
+                    Object[] values = new Object[split.length];
+                    for (int i = 0; i < split.length; i++) {
+                        values[i] = i < cells.size() ? cells.get(i) : "";
+                    }
+                    spill.append(values);
+                    continue;
+                }
                 data.add(cells);
+                // 单元格列表和转换后的Map大致各占一份
+                bytes += 2 * (48 + 48L * cells.size() + 4L * line.length());
+                if (!reservation.resize(bytes)) {
+                    if (reservation.getPolicy() == MemoryPolicy.spill) {
+                        spill = reservation.newSpillBuffer(Arrays.asList(split));
+                        continue;
+                    }
+                    log.warn("内存预算不足，文件解析结果被截断: {} 行", data.size());
+                    break;
+                }
             }
             if (CollectionUtils.isNotEmpty(data)) {
                 jsonArray = data.stream().map(ele -> {
@@ -76,6 +146,11 @@ public class FileParseEngine {
                     return map;
                 }).collect(Collectors.toList());
             }
+            if (spill != null) {
+                spill.finish();
+                inputStream.close();
+                return new SpilledRowList(jsonArray, spill);
+            }
         }
         inputStream.close();
         return jsonArray;
@@ -83,8 +158,16 @@ public class FileParseEngine {
 
 
     public List<Map<String, Object>> excelSheetDataList(InputStream inputStream, Boolean flag) {
+        return excelSheetDataList(inputStream, flag, null);
+    }
+
+    /**
+     * 读取所有工作表，reservation不为空时按行占用内存预算
+     */
+    public List<Map<String, Object>> excelSheetDataList(InputStream inputStream, Boolean flag, MemoryReservation reservation) {
 
         NoModelDataListener noModelDataListener = new NoModelDataListener();
+        noModelDataListener.setReservation(reservation);
         ExcelReader excelReader = EasyExcel.read(inputStream, noModelDataListener).build();
         List<ReadSheet> sheets = excelReader.excelExecutor().sheetList();
         List<Map<String, Object>> jsonArray = new ArrayList<>();
@@ -111,7 +194,111 @@ public class FileParseEngine {
                 mapData.put("data", array);
                 jsonArray.add(mapData);
             }
+            // 内存预算不足时不再读取后面的工作表
+            if (noModelDataListener.isStopped()) {
+                log.warn("内存预算不足，Excel解析结果被截断: {}", readSheet.getSheetName());
+                break;
+            }
         }
         return jsonArray;
     }
+
+    /**
+     * 将解析结果转换为列式数据，用于二进制输出
+     * 整数列和数值列按JSON中的类型保留，其余值输出为字符串
+     *
+     * @param parsed    parseFile的解析结果
+     * @param sheetName Excel工作表名称，为空时取第一个工作表
+     * @return 列式数据
+     */
+    public ColumnarData toColumnarData(Object parsed, String sheetName) {
+        if (!(parsed instanceof List)) {
+            DatasourceException.throwException("文件内容不是表格数据");
+        }
+        List<?> rows = (List<?>) parsed;
+        // Excel的解析结果为[{key: 工作表名称, data: 行数据}]
+        if (!rows.isEmpty() && isSheet(rows.get(0))) {
+            rows = selectSheet(rows, sheetName);
+        }
+
+        // 列名按首次出现的顺序
+        Map<String, Integer> columnIndex = new LinkedHashMap<>();
+        for (Object row : rows) {
+            if (!(row instanceof Map)) {
+                DatasourceException.throwException("文件内容不是表格数据");
+            }
+            for (Object key : ((Map<?, ?>) row).keySet()) {
+                columnIndex.putIfAbsent(String.valueOf(key), columnIndex.size());
+            }
+        }
+        List<String> columns = new ArrayList<>(columnIndex.keySet());
+        ColumnVector[] vectors = new ColumnVector[columns.size()];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = newVector(rows, columns.get(i));
+        }
+
+        ColumnarData data = new ColumnarData(columns, vectors);
+        for (Object row : rows) {
+            Map<?, ?> map = (Map<?, ?>) row;
+            for (int i = 0; i < vectors.length; i++) {
+                appendValue(vectors[i], map.get(columns.get(i)));
+            }
+            data.commitRow();
+        }
+        return data;
+    }
+
+    private static boolean isSheet(Object element) {
+        return element instanceof Map && ((Map<?, ?>) element).size() == 2
+                && ((Map<?, ?>) element).containsKey("key") && ((Map<?, ?>) element).get("data") instanceof List;
+    }
+
+    private static List<?> selectSheet(List<?> sheets, String sheetName) {
+        for (Object sheet : sheets) {
+            Map<?, ?> map = (Map<?, ?>) sheet;
+            if (StringUtils.isEmpty(sheetName) || sheetName.equals(map.get("key"))) {
+                return (List<?>) map.get("data");
+            }
+        }
+        DatasourceException.throwException("工作表不存在: " + sheetName);
+        return null;
+    }
+
+    /**
+     * 按列中所有非空值的类型选择列存储
+     */
+    private static ColumnVector newVector(List<?> rows, String column) {
+        boolean hasValue = false;
+        boolean integral = true;
+        for (Object row : rows) {
+            Object value = ((Map<?, ?>) row).get(column);
+            if (value == null) {
+                continue;
+            }
+            hasValue = true;
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                continue;
+            }
+            if (!(value instanceof Number) || value instanceof BigInteger) {
+                return new ColumnVector.StringVector();
+            }
+            integral = false;
+        }
+        if (!hasValue) {
+            return new ColumnVector.StringVector();
+        }
+        return integral ? new ColumnVector.LongVector() : new ColumnVector.DoubleVector(false);
+    }
+
+    private static void appendValue(ColumnVector vector, Object value) {
+        if (value == null) {
+            vector.appendNull();
+        } else if (vector instanceof ColumnVector.LongVector) {
+            ((ColumnVector.LongVector) vector).append(((Number) value).longValue());
+        } else if (vector instanceof ColumnVector.DoubleVector) {
+            ((ColumnVector.DoubleVector) vector).append(((Number) value).doubleValue());
+        } else {
+            ((ColumnVector.StringVector) vector).append(value instanceof String ? (String) value : JSON.toJSONString(value));
+        }
+    }
 } 
\ No newline at end of file
@@ -2,7 +2,9 @@ package com.zerov.shj.core;
 
 import com.alibaba.excel.context.AnalysisContext;
 import com.alibaba.excel.event.AnalysisEventListener;
+import com.alibaba.excel.exception.ExcelAnalysisStopException;
 import com.alibaba.excel.metadata.CellData;
+import com.zerov.shj.core.memory.MemoryReservation;
 import lombok.Data;
 import org.apache.commons.lang3.StringUtils;
 
@@ -16,6 +18,21 @@ public class NoModelDataListener extends AnalysisEventListener<Map<Integer, Stri
     private List<List<String>> data = new ArrayList<>();
     private List<String> header = new ArrayList<>();
 
+    /**
+     * 内存占用，为空时不限制
+     */
+    private MemoryReservation reservation;
+
+    /**
+     * 已读取的行估算的字节数，跨工作表累计
+     */
+    private long bytes;
+
+    /**
+     * 是否因内存预算不足停止了读取
+     */
+    private boolean stopped;
+
 
     @Override
     public void invokeHead(Map<Integer, CellData> headMap, AnalysisContext context) {
@@ -48,6 +65,16 @@ public class NoModelDataListener extends AnalysisEventListener<Map<Integer, Stri
             }
         }
         data.add(line);
+        if (reservation != null) {
+            // 行数据在转换为Map前后大致各占一份
+            for (String value : line) {
+                bytes += 2 * (56 + 2L * value.length());
+            }
+            if (!reservation.resize(bytes)) {
+                stopped = true;
+                throw new ExcelAnalysisStopException("内存预算不足");
+            }
+        }
     }
 
     @Override
@@ -0,0 +1,75 @@
+package com.zerov.shj.core.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 查询结果缓存配置类
+ * 相同数据源、SQL和行数的查询共享结果，缓存时间取组件的自动更新间隔
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "query.cache")
+public class CacheConfig {
+
+    /**
+     * 是否启用结果缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 是否合并执行中的相同查询，与是否启用结果缓存无关
+     */
+    private boolean coalesce = true;
+
+    /**
+     * 等待执行中的相同查询的最长时间（毫秒），超时后自行执行查询
+     */
+    private long coalesceTimeout = 30000;
+
+    /**
+     * 缓存结果的总字节数上限，超出时按访问频率淘汰
+     */
+    private long maxBytes = 64 * 1024 * 1024;
+
+    /**
+     * 请求未指定autoUpdateTime时的缓存时间(毫秒)，小于等于0时不缓存
+     */
+    private long defaultTtl = 0;
+
+    /**
+     * 缓存时间上限(毫秒)
+     */
+    private long maxTtl = 3600000;
+
+    /**
+     * 是否在缓存过期前后台刷新仍有请求的查询
+     */
+    private boolean refresh = true;
+
+    /**
+     * 刷新时钟周期(毫秒)，刷新时间对齐到周期，同一周期内到期的查询按数据源分批执行
+     */
+    private long refreshTick = 1000;
+
+    /**
+     * 在缓存过期前多久刷新(毫秒)，不超过缓存时间的1/4
+     */
+    private long refreshAhead = 2000;
+
+    /**
+     * 后台刷新线程数
+     */
+    private int refreshThreads = 2;
+
+    /**
+     * 连续多少个缓存周期没有请求后停止刷新
+     */
+    private int refreshIdleCount = 2;
+
+    /**
+     * 过期后仍可返回旧结果的时间(毫秒)，期间返回的结果标记为stale并触发后台刷新，仅启用刷新时有效
+     */
+    private long maxStale = 60000;
+}
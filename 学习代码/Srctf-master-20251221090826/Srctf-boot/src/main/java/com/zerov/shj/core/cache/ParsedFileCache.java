@@ -0,0 +1,305 @@
+package com.zerov.shj.core.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zerov.shj.core.FileParseEngine;
+import com.zerov.shj.core.etag.ETagGenerator;
+import com.zerov.shj.core.model.ParsedFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件解析结果缓存
+ * 按文件名和内容版本（文件标签）缓存解析结果，按估算的字节数限制总大小；
+ * 目录中的文件由WatchService监听，变化时使版本失效，文件未变化时请求只需查找缓存，不读取文件
+ * <p>
+ * jar包中的文件运行期间不会变化，版本只计算一次；无法监听的文件每次请求检查修改时间和大小。
+ * 缓存的解析结果不计入内存预算
+ */
+@Slf4j
+@Component
+public class ParsedFileCache {
+
+    /**
+     * 每个缓存项除解析结果外的估算开销
+     */
+    private static final long ENTRY_OVERHEAD = 512;
+
+    @Autowired
+    private FileCacheConfig fileCacheConfig;
+    @Autowired
+    private FileParseEngine fileParseEngine;
+    @Autowired
+    private ETagGenerator eTagGenerator;
+
+    private final Map<String, FileState> files = new ConcurrentHashMap<>();
+
+    private Cache<String, ParsedFile> cache;
+    private WatchService watchService;
+    private ScheduledExecutorService reparser;
+
+    @PostConstruct
+    public void init() {
+        if (!fileCacheConfig.isEnabled() || fileCacheConfig.getMaxBytes() <= 0) {
+            return;
+        }
+        cache = Caffeine.newBuilder()
+                .maximumWeight(fileCacheConfig.getMaxBytes())
+                .weigher((String key, ParsedFile file) -> (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD + file.getBytes()))
+                .build();
+        if (!fileCacheConfig.isWatch()) {
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("无法监听文件变化，每次请求检查文件修改时间: {}", e.getMessage());
+            return;
+        }
+        Thread watcher = new Thread(this::watch, "shj-file-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+        if (fileCacheConfig.isReparse()) {
+            reparser = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "shj-file-reparse");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (reparser != null) {
+            reparser.shutdownNow();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("关闭文件监听失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 获取文件的标签，用于条件请求和识别文件内容的版本
+     *
+     * @param fileName 文件名
+     * @param url      文件地址
+     */
+    public ETagGenerator.FileTag getTag(String fileName, URL url) throws IOException {
+        if (cache == null) {
+            return eTagGenerator.forFile(url);
+        }
+        FileState state = files.computeIfAbsent(fileName, name -> newState(name, url));
+        ETagGenerator.FileTag tag = state.tag;
+        if (tag != null && state.trusted) {
+            return tag;
+        }
+        int generation;
+        synchronized (state) {
+            generation = state.generation;
+        }
+        ETagGenerator.FileTag current = eTagGenerator.forFile(url);
+        synchronized (state) {
+            // 计算期间文件又发生变化时不记录
+            if (state.generation == generation) {
+                if (state.tag != null && !state.tag.getETag().equals(current.getETag())) {
+                    cache.invalidate(key(fileName, state.tag));
+                }
+                state.tag = current;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 获取文件的解析结果，未缓存时解析并缓存
+     *
+     * @param fileName 文件名
+     * @param url      文件地址
+     * @param tag      getTag返回的文件标签
+     * @return 解析结果，格式同FileParseEngine.parseFile
+     */
+    public Object get(String fileName, URL url, ETagGenerator.FileTag tag) throws Exception {
+        if (cache == null) {
+            return fileParseEngine.parseFile(fileName, url.openStream());
+        }
+        String key = key(fileName, tag);
+        ParsedFile cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached.getData();
+        }
+        ParsedFile parsed = fileParseEngine.parse(fileName, url.openStream());
+        FileState state = files.get(fileName);
+        if (state != null) {
+            synchronized (state) {
+                // 解析期间文件发生变化时，解析结果不一定属于该版本
+                if (state.tag == tag) {
+                    put(key, parsed);
+                }
+            }
+        }
+        return parsed.getData();
+    }
+
+    private void put(String key, ParsedFile parsed) {
+        // 截断的结果和单个超过总大小的结果不缓存
+        if (parsed.isComplete() && ENTRY_OVERHEAD + parsed.getBytes() <= fileCacheConfig.getMaxBytes()) {
+            cache.put(key, parsed);
+        }
+    }
+
+    private static String key(String fileName, ETagGenerator.FileTag tag) {
+        return fileName + "|" + tag.getETag();
+    }
+
+    /**
+     * 登记文件，本地文件监听其所在目录
+     */
+    private FileState newState(String fileName, URL url) {
+        if ("jar".equals(url.getProtocol())) {
+            return new FileState(fileName, url, null, true);
+        }
+        if (watchService == null || !"file".equals(url.getProtocol())) {
+            return new FileState(fileName, url, null, false);
+        }
+        try {
+            Path path = Paths.get(url.toURI()).toAbsolutePath().normalize();
+            path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            return new FileState(fileName, url, path, true);
+        } catch (Exception e) {
+            log.warn("无法监听文件变化，每次请求检查文件修改时间: {}, {}", fileName, e.getMessage());
+            return new FileState(fileName, url, null, false);
+        }
+    }
+
+    /**
+     * 监听线程，文件变化时使对应的缓存失效，事件溢出时目录中的文件全部失效
+     */
+    private void watch() {
+        while (true) {
+            WatchKey watchKey;
+            try {
+                watchKey = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = (Path) watchKey.watchable();
+            for (WatchEvent<?> event : watchKey.pollEvents()) {
+                Path changed = event.kind() == StandardWatchEventKinds.OVERFLOW ? null : dir.resolve((Path) event.context());
+                for (FileState state : files.values()) {
+                    if (state.path != null && (changed == null ? dir.equals(state.path.getParent()) : changed.equals(state.path))) {
+                        invalidate(state);
+                    }
+                }
+            }
+            watchKey.reset();
+        }
+    }
+
+    /**
+     * 文件变化后使版本和解析结果失效，开启重新解析时延迟后在后台解析
+     */
+    private void invalidate(FileState state) {
+        synchronized (state) {
+            state.generation++;
+            boolean cached = state.tag != null && cache.asMap().remove(key(state.fileName, state.tag)) != null;
+            state.tag = null;
+            // 写入文件会连续产生多个事件，只保留最后一次的重新解析
+            if (reparser != null && (cached || state.pending != null)) {
+                if (state.pending != null) {
+                    state.pending.cancel(false);
+                }
+                int generation = state.generation;
+                state.pending = reparser.schedule(() -> reparse(state, generation),
+                        Math.max(0, fileCacheConfig.getReparseDelay()), TimeUnit.MILLISECONDS);
+            }
+        }
+        log.debug("文件已变化: {}", state.fileName);
+    }
+
+    private void reparse(FileState state, int generation) {
+        synchronized (state) {
+            if (state.generation != generation) {
+                return;
+            }
+            state.pending = null;
+        }
+        // 文件已删除时等下一次请求处理
+        if (state.path != null && !Files.exists(state.path)) {
+            return;
+        }
+        try {
+            ETagGenerator.FileTag tag = eTagGenerator.forFile(state.url);
+            ParsedFile parsed = fileParseEngine.parse(state.fileName, state.url.openStream());
+            synchronized (state) {
+                if (state.generation != generation) {
+                    return;
+                }
+                state.tag = tag;
+                put(key(state.fileName, tag), parsed);
+            }
+            log.info("文件变化后重新解析: {}", state.fileName);
+        } catch (Exception e) {
+            log.warn("文件变化后重新解析失败: {}, {}", state.fileName, e.getMessage());
+        }
+    }
+
+    /**
+     * 文件的当前版本
+     */
+    private static class FileState {
+        private final String fileName;
+        private final URL url;
+
+        /**
+         * 监听的本地文件路径，不监听时为空
+         */
+        private final Path path;
+
+        /**
+         * 版本是否只在文件变化时失效，否则每次请求检查
+         */
+        private final boolean trusted;
+
+        private volatile ETagGenerator.FileTag tag;
+
+        /**
+         * 文件变化的次数，用于丢弃变化前开始的计算
+         */
+        private int generation;
+
+        private ScheduledFuture<?> pending;
+
+        FileState(String fileName, URL url, Path path, boolean trusted) {
+            this.fileName = fileName;
+            this.url = url;
+            this.path = path;
+            this.trusted = trusted;
+        }
+    }
+}
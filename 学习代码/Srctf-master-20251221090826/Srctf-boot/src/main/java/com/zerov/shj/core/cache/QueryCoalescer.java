@@ -0,0 +1,101 @@
+package com.zerov.shj.core.cache;
+
+import com.zerov.shj.core.model.QueryResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 相同查询合并执行
+ * 同一查询执行期间到达的请求不再访问数据库，等待首个请求的结果并共享，
+ * 大量页面同时刷新时只产生一次数据库查询；不依赖结果缓存
+ */
+@Slf4j
+@Component
+public class QueryCoalescer {
+
+    @Autowired
+    private CacheConfig cacheConfig;
+
+    /**
+     * 执行中的查询
+     */
+    private final Map<QueryKey, CompletableFuture<QueryResult>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    public boolean isEnabled() {
+        return cacheConfig.isCoalesce();
+    }
+
+    /**
+     * 执行查询，相同查询正在执行时等待并返回其结果的副本
+     *
+     * @param key       查询键
+     * @param query     执行查询
+     * @param shareable 结果是否可共享，不可共享或等待超时时等待的请求各自执行查询
+     * @return 查询结果
+     */
+    public QueryResult execute(QueryKey key, Supplier<QueryResult> query, Predicate<QueryResult> shareable) {
+        CompletableFuture<QueryResult> future = new CompletableFuture<>();
+        CompletableFuture<QueryResult> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            QueryResult shared = await(running);
+            if (shared != null) {
+                coalescedCount.incrementAndGet();
+                return QueryResultCache.copyOf(shared, false);
+            }
+            return query.get();
+        }
+        QueryResult result = null;
+        try {
+            result = query.get();
+            return result;
+        } finally {
+            // 先移除再通知，之后到达的请求重新执行或命中缓存；共享副本，首个请求可继续修改自己的结果
+            inFlight.remove(key, future);
+            future.complete(result != null && shareable.test(result) ? QueryResultCache.copyOf(result, false) : null);
+        }
+    }
+
+    /**
+     * 等待执行中的查询，超时或被中断时返回null，由调用方自行执行查询
+     */
+    private QueryResult await(CompletableFuture<QueryResult> running) {
+        try {
+            return running.get(cacheConfig.getCoalesceTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("等待执行中的相同查询超时({} ms)，单独执行", cacheConfig.getCoalesceTimeout());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 执行中的查询数
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * 共享了其他请求结果的请求数
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+}
@@ -0,0 +1,38 @@
+package com.zerov.shj.core.cache;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 查询结果缓存键
+ * 由数据源指纹、规范化后的SQL、模板参数值、最大行数和读取参数组成，读取参数不同时结果的取值形式不同
+ */
+@Data
+public final class QueryKey {
+
+    /**
+     * 数据源指纹
+     */
+    private final String datasource;
+
+    /**
+     * 规范化后的SQL，见NormalizedSql.getCanonical()
+     */
+    private final String sql;
+
+    /**
+     * SQL模板各占位符的参数值，不是模板时为空列表
+     */
+    private final List<Object> params;
+
+    /**
+     * 最大返回行数
+     */
+    private final int maxRows;
+
+    /**
+     * 读取参数，见ReaderOptions.getKey()
+     */
+    private final String options;
+}
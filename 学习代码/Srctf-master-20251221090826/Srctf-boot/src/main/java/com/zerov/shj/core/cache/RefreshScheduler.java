@@ -0,0 +1,191 @@
+package com.zerov.shj.core.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缓存结果的后台刷新
+ * 跟踪仍有请求的缓存查询，在缓存过期前重新执行，请求始终命中缓存；
+ * 刷新时间对齐到统一的时钟周期，同一周期内到期的查询按数据源分批执行
+ */
+@Slf4j
+@Component
+public class RefreshScheduler {
+
+    @Autowired
+    private CacheConfig cacheConfig;
+
+    private final Map<QueryKey, RefreshTask> tasks = new ConcurrentHashMap<>();
+
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    private ScheduledExecutorService ticker;
+    private ExecutorService refresher;
+
+    @PostConstruct
+    public void init() {
+        if (!cacheConfig.isEnabled() || !cacheConfig.isRefresh()) {
+            return;
+        }
+        long tick = getTick();
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "shj-refresh-tick");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadIndex = new AtomicInteger();
+        refresher = Executors.newFixedThreadPool(Math.max(1, cacheConfig.getRefreshThreads()), r -> {
+            Thread thread = new Thread(r, "shj-refresh-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tick - System.currentTimeMillis() % tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+        tasks.clear();
+    }
+
+    public boolean isEnabled() {
+        return ticker != null;
+    }
+
+    /**
+     * 查询结果写入缓存后登记下一次刷新，时间为过期前refreshAhead并向前对齐到时钟周期
+     *
+     * @param key     查询键
+     * @param ttl     缓存时间(毫秒)
+     * @param refresh 重新执行查询并写入缓存
+     */
+    public void schedule(QueryKey key, long ttl, Runnable refresh) {
+        if (!isEnabled()) {
+            return;
+        }
+        RefreshTask task = tasks.computeIfAbsent(key, RefreshTask::new);
+        task.ttl = ttl;
+        task.refresh = refresh;
+        long ahead = Math.min(cacheConfig.getRefreshAhead(), ttl / 4);
+        long tick = getTick();
+        task.nextRefreshAt = (System.currentTimeMillis() + ttl - ahead) / tick * tick;
+    }
+
+    /**
+     * 记录对缓存查询的请求，长时间无请求的查询不再刷新
+     */
+    public void touch(QueryKey key) {
+        RefreshTask task = tasks.get(key);
+        if (task != null) {
+            task.accessed = true;
+        }
+    }
+
+    /**
+     * 缓存结果已过期时立即在后台刷新，正在刷新时忽略
+     */
+    public void refreshNow(QueryKey key, long ttl, Runnable refresh) {
+        if (!isEnabled()) {
+            return;
+        }
+        RefreshTask task = tasks.computeIfAbsent(key, RefreshTask::new);
+        task.ttl = ttl;
+        task.refresh = refresh;
+        task.nextRefreshAt = System.currentTimeMillis() + ttl;
+        refresher.execute(() -> run(task));
+    }
+
+    /**
+     * 跟踪中的查询数
+     */
+    public int getTaskCount() {
+        return tasks.size();
+    }
+
+    /**
+     * 后台刷新次数
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        Map<String, List<RefreshTask>> batches = new HashMap<>();
+        for (RefreshTask task : tasks.values()) {
+            if (task.nextRefreshAt > now || task.running.get()) {
+                continue;
+            }
+            // 上次刷新后没有请求的查询累计空闲次数，达到上限后停止跟踪
+            if (task.accessed) {
+                task.idle = 0;
+            } else if (++task.idle >= cacheConfig.getRefreshIdleCount()) {
+                tasks.remove(task.key, task);
+                continue;
+            }
+            task.accessed = false;
+            // 刷新成功时重新登记，失败时一个缓存周期后重试
+            task.nextRefreshAt = now + task.ttl;
+            batches.computeIfAbsent(task.key.getDatasource(), k -> new ArrayList<>()).add(task);
+        }
+        for (List<RefreshTask> batch : batches.values()) {
+            refresher.execute(() -> batch.forEach(this::run));
+        }
+    }
+
+    private void run(RefreshTask task) {
+        if (!task.running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            task.refresh.run();
+            refreshCount.incrementAndGet();
+        } catch (Exception e) {
+            log.warn("后台刷新查询失败: {}", e.getMessage());
+        } finally {
+            task.running.set(false);
+        }
+    }
+
+    private long getTick() {
+        return Math.max(100, cacheConfig.getRefreshTick());
+    }
+
+    /**
+     * 跟踪中的查询
+     */
+    private static class RefreshTask {
+        private final QueryKey key;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile Runnable refresh;
+        private volatile long ttl;
+        private volatile long nextRefreshAt;
+        private volatile boolean accessed = true;
+        private int idle;
+
+        RefreshTask(QueryKey key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.zerov.shj.core.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 查询引擎配置类
+ * 用于管理结果读取方式和行数限制下推
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "query.engine")
+public class EngineConfig {
+
+    /**
+     * 是否启用流式读取（按游标逐批拉取结果，避免驱动一次性缓冲全部结果）
+     */
+    private boolean streaming = true;
+
+    /**
+     * 默认每批拉取行数
+     */
+    private int fetchSize = 500;
+
+    /**
+     * 是否按方言改写SQL，将最大行数下推到数据库（LIMIT/TOP/ROWNUM）
+     */
+    private boolean limitRewrite = true;
+
+    /**
+     * 流式输出时每批写出的行数
+     */
+    private int streamBatchSize = 500;
+
+    /**
+     * 行读取计划缓存数量（按数据源和SQL缓存）
+     */
+    private int readerPlanCacheSize = 256;
+
+    /**
+     * SQL模板缓存数量（按方言和模板原文缓存解析结果）
+     */
+    private int templateCacheSize = 256;
+
+    /**
+     * 按数据库类型覆盖每批拉取行数，key为DatabaseType的type
+     */
+    private Map<String, Integer> fetchSizes = new HashMap<>();
+
+    /**
+     * 获取指定数据库类型的每批拉取行数
+     */
+    public int getFetchSize(DatabaseType type) {
+        if (type != null && fetchSizes.containsKey(type.getType())) {
+            return fetchSizes.get(type.getType());
+        }
+        return fetchSize;
+    }
+}
@@ -0,0 +1,71 @@
+package com.zerov.shj.core.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 连接池配置类
+ * 每个数据源对应一个连接池，单个数据源可在配置中覆盖池大小
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "query.pool")
+public class PoolConfig {
+
+    /**
+     * 是否启用连接池（关闭后每次查询新建连接）
+     */
+    private boolean enabled = true;
+
+    /**
+     * 初始化连接数（创建连接池时预热）
+     */
+    private int initialSize = 1;
+
+    /**
+     * 最小空闲连接数
+     */
+    private int minIdle = 1;
+
+    /**
+     * 最大活动连接数
+     */
+    private int maxActive = 8;
+
+    /**
+     * 获取连接最大等待时间（毫秒）
+     */
+    private long maxWait = 10000;
+
+    /**
+     * 连接空闲多久后被回收（毫秒）
+     */
+    private long minEvictableIdleTimeMillis = 300000;
+
+    /**
+     * 空闲连接检测间隔（毫秒）
+     */
+    private long timeBetweenEvictionRunsMillis = 60000;
+
+    /**
+     * 连接池多久未被使用后整体关闭（毫秒）
+     */
+    private long poolIdleTimeoutMillis = 1800000;
+
+    /**
+     * 创建连接失败后后台重试的间隔（毫秒），连续失败期间获取连接立即失败
+     */
+    private long connectErrorRetryIntervalMillis = 3000;
+
+    /**
+     * 每个连接缓存的PreparedStatement数量，0表示不缓存；
+     * 模板查询和分页查询按参数绑定执行，相同SQL复用同一连接上已预编译的语句
+     */
+    private int preparedStatementCacheSize = 32;
+
+    /**
+     * MySQL是否使用服务端预编译（useServerPrepStmts），默认由驱动在客户端拼接参数
+     */
+    private boolean serverPreparedStatements = false;
+}
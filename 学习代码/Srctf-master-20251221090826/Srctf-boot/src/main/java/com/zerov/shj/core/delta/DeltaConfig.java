@@ -0,0 +1,40 @@
+package com.zerov.shj.core.delta;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 增量更新配置类
+ * 保留每个查询最近几个版本的行哈希，请求携带sinceVersion时只返回变化的行
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "query.delta")
+public class DeltaConfig {
+
+    /**
+     * 是否启用增量更新，关闭时携带sinceVersion的请求始终返回全量结果
+     */
+    private boolean enabled = true;
+
+    /**
+     * 每个查询保留的版本数，客户端的基准版本不在其中时返回全量结果
+     */
+    private int maxVersions = 8;
+
+    /**
+     * 行数超过该值的结果不跟踪版本
+     */
+    private int maxRows = 100000;
+
+    /**
+     * 所有查询保留的行哈希总数上限，超出时淘汰较少使用的查询
+     */
+    private long maxTrackedRows = 500000;
+
+    /**
+     * 查询多久(毫秒)没有请求后丢弃其版本
+     */
+    private long expireAfterAccess = 600000;
+}
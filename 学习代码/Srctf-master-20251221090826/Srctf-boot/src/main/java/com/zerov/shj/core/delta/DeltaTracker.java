@@ -0,0 +1,225 @@
+package com.zerov.shj.core.delta;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zerov.shj.common.exception.DatasourceException;
+import com.zerov.shj.core.memory.SpilledRowList;
+import com.zerov.shj.core.model.ColumnarData;
+import com.zerov.shj.core.model.QueryResult;
+import com.zerov.shj.core.model.RowDelta;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 查询结果的版本和增量
+ * 每个查询保留最近几个版本的行标识和行哈希，结果内容变化时生成新版本；
+ * 请求的基准版本仍保留时只返回新增、修改和删除的行，行的顺序变化不计入增量
+ * <p>
+ * 行标识：声明了行键列时为行键值的哈希，否则为整行内容的哈希（修改表现为删除加新增），
+ * 重复的标识按出现次序追加#n
+ */
+@Component
+public class DeltaTracker {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    @Autowired
+    private DeltaConfig deltaConfig;
+
+    /**
+     * 版本号全局递增，以启动时间为起点，重启后不会与之前发出的版本号重复
+     */
+    private final AtomicLong versions = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private Cache<String, History> histories;
+
+    @PostConstruct
+    public void init() {
+        histories = Caffeine.newBuilder()
+                .maximumWeight(Math.max(1, deltaConfig.getMaxTrackedRows()))
+                .weigher((String key, History history) -> history.getRows())
+                .expireAfterAccess(deltaConfig.getExpireAfterAccess(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * 为结果设置版本，基准版本仍保留时将结果替换为增量，否则附带全量结果的行标识
+     *
+     * @param key          查询标识
+     * @param rowKey       行键列，为空时按整行内容识别行
+     * @param sinceVersion 客户端已有的版本，0表示首次请求
+     * @param result       查询结果
+     */
+    public void apply(String key, List<String> rowKey, long sinceVersion, QueryResult result) {
+        ColumnarData data = result.getColumnar();
+        // 溢出到临时文件的结果和过大的结果不跟踪版本
+        if (!deltaConfig.isEnabled() || !result.isSuccess() || data == null
+                || result.getData() instanceof SpilledRowList || data.getRowCount() > deltaConfig.getMaxRows()) {
+            return;
+        }
+        int[] keyColumns = getKeyColumns(data, rowKey);
+        String historyKey = key + "|" + (rowKey == null ? "" : String.join(",", rowKey));
+        History history = histories.get(historyKey, k -> new History());
+        Snapshot current;
+        Snapshot base;
+        synchronized (history) {
+            current = history.update(data, keyColumns);
+            base = sinceVersion > 0 ? history.find(sinceVersion) : null;
+        }
+        // 重新放入以更新权重
+        histories.put(historyKey, history);
+
+        result.setVersion(current.version);
+        if (base == null) {
+            result.setRowIds(Arrays.asList(current.ids));
+            return;
+        }
+        result.setDelta(diff(base, current, data));
+        result.setColumnar(null);
+        result.setData(null);
+    }
+
+    private RowDelta diff(Snapshot base, Snapshot current, ColumnarData data) {
+        RowDelta delta = new RowDelta();
+        delta.setBaseVersion(base.version);
+        if (base == current) {
+            return delta;
+        }
+        List<Map<String, Object>> rows = data.asMaps();
+        for (int i = 0; i < current.ids.length; i++) {
+            Integer position = base.index.get(current.ids[i]);
+            if (position == null) {
+                delta.getInsertedIds().add(current.ids[i]);
+                delta.getInserted().add(rows.get(i));
+            } else if (base.hashes[position] != current.hashes[i]) {
+                delta.getUpdatedIds().add(current.ids[i]);
+                delta.getUpdated().add(rows.get(i));
+            }
+        }
+        for (String id : base.ids) {
+            if (!current.index.containsKey(id)) {
+                delta.getDeleted().add(id);
+            }
+        }
+        return delta;
+    }
+
+    private static int[] getKeyColumns(ColumnarData data, List<String> rowKey) {
+        if (rowKey == null || rowKey.isEmpty()) {
+            return null;
+        }
+        int[] visibleColumns = data.getVisibleColumns();
+        int[] keyColumns = new int[rowKey.size()];
+        for (int i = 0; i < rowKey.size(); i++) {
+            keyColumns[i] = -1;
+            for (int column : visibleColumns) {
+                if (data.getColumns().get(column).equalsIgnoreCase(rowKey.get(i).trim())) {
+                    keyColumns[i] = column;
+                    break;
+                }
+            }
+            if (keyColumns[i] < 0) {
+                DatasourceException.throwException("行键列不存在于查询结果中: " + rowKey.get(i));
+            }
+        }
+        return keyColumns;
+    }
+
+
+    /**
+     * 一个查询的版本记录
+     */
+    private class History {
+        private final Deque<Snapshot> snapshots = new ArrayDeque<>();
+
+        /**
+         * 登记最新的结果，内容与最新版本相同时沿用该版本
+         */
+        Snapshot update(ColumnarData data, int[] keyColumns) {
+            Snapshot latest = snapshots.peekLast();
+            // 缓存命中时结果为同一对象，无需重新计算
+            if (latest != null && latest.data == data) {
+                return latest;
+            }
+            Snapshot snapshot = new Snapshot(data, keyColumns);
+            if (latest != null && latest.contentHash == snapshot.contentHash && latest.ids.length == snapshot.ids.length) {
+                latest.data = data;
+                return latest;
+            }
+            if (latest != null) {
+                latest.data = null;
+            }
+            snapshot.version = versions.incrementAndGet();
+            snapshots.addLast(snapshot);
+            while (snapshots.size() > Math.max(1, deltaConfig.getMaxVersions())) {
+                snapshots.removeFirst();
+            }
+            return snapshot;
+        }
+
+        Snapshot find(long version) {
+            for (Snapshot snapshot : snapshots) {
+                if (snapshot.version == version) {
+                    return snapshot;
+                }
+            }
+            return null;
+        }
+
+        synchronized int getRows() {
+            int rows = 1;
+            for (Snapshot snapshot : snapshots) {
+                rows += snapshot.ids.length;
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * 一个版本的行标识和行哈希
+     */
+    private static class Snapshot {
+        private long version;
+        private final String[] ids;
+        private final long[] hashes;
+        private final Map<String, Integer> index;
+        private final long contentHash;
+
+        /**
+         * 最新版本对应的结果，用于识别缓存命中的相同结果
+         */
+        private ColumnarData data;
+
+        Snapshot(ColumnarData data, int[] keyColumns) {
+            int rowCount = data.getRowCount();
+            int[] visibleColumns = data.getVisibleColumns();
+            this.data = data;
+            this.ids = new String[rowCount];
+            this.hashes = new long[rowCount];
+            this.index = new HashMap<>(rowCount * 4 / 3 + 1);
+            Map<String, Integer> occurrences = new HashMap<>();
+            long content = FNV_OFFSET;
+            for (int row = 0; row < rowCount; row++) {
+                hashes[row] = data.hashRow(row, visibleColumns);
+                String id = Long.toHexString(keyColumns == null ? hashes[row] : data.hashRow(row, keyColumns));
+                // 重复的标识按出现次序区分
+                int n = occurrences.merge(id, 1, Integer::sum);
+                ids[row] = n == 1 ? id : id + "#" + n;
+                index.put(ids[row], row);
+                content = (content ^ hashes[row]) * FNV_PRIME;
+            }
+            this.contentHash = content;
+        }
+    }
+}
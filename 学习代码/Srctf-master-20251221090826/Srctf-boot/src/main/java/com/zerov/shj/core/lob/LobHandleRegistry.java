@@ -0,0 +1,97 @@
+package com.zerov.shj.core.lob;
+
+import com.zerov.shj.core.cache.QueryKey;
+import com.zerov.shj.core.config.DatabaseConfig;
+import com.zerov.shj.core.config.LobConfig;
+import com.zerov.shj.core.datasource.DataSourcePoolManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 大字段句柄注册表
+ * 相同的查询（数据源、SQL和参数）共用一个查询句柄，再次执行时延长有效期；
+ * 单元格句柄由查询句柄、行号和列序号组成，过期后失效
+ */
+@Slf4j
+@Component
+public class LobHandleRegistry {
+
+    @Autowired
+    private LobConfig lobConfig;
+
+    private final Map<String, LobQuery> queries = new ConcurrentHashMap<>();
+
+    /**
+     * 查询对应的句柄，行数和读取参数不影响定位，键中不包含
+     */
+    private final Map<QueryKey, String> tokens = new ConcurrentHashMap<>();
+
+    private volatile long lastSweep = System.currentTimeMillis();
+
+    /**
+     * 登记查询
+     *
+     * @return 查询句柄，已登记过的查询返回原句柄，句柄数量已达上限时返回null
+     */
+    public synchronized String register(DatabaseConfig config, String sql, List<Object> params, Integer timeout) {
+        long now = System.currentTimeMillis();
+        QueryKey key = new QueryKey(DataSourcePoolManager.fingerprint(config), sql, params, 0, null);
+        String token = tokens.get(key);
+        LobQuery query = token == null ? null : queries.get(token);
+        if (query != null) {
+            query.setTimeout(timeout);
+            query.setExpireAt(now + lobConfig.getHandleTtl());
+            return token;
+        }
+        if (now - lastSweep > lobConfig.getHandleTtl() || queries.size() >= lobConfig.getMaxHandles()) {
+            sweep(now);
+        }
+        if (queries.size() >= lobConfig.getMaxHandles()) {
+            log.warn("大字段句柄数量已达上限: {}", lobConfig.getMaxHandles());
+            return null;
+        }
+        query = new LobQuery();
+        query.setConfig(config);
+        query.setSql(sql);
+        query.setParams(params);
+        query.setTimeout(timeout);
+        query.setExpireAt(now + lobConfig.getHandleTtl());
+        token = UUID.randomUUID().toString().replace("-", "");
+        queries.put(token, query);
+        tokens.put(key, token);
+        return token;
+    }
+
+    /**
+     * 获取查询，不存在或已过期时返回null
+     */
+    public LobQuery get(String token) {
+        LobQuery query = queries.get(token);
+        if (query != null && query.getExpireAt() < System.currentTimeMillis()) {
+            synchronized (this) {
+                // 登记时可能已延长有效期
+                if (query.getExpireAt() < System.currentTimeMillis()) {
+                    queries.remove(token);
+                    tokens.values().remove(token);
+                    return null;
+                }
+            }
+        }
+        return query;
+    }
+
+    /**
+     * 清理过期的查询
+     */
+    private void sweep(long now) {
+        lastSweep = now;
+        queries.values().removeIf(query -> query.getExpireAt() < now);
+        tokens.values().removeIf(token -> !queries.containsKey(token));
+    }
+}
@@ -0,0 +1,55 @@
+package com.zerov.shj.core.memory;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 内存预算配置类
+ * 所有并发的查询结果和文件解析结果共享一个字节预算
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "query.memory")
+public class MemoryConfig {
+
+    /**
+     * 是否启用内存预算
+     */
+    private boolean enabled = true;
+
+    /**
+     * 预算字节数，小于等于0时取最大堆内存的1/4
+     */
+    private long budgetBytes = 0;
+
+    /**
+     * 预算用尽时的处理方式：block（等待）、truncate（截断结果）、spill（写入临时文件）
+     */
+    private String policy = "block";
+
+    /**
+     * block方式下的最大等待时间(毫秒)
+     */
+    private long blockTimeout = 30000;
+
+    /**
+     * 每次向全局预算申请的字节数，减少并发请求之间的竞争
+     */
+    private long chunkBytes = 1024 * 1024;
+
+    /**
+     * 临时文件目录，为空时使用系统临时目录下的shj-spill
+     */
+    private String spillDir;
+
+    /**
+     * 每个临时文件段的字节数，按段映射到内存后顺序写入
+     */
+    private int spillSegmentBytes = 16 * 1024 * 1024;
+
+    /**
+     * 所有请求的临时文件总字节数上限
+     */
+    private long maxSpillBytes = 1024L * 1024 * 1024;
+}
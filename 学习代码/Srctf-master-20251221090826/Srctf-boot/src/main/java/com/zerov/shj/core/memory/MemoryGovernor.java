@@ -0,0 +1,235 @@
+package com.zerov.shj.core.memory;
+
+import com.zerov.shj.core.model.MemoryStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 内存预算管理
+ * 查询结果和文件解析结果在构建时按估算的字节数向全局预算申请，避免并发的大结果耗尽堆内存
+ */
+@Slf4j
+@Component
+public class MemoryGovernor {
+
+    @Autowired
+    private MemoryConfig memoryConfig;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private final Map<Long, MemoryReservation> reservations = new ConcurrentHashMap<>();
+
+    private final Object lock = new Object();
+
+    /**
+     * 已申请的字节数
+     */
+    private long usedBytes;
+
+    /**
+     * 临时文件占用的字节数
+     */
+    private final AtomicLong spilledBytes = new AtomicLong();
+
+    /**
+     * 当前线程在callInScope中登记的延迟关闭
+     */
+    private final ThreadLocal<List<MemoryReservation>> scopes = new ThreadLocal<>();
+
+    /**
+     * 为请求创建内存占用，使用完毕后须关闭
+     *
+     * @param name 请求描述，用于查看占用情况
+     */
+    public MemoryReservation open(String name) {
+        MemoryPolicy policy = MemoryPolicy.fromString(memoryConfig.getPolicy(), MemoryPolicy.block);
+        MemoryReservation reservation = new MemoryReservation(this, ids.incrementAndGet(), name, policy);
+        reservations.put(reservation.getId(), reservation);
+        return reservation;
+    }
+
+    /**
+     * 在当前HTTP请求结束（响应写出）后关闭内存占用，不在请求中时立即关闭
+     * 结果在接口返回后才序列化，需等到响应写出后才能归还
+     */
+    public void closeAfterRequest(MemoryReservation reservation) {
+        List<MemoryReservation> scope = scopes.get();
+        if (scope != null) {
+            scope.add(reservation);
+            return;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            reservation.close();
+            return;
+        }
+        attributes.registerDestructionCallback(MemoryGovernor.class.getName() + "." + reservation.getId(),
+                reservation::close, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * 在HTTP请求之外执行并使用结果（如后台推送时的序列化），
+     * 期间通过closeAfterRequest登记的内存占用在执行结束后关闭
+     */
+    public <T> T callInScope(Supplier<T> action) {
+        List<MemoryReservation> previous = scopes.get();
+        List<MemoryReservation> scope = new ArrayList<>();
+        scopes.set(scope);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                scopes.remove();
+            } else {
+                scopes.set(previous);
+            }
+            scope.forEach(MemoryReservation::close);
+        }
+    }
+
+    /**
+     * 预算字节数
+     */
+    public long getBudgetBytes() {
+        if (memoryConfig.getBudgetBytes() > 0) {
+            return memoryConfig.getBudgetBytes();
+        }
+        return Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    long getChunkBytes() {
+        return Math.max(1, memoryConfig.getChunkBytes());
+    }
+
+    /**
+     * 从全局预算申请内存
+     *
+     * @param bytes     申请的字节数
+     * @param heldBytes 该请求已持有的字节数
+     * @param policy    预算不足时的处理方式
+     * @return 是否申请成功
+     */
+    boolean acquire(long bytes, long heldBytes, MemoryPolicy policy) {
+        long budget = getBudgetBytes();
+        synchronized (lock) {
+            if (!memoryConfig.isEnabled()) {
+                usedBytes += bytes;
+                return true;
+            }
+            // 单个请求超过预算时等待也无法满足
+            if (heldBytes + bytes > budget) {
+                log.warn("请求的内存超过预算: {} 字节, 预算 {} 字节", heldBytes + bytes, budget);
+                return false;
+            }
+            long deadline = System.currentTimeMillis() + memoryConfig.getBlockTimeout();
+            while (usedBytes + bytes > budget) {
+                long wait = deadline - System.currentTimeMillis();
+                if (policy != MemoryPolicy.block || wait <= 0) {
+                    log.warn("内存预算不足: 已使用 {} 字节, 申请 {} 字节, 预算 {} 字节", usedBytes, bytes, budget);
+                    return false;
+                }
+                try {
+                    lock.wait(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            usedBytes += bytes;
+            return true;
+        }
+    }
+
+    /**
+     * 归还内存并唤醒等待的请求
+     */
+    void release(long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        synchronized (lock) {
+            usedBytes -= bytes;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * 临时文件目录，不存在时创建
+     */
+    Path getSpillDir() throws IOException {
+        Path dir = StringUtils.isEmpty(memoryConfig.getSpillDir())
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "shj-spill")
+                : Paths.get(memoryConfig.getSpillDir());
+        return Files.createDirectories(dir);
+    }
+
+    int getSpillSegmentBytes() {
+        return Math.max(4096, memoryConfig.getSpillSegmentBytes());
+    }
+
+    /**
+     * 申请临时文件配额
+     */
+    boolean acquireSpill(long bytes) {
+        long current;
+        do {
+            current = spilledBytes.get();
+            if (current + bytes > memoryConfig.getMaxSpillBytes()) {
+                log.warn("临时文件空间不足: 已使用 {} 字节, 申请 {} 字节, 上限 {} 字节",
+                        current, bytes, memoryConfig.getMaxSpillBytes());
+                return false;
+            }
+        } while (!spilledBytes.compareAndSet(current, current + bytes));
+        return true;
+    }
+
+    void releaseSpill(long bytes) {
+        spilledBytes.addAndGet(-bytes);
+    }
+
+    void remove(MemoryReservation reservation) {
+        reservations.remove(reservation.getId());
+    }
+
+    /**
+     * 当前内存使用情况
+     */
+    public MemoryStatus getStatus() {
+        MemoryStatus status = new MemoryStatus();
+        status.setEnabled(memoryConfig.isEnabled());
+        status.setPolicy(MemoryPolicy.fromString(memoryConfig.getPolicy(), MemoryPolicy.block).name());
+        status.setBudgetBytes(getBudgetBytes());
+        synchronized (lock) {
+            status.setUsedBytes(usedBytes);
+        }
+        status.setSpilledBytes(spilledBytes.get());
+        List<MemoryStatus.Usage> requests = new ArrayList<>();
+        for (MemoryReservation reservation : reservations.values()) {
+            MemoryStatus.Usage usage = new MemoryStatus.Usage();
+            usage.setId(reservation.getId());
+            usage.setName(reservation.getName());
+            usage.setBytes(reservation.getBytes());
+            usage.setTruncated(reservation.isTruncated());
+            usage.setSpilledBytes(reservation.getSpilledBytes());
+            usage.setStartTime(reservation.getStartTime());
+            requests.add(usage);
+        }
+        status.setRequests(requests);
+        return status;
+    }
+}
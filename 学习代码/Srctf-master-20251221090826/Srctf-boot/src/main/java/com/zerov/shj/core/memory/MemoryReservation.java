@@ -0,0 +1,156 @@
+package com.zerov.shj.core.memory;
+
+import com.zerov.shj.common.exception.DatasourceException;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 单个请求的内存占用
+ * 结果构建过程中随行数增长调整占用，按块向全局预算申请，请求结束后关闭并归还
+ */
+public class MemoryReservation implements AutoCloseable {
+
+    private final MemoryGovernor governor;
+    private final long id;
+    private final String name;
+    private final MemoryPolicy policy;
+    private final long startTime = System.currentTimeMillis();
+
+    /**
+     * 估算的实际占用
+     */
+    private volatile long bytes;
+
+    /**
+     * 已从全局预算申请的字节数
+     */
+    private long granted;
+
+    /**
+     * 是否出现过预算不足
+     */
+    private volatile boolean exhausted;
+    private boolean closed;
+
+    /**
+     * 溢出到临时文件的行缓冲，随占用一起关闭
+     */
+    private final List<SpillableRowBuffer> spills = new CopyOnWriteArrayList<>();
+
+    MemoryReservation(MemoryGovernor governor, long id, String name, MemoryPolicy policy) {
+        this.governor = governor;
+        this.id = id;
+        this.name = name;
+        this.policy = policy;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public MemoryPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 是否出现过预算不足，非block方式下调用方据此截断结果或改为溢出到临时文件
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * 是否因预算不足截断了结果
+     */
+    public boolean isTruncated() {
+        return exhausted && policy == MemoryPolicy.truncate;
+    }
+
+    /**
+     * 已溢出到临时文件的字节数
+     */
+    public long getSpilledBytes() {
+        long spilledBytes = 0;
+        for (SpillableRowBuffer spill : spills) {
+            spilledBytes += spill.getBytes();
+        }
+        return spilledBytes;
+    }
+
+    /**
+     * 创建溢出到临时文件的行缓冲，临时文件在占用关闭时删除
+     *
+     * @param columns 列名
+     */
+    public SpillableRowBuffer newSpillBuffer(List<String> columns) {
+        SpillableRowBuffer spill = new SpillableRowBuffer(governor, columns);
+        spills.add(spill);
+        return spill;
+    }
+
+    /**
+     * 将本请求的占用调整为指定字节数
+     * 预算不足时按处理方式等待或拒绝，block方式等待超时后抛出异常
+     *
+     * @param newBytes 估算的占用字节数
+     * @return 是否成功，truncate和spill方式下预算不足时返回false，调用方应停止读取或改为溢出到临时文件
+     */
+    public synchronized boolean resize(long newBytes) {
+        if (closed) {
+            return true;
+        }
+        long chunkBytes = governor.getChunkBytes();
+        if (newBytes > granted) {
+            // 按块申请，不超过预算剩余部分，避免临界处因取整失败
+            long required = (newBytes - granted + chunkBytes - 1) / chunkBytes * chunkBytes;
+            required = Math.max(newBytes - granted, Math.min(required, governor.getBudgetBytes() - granted));
+            if (!governor.acquire(required, granted, policy)) {
+                if (policy != MemoryPolicy.block) {
+                    exhausted = true;
+                    return false;
+                }
+                DatasourceException.throwException("内存不足，结果超过可用的内存预算，请缩小查询范围或稍后重试");
+            }
+            granted += required;
+        } else if (granted - newBytes > chunkBytes) {
+            // 多余的整块归还，便于其他请求使用
+            long excess = (granted - newBytes) / chunkBytes * chunkBytes;
+            governor.release(excess);
+            granted -= excess;
+        }
+        bytes = newBytes;
+        return true;
+    }
+
+    /**
+     * 归还全部占用
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (SpillableRowBuffer spill : spills) {
+            spill.close();
+        }
+        spills.clear();
+        bytes = 0;
+        governor.release(granted);
+        granted = 0;
+        governor.remove(this);
+    }
+}
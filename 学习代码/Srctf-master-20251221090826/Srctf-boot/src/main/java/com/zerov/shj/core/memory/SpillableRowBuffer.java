@@ -0,0 +1,371 @@
+package com.zerov.shj.core.memory;
+
+import com.zerov.shj.common.exception.DatasourceException;
+import com.zerov.shj.core.model.ColumnarData;
+import com.zerov.shj.core.model.LobHandle;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 可溢出到磁盘的行缓冲
+ * 超出内存预算的行按紧凑的二进制格式写入内存映射的临时文件段，输出时按段顺序映射读回，
+ * 行数据不进入堆内存，关闭时删除临时文件
+ * <p>
+ * 行格式：每个单元格一个类型标记，后跟定长值或"长度+UTF-8字节"
+ */
+@Slf4j
+public class SpillableRowBuffer implements Closeable {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte FLOAT = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte DECIMAL = 6;
+    private static final byte LOB = 7;
+
+    private final MemoryGovernor governor;
+    private final String[] columns;
+    private final List<Segment> segments = new ArrayList<>();
+
+    /**
+     * 当前行的编码缓冲，按需扩容后复用
+     */
+    private ByteBuffer row = ByteBuffer.allocate(1024);
+
+    private Segment current;
+    private long rowCount;
+    private long bytes;
+    private boolean finished;
+    private boolean closed;
+
+    SpillableRowBuffer(MemoryGovernor governor, List<String> columns) {
+        this.governor = governor;
+        this.columns = columns.toArray(new String[0]);
+    }
+
+    /**
+     * 列名，读回的行按该顺序放入Map
+     */
+    public List<String> getColumns() {
+        return Collections.unmodifiableList(Arrays.asList(columns));
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 已写入临时文件的字节数
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 写入列式数据中的所有行，只写对外可见的列
+     */
+    public void append(ColumnarData data) {
+        int[] visibleColumns = data.getVisibleColumns();
+        Object[] values = new Object[visibleColumns.length];
+        for (int row = 0; row < data.getRowCount(); row++) {
+            for (int i = 0; i < visibleColumns.length; i++) {
+                values[i] = data.getValue(row, visibleColumns[i]);
+            }
+            append(values);
+        }
+    }
+
+    /**
+     * 写入一行，值的个数须与列数一致
+     */
+    public void append(Object[] values) {
+        if (finished) {
+            throw new IllegalStateException("缓冲已结束写入");
+        }
+        row.clear();
+        for (Object value : values) {
+            writeValue(value);
+        }
+        row.flip();
+        int length = row.remaining();
+        try {
+            if (current == null || current.buffer.remaining() < length) {
+                newSegment(length);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        current.buffer.put(row);
+        current.length += length;
+        bytes += length;
+        rowCount++;
+    }
+
+    /**
+     * 结束写入，解除写入映射并截掉段末尾未使用的部分
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (current != null) {
+            closeSegment(current);
+            current = null;
+        }
+    }
+
+    /**
+     * 按写入顺序读回所有行，每次调用从头开始
+     */
+    public Iterator<Map<String, Object>> iterator() {
+        finish();
+        return new RowIterator();
+    }
+
+    /**
+     * 删除临时文件并归还临时文件配额
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        finish();
+        for (Segment segment : segments) {
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("删除临时文件失败: {}", segment.path, e);
+            }
+            governor.releaseSpill(segment.capacity);
+        }
+        segments.clear();
+    }
+
+    private void newSegment(int rowLength) throws IOException {
+        if (current != null) {
+            closeSegment(current);
+        }
+        // 单行超过段大小时该段按行大小分配
+        int capacity = Math.max(governor.getSpillSegmentBytes(), rowLength);
+        if (!governor.acquireSpill(capacity)) {
+            DatasourceException.throwException("临时文件空间不足，结果超过可溢出的上限，请缩小查询范围");
+        }
+        Path path;
+        try {
+            path = Files.createTempFile(governor.getSpillDir(), "shj-spill-", ".seg");
+        } catch (IOException e) {
+            governor.releaseSpill(capacity);
+            throw e;
+        }
+        Segment segment = new Segment(path, capacity);
+        segments.add(segment);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+        current = segment;
+    }
+
+    private void closeSegment(Segment segment) {
+        unmap(segment.buffer);
+        segment.buffer = null;
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.WRITE)) {
+            channel.truncate(segment.length);
+        } catch (IOException e) {
+            // 截断失败不影响读取，只是多占用磁盘空间
+            log.debug("截断临时文件失败: {}", e.getMessage());
+        }
+    }
+
+    private void writeValue(Object value) {
+        if (value == null) {
+            ensureRemaining(1);
+            row.put(NULL);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            ensureRemaining(9);
+            row.put(LONG).putLong(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            ensureRemaining(9);
+            row.put(DOUBLE).putDouble((Double) value);
+        } else if (value instanceof Float) {
+            ensureRemaining(5);
+            row.put(FLOAT).putFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            ensureRemaining(2);
+            row.put(BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+        } else if (value instanceof BigDecimal) {
+            ensureRemaining(1);
+            row.put(DECIMAL);
+            writeString(value.toString());
+        } else if (value instanceof LobHandle) {
+            LobHandle handle = (LobHandle) value;
+            ensureRemaining(9);
+            row.put(LOB).putLong(handle.getSize());
+            writeString(handle.getToken());
+            writeString(handle.getPreview());
+        } else {
+            ensureRemaining(1);
+            row.put(STRING);
+            writeString(value.toString());
+        }
+    }
+
+    /**
+     * 写入可为空的字符串，长度为-1表示空值
+     */
+    private void writeString(String value) {
+        if (value == null) {
+            ensureRemaining(4);
+            row.putInt(-1);
+            return;
+        }
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        ensureRemaining(4 + data.length);
+        row.putInt(data.length).put(data);
+    }
+
+    private void ensureRemaining(int length) {
+        if (row.remaining() < length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(row.capacity() * 2, row.position() + length));
+            row.flip();
+            larger.put(row);
+            row = larger;
+        }
+    }
+
+    private static Object readValue(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case NULL:
+                return null;
+            case LONG:
+                return buffer.getLong();
+            case DOUBLE:
+                return buffer.getDouble();
+            case FLOAT:
+                return buffer.getFloat();
+            case BOOLEAN:
+                return buffer.get() != 0;
+            case DECIMAL:
+                return new BigDecimal(readString(buffer));
+            case LOB:
+                long size = buffer.getLong();
+                String token = readString(buffer);
+                return new LobHandle(token, size, readString(buffer));
+            default:
+                return readString(buffer);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] data = new byte[length];
+        buffer.get(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 立即解除内存映射，不等待GC，以便及时删除文件（Windows下映射中的文件无法删除）
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            log.debug("解除内存映射失败，等待GC回收: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 临时文件段
+     */
+    private static class Segment {
+        private final Path path;
+        private final int capacity;
+        private MappedByteBuffer buffer;
+        private int length;
+
+        Segment(Path path, int capacity) {
+            this.path = path;
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * 顺序读取各段，每段读取时映射，读完后立即解除映射
+     */
+    private class RowIterator implements Iterator<Map<String, Object>> {
+        private int segmentIndex = -1;
+        private MappedByteBuffer mapped;
+        private ByteBuffer buffer;
+
+        @Override
+        public boolean hasNext() {
+            while (buffer == null || !buffer.hasRemaining()) {
+                unmap(mapped);
+                mapped = null;
+                buffer = null;
+                if (closed || ++segmentIndex >= segments.size()) {
+                    return false;
+                }
+                Segment segment = segments.get(segmentIndex);
+                if (segment.length == 0) {
+                    continue;
+                }
+                try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                buffer = mapped;
+            }
+            return true;
+        }
+
+        @Override
+        public Map<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (String column : columns) {
+                map.put(column, readValue(buffer));
+            }
+            return map;
+        }
+    }
+}
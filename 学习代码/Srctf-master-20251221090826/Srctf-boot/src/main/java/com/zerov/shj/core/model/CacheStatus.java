@@ -0,0 +1,70 @@
+package com.zerov.shj.core.model;
+
+import lombok.Data;
+
+/**
+ * 查询结果缓存使用情况
+ */
+@Data
+public class CacheStatus {
+
+    /**
+     * 是否启用结果缓存
+     */
+    private boolean enabled;
+
+    /**
+     * 缓存的结果数
+     */
+    private long entries;
+
+    /**
+     * 缓存结果占用的字节数（估算）
+     */
+    private long bytes;
+
+    /**
+     * 字节数上限
+     */
+    private long maxBytes;
+
+    /**
+     * 命中次数
+     */
+    private long hitCount;
+
+    /**
+     * 未命中次数
+     */
+    private long missCount;
+
+    /**
+     * 命中率
+     */
+    private double hitRatio;
+
+    /**
+     * 因超出大小或过期被淘汰的结果数
+     */
+    private long evictionCount;
+
+    /**
+     * 执行中的查询数
+     */
+    private int inFlight;
+
+    /**
+     * 共享了执行中查询结果的请求数
+     */
+    private long coalescedCount;
+
+    /**
+     * 后台刷新跟踪的查询数
+     */
+    private int refreshTasks;
+
+    /**
+     * 后台刷新次数
+     */
+    private long refreshCount;
+}
@@ -0,0 +1,41 @@
+package com.zerov.shj.core.model;
+
+import lombok.Data;
+
+/**
+ * 列结构模型
+ */
+@Data
+public class ColumnSchema {
+
+    /**
+     * 列名
+     */
+    private String name;
+
+    /**
+     * JDBC类型，见java.sql.Types
+     */
+    private int jdbcType;
+
+    /**
+     * 数据库中的类型名称
+     */
+    private String typeName;
+
+    /**
+     * 精度
+     */
+    private int precision;
+
+    /**
+     * 小数位数
+     */
+    private int scale;
+
+    /**
+     * 输出值类型：long、double、boolean、decimal、string、date、time、timestamp、lob
+     * 日期时间类型的值为毫秒时间戳，lob的值为大字段句柄，legacy模式下除lob外均为string
+     */
+    private String valueType;
+}
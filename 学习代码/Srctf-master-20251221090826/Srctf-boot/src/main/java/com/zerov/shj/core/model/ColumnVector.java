@@ -0,0 +1,438 @@
+package com.zerov.shj.core.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列存储
+ * 每列一个基本类型数组，空值记录在位图中
+ */
+public abstract class ColumnVector {
+
+    protected static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * 空值位图
+     */
+    private long[] nulls = new long[1];
+
+    protected int size;
+
+    /**
+     * 估算占用的字节数，用于内存预算
+     */
+    protected long bytes;
+
+    /**
+     * 行数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 估算占用的字节数
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 是否为空值
+     */
+    public boolean isNull(int row) {
+        int word = row >>> 6;
+        return word < nulls.length && (nulls[word] & (1L << row)) != 0;
+    }
+
+    /**
+     * 追加空值
+     */
+    public void appendNull() {
+        ensureCapacity(size + 1);
+        int word = size >>> 6;
+        if (word >= nulls.length) {
+            nulls = Arrays.copyOf(nulls, Math.max(nulls.length * 2, word + 1));
+        }
+        nulls[word] |= 1L << size;
+        size++;
+        bytes += 8;
+    }
+
+    /**
+     * 清空数据，保留已分配的数组以便复用
+     */
+    public void clear() {
+        Arrays.fill(nulls, 0L);
+        size = 0;
+        bytes = 0;
+    }
+
+    /**
+     * 读取指定行的值（兼容旧版Map结果的取值方式）
+     */
+    public abstract Object get(int row);
+
+    /**
+     * 按原生类型读取指定行的值（typed模式）
+     */
+    public abstract Object getTyped(int row);
+
+    protected abstract void ensureCapacity(int capacity);
+
+    protected static int grow(int current, int required) {
+        return Math.max(current + (current >> 1), required);
+    }
+
+    /**
+     * 字符串对象及其字符数组的大致字节数
+     */
+    protected static long stringBytes(String value) {
+        return 40 + 2L * value.length();
+    }
+
+    /**
+     * 整数列，同时用于布尔值（0/1）
+     */
+    public static class LongVector extends ColumnVector {
+        private long[] values = new long[INITIAL_CAPACITY];
+
+        public void append(long value) {
+            ensureCapacity(size + 1);
+            values[size++] = value;
+            bytes += 8;
+        }
+
+        public long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        public Object get(int row) {
+            return isNull(row) ? null : String.valueOf(values[row]);
+        }
+
+        @Override
+        public Object getTyped(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, grow(values.length, capacity));
+            }
+        }
+    }
+
+    /**
+     * 浮点列
+     */
+    public static class DoubleVector extends ColumnVector {
+        private double[] values = new double[INITIAL_CAPACITY];
+
+        /**
+         * 是否单精度（REAL），输出时按float格式化
+         */
+        private final boolean singlePrecision;
+
+        public DoubleVector(boolean singlePrecision) {
+            this.singlePrecision = singlePrecision;
+        }
+
+        public void append(double value) {
+            ensureCapacity(size + 1);
+            values[size++] = value;
+            bytes += 8;
+        }
+
+        public double getDouble(int row) {
+            return values[row];
+        }
+
+        public boolean isSinglePrecision() {
+            return singlePrecision;
+        }
+
+        @Override
+        public Object get(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            double value = values[row];
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                return Double.toString(value);
+            }
+            // 按十进制原样输出，整数值不带小数部分，不使用科学计数法
+            BigDecimal decimal = singlePrecision ? new BigDecimal(Float.toString((float) value)) : BigDecimal.valueOf(value);
+            return decimal.stripTrailingZeros().toPlainString();
+        }
+
+        @Override
+        public Object getTyped(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            return singlePrecision ? (Object) (float) values[row] : (Object) values[row];
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, grow(values.length, capacity));
+            }
+        }
+    }
+
+    /**
+     * 字符串列，重复值较多时使用字典编码，不同值过多时退化为普通数组
+     */
+    public static class StringVector extends ColumnVector {
+
+        /**
+         * 超过该行数后检查字典是否仍然有效
+         */
+        private static final int DICTIONARY_CHECK_ROWS = 1024;
+
+        private int[] codes = new int[INITIAL_CAPACITY];
+        private Map<String, Integer> dictionary = new HashMap<>();
+        private List<String> dictionaryValues = new ArrayList<>();
+        private String[] plainValues;
+
+        public void append(String value) {
+            if (value == null) {
+                appendNull();
+                return;
+            }
+            ensureCapacity(size + 1);
+            if (plainValues != null) {
+                plainValues[size++] = value;
+                bytes += 8 + stringBytes(value);
+                return;
+            }
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = dictionaryValues.size();
+                dictionary.put(value, code);
+                dictionaryValues.add(value);
+                // 字典项：字符串和HashMap节点
+                bytes += 48 + stringBytes(value);
+            }
+            codes[size++] = code;
+            bytes += 4;
+            // 不同值超过一半时字典不再节省空间
+            if (size >= DICTIONARY_CHECK_ROWS && dictionaryValues.size() * 2 > size) {
+                toPlain();
+            }
+        }
+
+        /**
+         * 是否使用字典编码
+         */
+        public boolean isDictionaryEncoded() {
+            return plainValues == null;
+        }
+
+        /**
+         * 字典中不同值的数量
+         */
+        public int getDictionarySize() {
+            return dictionaryValues.size();
+        }
+
+        @Override
+        public Object get(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            return plainValues != null ? plainValues[row] : dictionaryValues.get(codes[row]);
+        }
+
+        @Override
+        public Object getTyped(int row) {
+            return get(row);
+        }
+
+        @Override
+        public void clear() {
+            if (plainValues != null) {
+                Arrays.fill(plainValues, 0, size, null);
+            } else {
+                dictionary.clear();
+                dictionaryValues.clear();
+            }
+            super.clear();
+        }
+
+        private void toPlain() {
+            String[] values = new String[codes.length];
+            for (int i = 0; i < size; i++) {
+                values[i] = isNull(i) ? null : dictionaryValues.get(codes[i]);
+            }
+            plainValues = values;
+            codes = null;
+            dictionary = null;
+            dictionaryValues = new ArrayList<>();
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity) {
+            if (plainValues != null) {
+                if (capacity > plainValues.length) {
+                    plainValues = Arrays.copyOf(plainValues, grow(plainValues.length, capacity));
+                }
+            } else if (capacity > codes.length) {
+                codes = Arrays.copyOf(codes, grow(codes.length, capacity));
+            }
+        }
+    }
+
+    /**
+     * 布尔列
+     */
+    public static class BooleanVector extends ColumnVector {
+        private boolean[] values = new boolean[INITIAL_CAPACITY];
+
+        public void append(boolean value) {
+            ensureCapacity(size + 1);
+            values[size++] = value;
+            bytes += 1;
+        }
+
+        public boolean getBoolean(int row) {
+            return values[row];
+        }
+
+        @Override
+        public Object get(int row) {
+            return isNull(row) ? null : values[row] ? "1" : "0";
+        }
+
+        @Override
+        public Object getTyped(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, grow(values.length, capacity));
+            }
+        }
+    }
+
+    /**
+     * 高精度数值列
+     */
+    public static class DecimalVector extends ColumnVector {
+        private BigDecimal[] values = new BigDecimal[INITIAL_CAPACITY];
+
+        public void append(BigDecimal value) {
+            if (value == null) {
+                appendNull();
+                return;
+            }
+            ensureCapacity(size + 1);
+            values[size++] = value;
+            bytes += 48 + value.precision() / 2;
+        }
+
+        @Override
+        public Object get(int row) {
+            return isNull(row) ? null : values[row].toPlainString();
+        }
+
+        @Override
+        public Object getTyped(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(values, 0, size, null);
+            super.clear();
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, grow(values.length, capacity));
+            }
+        }
+    }
+
+    /**
+     * 大字段列，只保存大小和预览，取值时生成句柄
+     */
+    public static class LobVector extends ColumnVector {
+        private long[] sizes = new long[INITIAL_CAPACITY];
+        private String[] previews = new String[INITIAL_CAPACITY];
+
+        /**
+         * 查询句柄，为空时不生成可获取的句柄
+         */
+        private String queryToken;
+
+        /**
+         * 列序号，从1开始
+         */
+        private int column;
+
+        /**
+         * 当前批次第一行在结果中的行号，从1开始
+         */
+        private long firstRow = 1;
+
+        /**
+         * 绑定查询句柄、列序号和第一行的行号
+         */
+        public void bind(String queryToken, int column, long firstRow) {
+            this.queryToken = queryToken;
+            this.column = column;
+            this.firstRow = firstRow;
+        }
+
+        public void append(long length, String preview) {
+            ensureCapacity(size + 1);
+            sizes[size] = length;
+            previews[size] = preview;
+            size++;
+            bytes += 16 + (preview == null ? 0 : stringBytes(preview));
+        }
+
+        @Override
+        public Object get(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            String token = queryToken == null ? null : queryToken + "-" + (firstRow + row) + "-" + column;
+            return new LobHandle(token, sizes[row], previews[row]);
+        }
+
+        @Override
+        public Object getTyped(int row) {
+            return get(row);
+        }
+
+        @Override
+        public void clear() {
+            // 分批输出时行号延续
+            firstRow += size;
+            Arrays.fill(previews, 0, size, null);
+            super.clear();
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity) {
+            if (capacity > sizes.length) {
+                int newCapacity = grow(sizes.length, capacity);
+                sizes = Arrays.copyOf(sizes, newCapacity);
+                previews = Arrays.copyOf(previews, newCapacity);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.zerov.shj.core.model;
+
+import com.alibaba.fastjson.JSON;
+import lombok.Data;
+
+/**
+ * 大字段句柄
+ * 查询结果中代替大字段的值，完整值通过 /shj/api/lob/{token} 获取
+ */
+@Data
+public class LobHandle {
+
+    /**
+     * 句柄，为空表示句柄数量已达上限，无法按需获取
+     */
+    private String token;
+
+    /**
+     * 大小，二进制为字节数，文本为字符数
+     */
+    private long size;
+
+    /**
+     * 截断的预览，仅preview模式下的文本列有值
+     */
+    private String preview;
+
+    public LobHandle(String token, long size, String preview) {
+        this.token = token;
+        this.size = size;
+        this.preview = preview;
+    }
+
+    @Override
+    public String toString() {
+        return JSON.toJSONString(this);
+    }
+}
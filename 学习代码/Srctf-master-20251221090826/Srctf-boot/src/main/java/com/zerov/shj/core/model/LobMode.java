@@ -0,0 +1,37 @@
+package com.zerov.shj.core.model;
+
+/**
+ * 大字段输出方式
+ */
+public enum LobMode {
+
+    /**
+     * 只返回句柄和大小，完整值通过句柄另行获取
+     */
+    handle,
+
+    /**
+     * 返回句柄、大小和截断的预览
+     */
+    preview,
+
+    /**
+     * 直接输出完整值（旧版行为）
+     */
+    inline;
+
+    /**
+     * 根据字符串获取输出方式，为空或无法识别时使用默认值
+     */
+    public static LobMode fromString(String mode, LobMode defaultMode) {
+        if (mode != null) {
+            String lowerMode = mode.toLowerCase().trim();
+            for (LobMode lobMode : values()) {
+                if (lobMode.name().equals(lowerMode)) {
+                    return lobMode;
+                }
+            }
+        }
+        return defaultMode;
+    }
+}
@@ -1,8 +1,14 @@
 package com.zerov.shj.core.model;
 
+import com.alibaba.fastjson.annotation.JSONField;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.zerov.shj.core.config.DatabaseConfig;
+import com.zerov.shj.core.sql.NormalizedSql;
 import lombok.Data;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * 查询请求模型
  */
@@ -18,6 +24,11 @@ public class QueryRequest {
      * SQL查询语句
      */
     private String sql;
+
+    /**
+     * SQL模板的参数值，不为空时sql作为模板，其中的:name按参数绑定执行，值为数组时展开用于IN条件
+     */
+    private Map<String, Object> params;
     
     /**
      * 查询超时时间(秒)
@@ -34,7 +45,61 @@ public class QueryRequest {
      */
     private String configJson;
 
+    /**
+     * 取值模式：legacy（默认，均输出为字符串）、typed（按原生类型输出并返回列结构）
+     */
+    private String valueMode;
+
+    /**
+     * 大字段输出方式：handle、preview、inline，为空时使用query.lob.mode配置
+     */
+    private String lobMode;
+
+    /**
+     * 每页行数，大于0时按keyColumns分页，返回完整结果和下一页令牌
+     */
+    private Integer pageSize;
+
+    /**
+     * 上一页返回的nextPageToken，为空表示第一页
+     */
+    private String pageToken;
+
+    /**
+     * 分页键列，可带ASC/DESC，组合后须唯一且不为空，如 ["create_time DESC", "id"]
+     */
+    private List<String> keyColumns;
+
+    /**
+     * 组件的自动更新间隔(秒)，大于0时结果按该时间缓存，相同查询在间隔内共享结果
+     */
+    private Integer autoUpdateTime;
+
+    /**
+     * 客户端已有的结果版本，不为空时返回带版本号的完整结果；大于0且该版本仍保留时只返回变化的行
+     */
+    private Long sinceVersion;
+
+    /**
+     * 增量更新的行键列，组合后须唯一；为空时按整行内容识别行，修改的行表现为删除加新增
+     */
+    private List<String> rowKey;
+
+    /**
+     * 规范化后的SQL，每个请求只计算一次
+     */
+    @JSONField(serialize = false, deserialize = false)
+    @JsonIgnore
+    private NormalizedSql normalizedSql;
     
+    /**
+     * 是否为分页查询
+     */
+    @JsonIgnore
+    public boolean isPaged() {
+        return (pageSize != null && pageSize > 0) || (pageToken != null && !pageToken.trim().isEmpty());
+    }
+
     /**
      * 设置配置并自动解析JSON
      */
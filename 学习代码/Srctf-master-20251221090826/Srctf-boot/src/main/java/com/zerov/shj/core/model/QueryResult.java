@@ -1,5 +1,7 @@
 package com.zerov.shj.core.model;
 
+import com.alibaba.fastjson.annotation.JSONField;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import java.util.List;
 import java.util.Map;
@@ -25,11 +27,23 @@ public class QueryResult {
      */
     private List<String> columns;
     
+    /**
+     * 列结构
+     */
+    private List<ColumnSchema> schema;
+    
     /**
      * 数据列表
      */
     private List<Map<String, Object>> data;
     
+    /**
+     * 列式数据，data为空时按需转换为List<Map>视图
+     */
+    @JSONField(serialize = false)
+    @JsonIgnore
+    private ColumnarData columnar;
+    
     /**
      * 总行数
      */
@@ -39,4 +53,49 @@ public class QueryResult {
      * 执行时间(毫秒)
      */
     private long executionTime;
-} 
\ No newline at end of file
+
+    /**
+     * 下一页令牌，分页查询且还有下一页时不为空
+     */
+    private String nextPageToken;
+
+    /**
+     * 结果是否因内存预算不足被截断
+     */
+    private boolean truncated;
+
+    /**
+     * 结果是否来自缓存
+     */
+    private boolean cached;
+
+    /**
+     * 缓存的结果是否已过期，过期的结果在后台刷新完成前返回
+     */
+    private boolean stale;
+
+    /**
+     * 结果版本，请求携带sinceVersion时返回
+     */
+    private Long version;
+
+    /**
+     * 各行的标识，与data一一对应，返回全量的带版本结果时不为空
+     */
+    private List<String> rowIds;
+
+    /**
+     * 相对sinceVersion变化的行，不为空时data为空
+     */
+    private RowDelta delta;
+    
+    /**
+     * 获取数据列表，列式结果以只读视图返回
+     */
+    public List<Map<String, Object>> getData() {
+        if (data == null && columnar != null) {
+            data = columnar.asMaps();
+        }
+        return data;
+    }
+}
@@ -0,0 +1,45 @@
+package com.zerov.shj.core.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 相对基准版本变化的行
+ * 行标识与全量结果的rowIds对应，客户端按行标识合并
+ */
+@Data
+public class RowDelta {
+
+    /**
+     * 基准版本
+     */
+    private long baseVersion;
+
+    /**
+     * 新增行的标识，与inserted一一对应
+     */
+    private List<String> insertedIds = new ArrayList<>();
+
+    /**
+     * 新增的行
+     */
+    private List<Map<String, Object>> inserted = new ArrayList<>();
+
+    /**
+     * 修改行的标识，与updated一一对应，仅按行键识别时出现
+     */
+    private List<String> updatedIds = new ArrayList<>();
+
+    /**
+     * 修改后的行
+     */
+    private List<Map<String, Object>> updated = new ArrayList<>();
+
+    /**
+     * 删除行的标识
+     */
+    private List<String> deleted = new ArrayList<>();
+}
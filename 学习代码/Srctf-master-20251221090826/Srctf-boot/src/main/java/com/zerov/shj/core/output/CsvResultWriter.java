@@ -0,0 +1,88 @@
+package com.zerov.shj.core.output;
+
+import com.zerov.shj.core.model.ColumnarData;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CSV流式输出
+ * UTF-8编码并带BOM，便于Excel直接打开；含逗号、引号或换行的值按RFC 4180加引号转义
+ */
+public class CsvResultWriter implements ResultWriter {
+
+    public static final String CONTENT_TYPE = "text/csv;charset=UTF-8";
+
+    private final Writer writer;
+
+    /**
+     * 输出的列序号（重名列只输出最后一列）
+     */
+    private int[] columns;
+
+    public CsvResultWriter(OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 8192);
+    }
+
+    @Override
+    public void start(ColumnarData batch) throws IOException {
+        columns = batch.getVisibleColumns();
+        writer.write('﻿');
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeValue(batch.getColumns().get(columns[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void writeBatch(ColumnarData batch) throws IOException {
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = batch.getValue(row, columns[i]);
+                if (value != null) {
+                    writeValue(value.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void error(String message) {
+        // CSV无法在中途表达错误，由调用方中断响应
+    }
+
+    private void writeValue(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                quote = true;
+                break;
+            }
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,129 @@
+package com.zerov.shj.core.output;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.support.ExcelTypeEnum;
+import com.alibaba.excel.write.metadata.WriteSheet;
+import com.zerov.shj.core.model.ColumnVector;
+import com.zerov.shj.core.model.ColumnarData;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * XLSX流式输出
+ * 使用EasyExcel的写模式（基于SXSSF，只在内存中保留最近的行，其余写入临时文件），
+ * 整数列和浮点列输出为数值单元格，其余列输出为文本；超过单个工作表的行数上限时续写到新工作表
+ * <p>
+ * Excel的数值为双精度浮点数，绝对值超过2^53的整数输出为文本，避免丢失末尾的数字
+ */
+public class ExcelResultWriter implements ResultWriter {
+
+    public static final String CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    /**
+     * 单个工作表的数据行数上限（XLSX最多1048576行，其中一行为表头）
+     */
+    private static final int MAX_SHEET_ROWS = 1048575;
+
+    /**
+     * 双精度浮点数可以精确表示的整数范围
+     */
+    private static final long MAX_EXACT_LONG = 1L << 53;
+
+    private final OutputStream outputStream;
+    private ExcelWriter excelWriter;
+    private WriteSheet sheet;
+    private int sheetIndex;
+    private int sheetRows;
+    private boolean finished;
+
+    /**
+     * 输出的列序号（重名列只输出最后一列）
+     */
+    private int[] columns;
+    private List<List<String>> head;
+
+    public ExcelResultWriter(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    public void start(ColumnarData batch) {
+        columns = batch.getVisibleColumns();
+        head = new ArrayList<>(columns.length);
+        for (int column : columns) {
+            head.add(Collections.singletonList(batch.getColumns().get(column)));
+        }
+        excelWriter = EasyExcel.write(outputStream).excelType(ExcelTypeEnum.XLSX).autoCloseStream(false).build();
+        newSheet();
+    }
+
+    @Override
+    public void writeBatch(ColumnarData batch) {
+        List<List<Object>> rows = new ArrayList<>(batch.getRowCount());
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            if (sheetRows + rows.size() >= MAX_SHEET_ROWS) {
+                excelWriter.write(rows, sheet);
+                rows = new ArrayList<>();
+                newSheet();
+            }
+            List<Object> values = new ArrayList<>(columns.length);
+            for (int column : columns) {
+                values.add(getValue(batch, row, column));
+            }
+            rows.add(values);
+        }
+        sheetRows += rows.size();
+        excelWriter.write(rows, sheet);
+    }
+
+    @Override
+    public void finish() {
+        finished = true;
+        excelWriter.finish();
+    }
+
+    @Override
+    public void error(String message) {
+        // XLSX无法在中途表达错误，放弃已写入的内容，由调用方中断响应
+        discard();
+    }
+
+    /**
+     * 未正常结束时删除SXSSF的临时文件
+     */
+    @Override
+    public void close() throws IOException {
+        discard();
+    }
+
+    private void discard() {
+        if (excelWriter != null && !finished) {
+            finished = true;
+            excelWriter.writeContext().finish(true);
+        }
+    }
+
+    private void newSheet() {
+        sheetIndex++;
+        sheetRows = 0;
+        sheet = EasyExcel.writerSheet(sheetIndex - 1, "Sheet" + sheetIndex).head(head).build();
+    }
+
+    private static Object getValue(ColumnarData batch, int row, int column) {
+        ColumnVector vector = batch.getVector(column);
+        if (vector instanceof ColumnVector.LongVector) {
+            Long value = (Long) vector.getTyped(row);
+            return value == null || (value >= -MAX_EXACT_LONG && value <= MAX_EXACT_LONG) ? value : value.toString();
+        }
+        if (vector instanceof ColumnVector.DoubleVector || vector instanceof ColumnVector.DecimalVector) {
+            return vector.getTyped(row);
+        }
+        Object value = batch.getValue(row, column);
+        return value == null ? null : value.toString();
+    }
+}
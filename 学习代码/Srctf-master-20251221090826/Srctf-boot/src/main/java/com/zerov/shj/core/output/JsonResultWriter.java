@@ -0,0 +1,144 @@
+package com.zerov.shj.core.output;
+
+import com.alibaba.fastjson.JSON;
+import com.zerov.shj.core.model.ColumnarData;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * JSON流式输出
+ * 支持JSON数组和NDJSON（每行一个JSON对象），每批数据写出后立即flush
+ */
+public class JsonResultWriter implements ResultWriter {
+
+    private final Writer writer;
+    private final boolean ndjson;
+
+    /**
+     * 预先转义的列名前缀，如 "name":
+     */
+    private String[] keyPrefixes;
+    private boolean firstRow = true;
+
+    public JsonResultWriter(OutputStream outputStream, boolean ndjson) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 8192);
+        this.ndjson = ndjson;
+    }
+
+    @Override
+    public void start(ColumnarData batch) throws IOException {
+        List<String> columns = batch.getColumns();
+        keyPrefixes = new String[columns.size()];
+        for (int i = 0; i < keyPrefixes.length; i++) {
+            keyPrefixes[i] = JSON.toJSONString(columns.get(i)) + ":";
+        }
+        if (!ndjson) {
+            writer.write('[');
+        }
+    }
+
+    @Override
+    public void writeBatch(ColumnarData batch) throws IOException {
+        int[] visibleColumns = batch.getVisibleColumns();
+        int rowCount = batch.getRowCount();
+        for (int row = 0; row < rowCount; row++) {
+            if (!ndjson && !firstRow) {
+                writer.write(',');
+            }
+            firstRow = false;
+            writer.write('{');
+            boolean firstField = true;
+            for (int column : visibleColumns) {
+                Object value = batch.getValue(row, column);
+                // 与fastjson默认行为一致，不输出空值
+                if (value == null) {
+                    continue;
+                }
+                if (!firstField) {
+                    writer.write(',');
+                }
+                firstField = false;
+                writer.write(keyPrefixes[column]);
+                writeValue(value);
+            }
+            writer.write('}');
+            if (ndjson) {
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (!ndjson) {
+            writer.write(']');
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void error(String message) throws IOException {
+        // JSON数组无法在中途表达错误，由调用方中断响应；NDJSON追加一行错误信息
+        if (ndjson) {
+            writer.write("{\"error\":");
+            writeString(message);
+            writer.write("}\n");
+            writer.flush();
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value instanceof String) {
+            writeString((String) value);
+        } else if (value instanceof Long || value instanceof Boolean || value instanceof BigDecimal) {
+            writer.write(value.toString());
+        } else if (value instanceof Double || value instanceof Float) {
+            // NaN和Infinity不是合法的JSON数值
+            double number = ((Number) value).doubleValue();
+            writer.write(Double.isNaN(number) || Double.isInfinite(number) ? "null" : value.toString());
+        } else {
+            writer.write(JSON.toJSONString(value));
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        writer.write('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                    break;
+            }
+        }
+        writer.write('"');
+    }
+}
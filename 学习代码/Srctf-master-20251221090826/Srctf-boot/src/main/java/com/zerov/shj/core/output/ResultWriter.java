@@ -0,0 +1,44 @@
+package com.zerov.shj.core.output;
+
+import com.zerov.shj.core.model.ColumnarData;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 结果输出
+ * 查询结果按批次写出，不在内存中保留完整结果
+ */
+public interface ResultWriter extends Closeable {
+
+    /**
+     * 开始输出
+     *
+     * @param batch 批次结构，只读取列名和列类型
+     */
+    void start(ColumnarData batch) throws IOException;
+
+    /**
+     * 输出一批数据，调用返回后批次会被清空复用
+     */
+    void writeBatch(ColumnarData batch) throws IOException;
+
+    /**
+     * 结束输出
+     */
+    void finish() throws IOException;
+
+    /**
+     * 输出中途失败
+     *
+     * @param message 错误信息
+     */
+    void error(String message) throws IOException;
+
+    /**
+     * 释放输出占用的资源，不关闭底层输出流
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
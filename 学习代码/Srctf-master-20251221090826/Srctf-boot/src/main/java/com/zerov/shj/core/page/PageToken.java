@@ -0,0 +1,28 @@
+package com.zerov.shj.core.page;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 分页令牌内容
+ * 以Base64编码的JSON返回给客户端，记录上一页最后一行的分页键值
+ */
+@Data
+public class PageToken {
+
+    /**
+     * 查询指纹，由数据源、SQL和分页键列计算，防止令牌用于其他查询
+     */
+    private String fingerprint;
+
+    /**
+     * 分页键列的JDBC类型，用于还原绑定参数的类型
+     */
+    private List<Integer> types;
+
+    /**
+     * 分页键值
+     */
+    private List<String> values;
+}
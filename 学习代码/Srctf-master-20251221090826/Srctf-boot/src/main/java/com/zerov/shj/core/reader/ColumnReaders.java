@@ -0,0 +1,494 @@
+package com.zerov.shj.core.reader;
+
+import com.zerov.shj.core.model.ColumnVector;
+import com.zerov.shj.core.model.LobMode;
+import com.zerov.shj.core.model.ValueMode;
+
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * 列读取器工厂
+ * 各读取器无状态，按列类型复用同一实例
+ */
+public final class ColumnReaders {
+
+    private ColumnReaders() {
+    }
+
+    /**
+     * 根据列元数据和读取参数选择读取器
+     */
+    public static ColumnReader forColumn(ResultSetMetaData metaData, int columnIndex, ReaderOptions options) throws SQLException {
+        if (options.getLobMode() != LobMode.inline) {
+            LobReader.Kind kind = lobKind(metaData, columnIndex, options.getLargeVarcharLength());
+            if (kind != null) {
+                return new LobReader(kind, options.getLobMode() == LobMode.preview ? options.getPreviewLength() : 0);
+            }
+        }
+        if (options.getValueMode() != ValueMode.typed) {
+            return forColumn(metaData, columnIndex);
+        }
+        switch (metaData.getColumnType(columnIndex)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return LongReader.INSTANCE;
+            case Types.BIGINT:
+                // 无符号BIGINT可能超出long范围
+                return metaData.isSigned(columnIndex) ? LongReader.INSTANCE : DecimalReader.INSTANCE;
+            case Types.BIT:
+                // MySQL的BIT(1)/TINYINT(1)按布尔值返回
+                return metaData.getPrecision(columnIndex) <= 1 ? TypedBooleanReader.INSTANCE : forColumn(metaData, columnIndex);
+            case Types.BOOLEAN:
+                return TypedBooleanReader.INSTANCE;
+            case Types.REAL:
+                return TypedRealReader.INSTANCE;
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return TypedDoubleReader.INSTANCE;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                // 整数且不超过18位时可用long表示
+                int precision = metaData.getPrecision(columnIndex);
+                return metaData.getScale(columnIndex) == 0 && precision > 0 && precision <= 18
+                        ? LongReader.INSTANCE : DecimalReader.INSTANCE;
+            case Types.DATE:
+                return DateMillisReader.INSTANCE;
+            case Types.TIME:
+            case Types.TIME_WITH_TIMEZONE:
+                return TimeMillisReader.INSTANCE;
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return TimestampMillisReader.INSTANCE;
+            default:
+                return forColumn(metaData, columnIndex);
+        }
+    }
+
+    /**
+     * 根据列元数据选择读取器（legacy模式）
+     */
+    public static ColumnReader forColumn(ResultSetMetaData metaData, int columnIndex) throws SQLException {
+        switch (metaData.getColumnType(columnIndex)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return LongReader.INSTANCE;
+            case Types.BIGINT:
+                // 无符号BIGINT可能超出long范围
+                return metaData.isSigned(columnIndex) ? LongReader.INSTANCE : StringReader.INSTANCE;
+            case Types.BOOLEAN:
+                return BooleanReader.INSTANCE;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return FloatReader.INSTANCE;
+            case Types.DATE:
+                return DateReader.INSTANCE;
+            default:
+                if ("blob".equalsIgnoreCase(metaData.getColumnTypeName(columnIndex))) {
+                    return BlobReader.INSTANCE;
+                }
+                return StringReader.INSTANCE;
+        }
+    }
+
+    /**
+     * 判断是否为大字段列
+     *
+     * @return 大字段类型，不是大字段时返回null
+     */
+    private static LobReader.Kind lobKind(ResultSetMetaData metaData, int columnIndex, int largeVarcharLength) throws SQLException {
+        String typeName = metaData.getColumnTypeName(columnIndex);
+        switch (metaData.getColumnType(columnIndex)) {
+            case Types.BLOB:
+                return LobReader.Kind.BLOB;
+            case Types.LONGVARBINARY:
+                // MySQL的BLOB类型按LONGVARBINARY返回
+                return typeName != null && typeName.toLowerCase().contains("blob") ? LobReader.Kind.BLOB : LobReader.Kind.BINARY;
+            case Types.CLOB:
+            case Types.NCLOB:
+                return LobReader.Kind.CLOB;
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+                return LobReader.Kind.TEXT;
+            case Types.VARCHAR:
+            case Types.NVARCHAR:
+                // PostgreSQL的text等不限长度的字符串
+                return metaData.getPrecision(columnIndex) > largeVarcharLength ? LobReader.Kind.TEXT : null;
+            default:
+                return null;
+        }
+    }
+
+    static final class LongReader implements ColumnReader {
+        static final LongReader INSTANCE = new LongReader();
+
+        @Override
+        public ColumnVector newVector() {
+            return new ColumnVector.LongVector();
+        }
+
+        @Override
+        public void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException {
+            long value = rs.getLong(columnIndex);
+            if (rs.wasNull()) {
+                vector.appendNull();
+            } else {
+                ((ColumnVector.LongVector) vector).append(value);
+            }
+        }
+
+        @Override
+        public String getValueType() {
+            return "long";
+        }
+    }
+
+    static final class BooleanReader implements ColumnReader {
+        static final BooleanReader INSTANCE = new BooleanReader();
+
+        @Override
+        public ColumnVector newVector() {
+            return new ColumnVector.LongVector();
+        }
+
+        @Override
+        public void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException {
+            ((ColumnVector.LongVector) vector).append(rs.getBoolean(columnIndex) ? 1 : 0);
+        }
+
+        @Override
+        public String getValueType() {
+            return "long";
+        }
+    }
+
+    static final class FloatReader implements ColumnReader {
+        static final FloatReader INSTANCE = new FloatReader();
+
+        @Override
+        public ColumnVector newVector() {
+            return new ColumnVector.StringVector();
+        }
+
+        @Override
+        public void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException {
+            // 与旧版一致，整数值按整数输出（空值为0），其余使用驱动返回的字符串，不转换为科学计数法
+            float aFloat = rs.getFloat(columnIndex);
+            ((ColumnVector.StringVector) vector).append(aFloat % 1 == 0 ? String.valueOf((int) aFloat) : rs.getString(columnIndex));
+        }
+
+        @Override
+        public String getValueType() {
+            return "string";
+        }
+    }
+
+    static final class DateReader implements ColumnReader {
+        static final DateReader INSTANCE = new DateReader();
+
+        @Override
+        public ColumnVector newVector() {
+            return new ColumnVector.StringVector();
+        }
+
+        @Override
+        public void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException {
+            Date date = rs.getDate(columnIndex);
+            ((ColumnVector.StringVector) vector).append(date != null ? date.toString() : null);
+        }
+
+        @Override
+        public String getValueType() {
+            return "string";
+        }
+    }
+
+    static final class BlobReader implements ColumnReader {
+        static final BlobReader INSTANCE = new BlobReader();
+
+        @Override
+        public ColumnVector newVector() {
+            return new ColumnVector.StringVector();
+        }
+
+        @Override
+        public void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException {
+            Blob blob = rs.getBlob(columnIndex);
+            ((ColumnVector.StringVector) vector).append(blob == null ? "" : blob.toString());
+        }
+
+        @Override
+        public String getValueType() {
+            return "string";
+        }
+    }
+
+    static final class StringReader implements ColumnReader {
+        static final StringReader INSTANCE = new StringReader();
+
+        @Override
+        public ColumnVector newVector() {
+            return new ColumnVector.StringVector();
+        }
+
+        @Override
+        public void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException {
+            ((ColumnVector.StringVector) vector).append(rs.getString(columnIndex));
+        }
+
+        @Override
+        public String getValueType() {
+            return "string";
+        }
+    }
+
+    static final class TypedBooleanReader implements ColumnReader {
+        static final TypedBooleanReader INSTANCE = new TypedBooleanReader();
+
+        @Override
+        public ColumnVector newVector() {
+            return new ColumnVector.BooleanVector();
+        }
+
+        @Override
+        public void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException {
+            boolean value = rs.getBoolean(columnIndex);
+            if (rs.wasNull()) {
+                vector.appendNull();
+            } else {
+                ((ColumnVector.BooleanVector) vector).append(value);
+            }
+        }
+
+        @Override
+        public String getValueType() {
+            return "boolean";
+        }
+    }
+
+    static final class TypedRealReader implements ColumnReader {
+        static final TypedRealReader INSTANCE = new TypedRealReader();
+
+        @Override
+        public ColumnVector newVector() {
+            return new ColumnVector.DoubleVector(true);
+        }
+
+        @Override
+        public void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException {
+            float value = rs.getFloat(columnIndex);
+            if (rs.wasNull()) {
+                vector.appendNull();
+            } else {
+                ((ColumnVector.DoubleVector) vector).append(value);
+            }
+        }
+
+        @Override
+        public String getValueType() {
+            return "double";
+        }
+    }
+
+    static final class TypedDoubleReader implements ColumnReader {
+        static final TypedDoubleReader INSTANCE = new TypedDoubleReader();
+
+        @Override
+        public ColumnVector newVector() {
+            return new ColumnVector.DoubleVector(false);
+        }
+
+        @Override
+        public void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException {
+            double value = rs.getDouble(columnIndex);
+            if (rs.wasNull()) {
+                vector.appendNull();
+            } else {
+                ((ColumnVector.DoubleVector) vector).append(value);
+            }
+        }
+
+        @Override
+        public String getValueType() {
+            return "double";
+        }
+    }
+
+    static final class DecimalReader implements ColumnReader {
+        static final DecimalReader INSTANCE = new DecimalReader();
+
+        @Override
+        public ColumnVector newVector() {
+            return new ColumnVector.DecimalVector();
+        }
+
+        @Override
+        public void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException {
+            ((ColumnVector.DecimalVector) vector).append(rs.getBigDecimal(columnIndex));
+        }
+
+        @Override
+        public String getValueType() {
+            return "decimal";
+        }
+    }
+
+    static final class DateMillisReader implements ColumnReader {
+        static final DateMillisReader INSTANCE = new DateMillisReader();
+
+        @Override
+        public ColumnVector newVector() {
+            return new ColumnVector.LongVector();
+        }
+
+        @Override
+        public void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException {
+            Date date = rs.getDate(columnIndex);
+            if (date == null) {
+                vector.appendNull();
+            } else {
+                ((ColumnVector.LongVector) vector).append(date.getTime());
+            }
+        }
+
+        @Override
+        public String getValueType() {
+            return "date";
+        }
+    }
+
+    static final class TimeMillisReader implements ColumnReader {
+        static final TimeMillisReader INSTANCE = new TimeMillisReader();
+
+        @Override
+        public ColumnVector newVector() {
+            return new ColumnVector.LongVector();
+        }
+
+        @Override
+        public void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException {
+            Time time = rs.getTime(columnIndex);
+            if (time == null) {
+                vector.appendNull();
+            } else {
+                ((ColumnVector.LongVector) vector).append(time.getTime());
+            }
+        }
+
+        @Override
+        public String getValueType() {
+            return "time";
+        }
+    }
+
+    static final class TimestampMillisReader implements ColumnReader {
+        static final TimestampMillisReader INSTANCE = new TimestampMillisReader();
+
+        @Override
+        public ColumnVector newVector() {
+            return new ColumnVector.LongVector();
+        }
+
+        @Override
+        public void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException {
+            Timestamp timestamp = rs.getTimestamp(columnIndex);
+            if (timestamp == null) {
+                vector.appendNull();
+            } else {
+                ((ColumnVector.LongVector) vector).append(timestamp.getTime());
+            }
+        }
+
+        @Override
+        public String getValueType() {
+            return "timestamp";
+        }
+    }
+
+    /**
+     * 大字段读取器，只读取大小和预览，不在结果中保留完整值
+     */
+    static final class LobReader implements ColumnReader {
+
+        enum Kind {
+            BLOB, BINARY, CLOB, TEXT
+        }
+
+        private final Kind kind;
+        private final int previewLength;
+
+        LobReader(Kind kind, int previewLength) {
+            this.kind = kind;
+            this.previewLength = previewLength;
+        }
+
+        @Override
+        public ColumnVector newVector() {
+            return new ColumnVector.LobVector();
+        }
+
+        @Override
+        public void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException {
+            ColumnVector.LobVector lobVector = (ColumnVector.LobVector) vector;
+            switch (kind) {
+                case BLOB: {
+                    // 只取长度，支持定位器的驱动不会读取内容
+                    Blob blob = rs.getBlob(columnIndex);
+                    if (blob == null) {
+                        lobVector.appendNull();
+                    } else {
+                        lobVector.append(blob.length(), null);
+                    }
+                    break;
+                }
+                case BINARY: {
+                    byte[] bytes = rs.getBytes(columnIndex);
+                    if (bytes == null) {
+                        lobVector.appendNull();
+                    } else {
+                        lobVector.append(bytes.length, null);
+                    }
+                    break;
+                }
+                case CLOB: {
+                    Clob clob = rs.getClob(columnIndex);
+                    if (clob == null) {
+                        lobVector.appendNull();
+                    } else {
+                        long length = clob.length();
+                        String preview = previewLength > 0 && length > 0
+                                ? clob.getSubString(1, (int) Math.min(previewLength, length)) : null;
+                        lobVector.append(length, preview);
+                    }
+                    break;
+                }
+                default: {
+                    String text = rs.getString(columnIndex);
+                    if (text == null) {
+                        lobVector.appendNull();
+                    } else {
+                        String preview = previewLength > 0
+                                ? text.substring(0, Math.min(previewLength, text.length())) : null;
+                        lobVector.append(text.length(), preview);
+                    }
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public String getValueType() {
+            return "lob";
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.zerov.shj.core.reader;
+
+import com.zerov.shj.core.model.LobMode;
+import com.zerov.shj.core.model.ValueMode;
+import lombok.Data;
+
+/**
+ * 读取计划参数
+ * 决定每列使用的读取器，参数不同的计划不能复用
+ */
+@Data
+public class ReaderOptions {
+
+    /**
+     * 取值模式
+     */
+    private ValueMode valueMode = ValueMode.legacy;
+
+    /**
+     * 大字段输出方式
+     */
+    private LobMode lobMode = LobMode.inline;
+
+    /**
+     * 预览的最大字符数，仅preview模式有效
+     */
+    private int previewLength;
+
+    /**
+     * VARCHAR长度超过该值时按大字段处理
+     */
+    private int largeVarcharLength = Integer.MAX_VALUE;
+
+    /**
+     * 缓存键中区分读取计划的部分
+     */
+    public String getKey() {
+        return valueMode + ":" + lobMode;
+    }
+}
@@ -0,0 +1,157 @@
+package com.zerov.shj.core.reader;
+
+import com.zerov.shj.core.model.ColumnSchema;
+import com.zerov.shj.core.model.ColumnVector;
+import com.zerov.shj.core.model.ColumnarData;
+import com.zerov.shj.core.model.ValueMode;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 行读取计划
+ * 由结果集元数据编译一次，包含列名、列结构和每列的读取器，相同结构的结果可复用
+ */
+public class RowReaderPlan {
+
+    private final List<String> columns;
+    private final List<ColumnSchema> schema;
+    private final int[] columnTypes;
+
+    /**
+     * 各列是否有符号，无符号BIGINT按字符串或小数读取
+     */
+    private final boolean[] signed;
+    private final ColumnReader[] readers;
+    private final ReaderOptions options;
+    private final boolean hasLobColumns;
+
+    private RowReaderPlan(List<String> columns, List<ColumnSchema> schema, int[] columnTypes, boolean[] signed,
+                          ColumnReader[] readers, ReaderOptions options) {
+        this.columns = columns;
+        this.schema = schema;
+        this.columnTypes = columnTypes;
+        this.signed = signed;
+        this.readers = readers;
+        this.options = options;
+        boolean lob = false;
+        for (ColumnReader reader : readers) {
+            lob |= reader instanceof ColumnReaders.LobReader;
+        }
+        this.hasLobColumns = lob;
+    }
+
+    /**
+     * 根据元数据编译读取计划（legacy模式，大字段直接输出）
+     */
+    public static RowReaderPlan compile(ResultSetMetaData metaData) throws SQLException {
+        return compile(metaData, new ReaderOptions());
+    }
+
+    /**
+     * 根据元数据和读取参数编译读取计划
+     */
+    public static RowReaderPlan compile(ResultSetMetaData metaData, ReaderOptions options) throws SQLException {
+        ValueMode valueMode = options.getValueMode();
+        int columnCount = metaData.getColumnCount();
+        List<String> columns = new ArrayList<>(columnCount);
+        List<ColumnSchema> schema = new ArrayList<>(columnCount);
+        int[] columnTypes = new int[columnCount];
+        boolean[] signed = new boolean[columnCount];
+        ColumnReader[] readers = new ColumnReader[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            String name = getColumnName(metaData, i);
+            columns.add(name);
+            columnTypes[i - 1] = metaData.getColumnType(i);
+            signed[i - 1] = metaData.isSigned(i);
+            readers[i - 1] = ColumnReaders.forColumn(metaData, i, options);
+
+            ColumnSchema column = new ColumnSchema();
+            column.setName(name);
+            column.setJdbcType(columnTypes[i - 1]);
+            column.setTypeName(metaData.getColumnTypeName(i));
+            column.setPrecision(metaData.getPrecision(i));
+            column.setScale(metaData.getScale(i));
+            column.setValueType(valueMode == ValueMode.typed || readers[i - 1] instanceof ColumnReaders.LobReader
+                    ? readers[i - 1].getValueType() : "string");
+            schema.add(column);
+        }
+        return new RowReaderPlan(Collections.unmodifiableList(columns), Collections.unmodifiableList(schema),
+                columnTypes, signed, readers, options);
+    }
+
+    /**
+     * 列名，使用columnLabel，如果为空则使用columnName
+     */
+    private static String getColumnName(ResultSetMetaData metaData, int column) throws SQLException {
+        String columnLabel = metaData.getColumnLabel(column);
+        return (columnLabel != null && !columnLabel.trim().isEmpty()) ? columnLabel : metaData.getColumnName(column);
+    }
+
+    /**
+     * 检查结果集结构是否与计划一致：列数、列名，以及选择读取器用到的类型、类型名、精度、小数位数和符号
+     */
+    public boolean matches(ResultSetMetaData metaData) throws SQLException {
+        if (metaData.getColumnCount() != columnTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < columnTypes.length; i++) {
+            int column = i + 1;
+            ColumnSchema expected = schema.get(i);
+            if (metaData.getColumnType(column) != columnTypes[i]
+                    || metaData.getPrecision(column) != expected.getPrecision()
+                    || metaData.getScale(column) != expected.getScale()
+                    || metaData.isSigned(column) != signed[i]
+                    || !Objects.equals(metaData.getColumnTypeName(column), expected.getTypeName())
+                    || !Objects.equals(getColumnName(metaData, column), expected.getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public List<ColumnSchema> getSchema() {
+        return schema;
+    }
+
+    public ReaderOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * 是否包含按句柄输出的大字段列
+     */
+    public boolean hasLobColumns() {
+        return hasLobColumns;
+    }
+
+    /**
+     * 创建空的列式结果
+     */
+    public ColumnarData newColumnarData() {
+        ColumnVector[] vectors = new ColumnVector[readers.length];
+        for (int i = 0; i < readers.length; i++) {
+            vectors[i] = readers[i].newVector();
+        }
+        return new ColumnarData(columns, vectors, options.getValueMode());
+    }
+
+    /**
+     * 读取当前行并追加到列式结果
+     */
+    public void readRow(ResultSet rs, ColumnarData data) throws SQLException {
+        for (int i = 0; i < readers.length; i++) {
+            readers[i].read(rs, i + 1, data.getVector(i));
+        }
+        data.commitRow();
+    }
+}
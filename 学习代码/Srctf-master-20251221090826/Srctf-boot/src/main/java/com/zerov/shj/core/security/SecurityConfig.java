@@ -62,4 +62,14 @@ public class SecurityConfig {
      * 是否启用关键字过滤
      */
     private boolean enableKeywordFiltering = true;
+
+    /**
+     * 验证方式：lexer（词法检查）、ast（另按方言解析语法树，检查子查询、JOIN、聚合和UNION的开关）
+     */
+    private String validationMode = "lexer";
+
+    /**
+     * 验证结果的缓存数量：语法树验证按去除字面量后的SQL缓存，SQL模板按模板缓存
+     */
+    private int verdictCacheSize = 1024;
 } 
\ No newline at end of file
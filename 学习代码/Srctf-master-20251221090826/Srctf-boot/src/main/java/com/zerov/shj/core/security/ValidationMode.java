@@ -0,0 +1,32 @@
+package com.zerov.shj.core.security;
+
+/**
+ * SQL安全验证方式
+ */
+public enum ValidationMode {
+
+    /**
+     * 按词法记号检查关键字和危险模式
+     */
+    lexer,
+
+    /**
+     * 在词法检查的基础上按数据库方言解析语法树，检查语句类型、子查询、JOIN、聚合和UNION
+     */
+    ast;
+
+    /**
+     * 根据字符串获取验证方式，为空或无法识别时使用默认值
+     */
+    public static ValidationMode fromString(String mode, ValidationMode defaultMode) {
+        if (mode != null) {
+            String lowerMode = mode.toLowerCase().trim();
+            for (ValidationMode validationMode : values()) {
+                if (validationMode.name().equals(lowerMode)) {
+                    return validationMode;
+                }
+            }
+        }
+        return defaultMode;
+    }
+}
@@ -0,0 +1,148 @@
+package com.zerov.shj.core.sql;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 关键字自动机
+ * 按Aho-Corasick构造完整的状态转移表，不区分大小写（仅ASCII），
+ * 匹配时逐字符查表，不创建字符串
+ *
+ * @param <T> 关键字对应的值
+ */
+public class KeywordAutomaton<T> {
+
+    private static final int ALPHABET = 128;
+
+    private final int[][] transitions;
+
+    /**
+     * 以该状态结尾的关键字
+     */
+    private final Object[] terminals;
+
+    /**
+     * 以该状态结尾的关键字或其后缀中的关键字
+     */
+    private final Object[] outputs;
+
+    /**
+     * 状态对应的关键字前缀长度
+     */
+    private final int[] depths;
+
+    public KeywordAutomaton(Map<String, T> keywords) {
+        List<int[]> gotos = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        List<Integer> depthList = new ArrayList<>();
+        gotos.add(newRow());
+        values.add(null);
+        depthList.add(0);
+        for (Map.Entry<String, T> entry : keywords.entrySet()) {
+            int state = 0;
+            for (char c : entry.getKey().toCharArray()) {
+                int symbol = upper(c);
+                if (symbol >= ALPHABET) {
+                    throw new IllegalArgumentException("关键字只能包含ASCII字符: " + entry.getKey());
+                }
+                if (gotos.get(state)[symbol] < 0) {
+                    gotos.get(state)[symbol] = gotos.size();
+                    gotos.add(newRow());
+                    values.add(null);
+                    depthList.add(depthList.get(state) + 1);
+                }
+                state = gotos.get(state)[symbol];
+            }
+            values.set(state, entry.getValue());
+        }
+
+        int size = gotos.size();
+        transitions = gotos.toArray(new int[size][]);
+        terminals = values.toArray();
+        outputs = values.toArray();
+        depths = new int[size];
+        for (int i = 0; i < size; i++) {
+            depths[i] = depthList.get(i);
+        }
+        // 按广度优先补全转移表，缺失的转移取失败状态的转移
+        int[] fail = new int[size];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < ALPHABET; symbol++) {
+            int child = transitions[0][symbol];
+            if (child < 0) {
+                transitions[0][symbol] = 0;
+            } else {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            if (outputs[state] == null) {
+                outputs[state] = outputs[fail[state]];
+            }
+            for (int symbol = 0; symbol < ALPHABET; symbol++) {
+                int child = transitions[state][symbol];
+                if (child < 0) {
+                    transitions[state][symbol] = transitions[fail[state]][symbol];
+                } else {
+                    fail[child] = transitions[fail[state]][symbol];
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    private static int[] newRow() {
+        int[] row = new int[ALPHABET];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static int upper(char c) {
+        return c >= 'a' && c <= 'z' ? c - 32 : c;
+    }
+
+    /**
+     * 文本的指定区间是否恰好是一个关键字
+     *
+     * @return 关键字对应的值，不是关键字时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public T match(CharSequence text, int start, int end) {
+        int state = 0;
+        for (int i = start; i < end; i++) {
+            int symbol = upper(text.charAt(i));
+            if (symbol >= ALPHABET) {
+                return null;
+            }
+            state = transitions[state][symbol];
+            // 回退到了更短的前缀，说明不是从区间开头匹配的关键字
+            if (depths[state] != i - start + 1) {
+                return null;
+            }
+        }
+        return (T) terminals[state];
+    }
+
+    /**
+     * 查找文本的指定区间中出现的第一个关键字
+     *
+     * @return 关键字对应的值，没有关键字时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public T find(CharSequence text, int start, int end) {
+        int state = 0;
+        for (int i = start; i < end; i++) {
+            int symbol = upper(text.charAt(i));
+            state = symbol >= ALPHABET ? 0 : transitions[state][symbol];
+            if (outputs[state] != null) {
+                return (T) outputs[state];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,40 @@
+package com.zerov.shj.core.sql;
+
+import com.alibaba.druid.DbType;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 规范化后的SQL
+ * 规范形式用于识别相同的查询（如缓存键），指纹另外去除了字面量，用于识别相同结构的查询（如验证结果缓存）
+ */
+@Data
+public final class NormalizedSql {
+
+    /**
+     * 原始SQL
+     */
+    private final String sql;
+
+    /**
+     * 方言，未知时为空
+     */
+    private final DbType dbType;
+
+    /**
+     * 规范形式：标识符不区分大小写的方言中去掉注释和末尾分号，合并空白，关键字和标识符大写；
+     * 其他方言（列名取表达式原文）只去掉首尾空白和末尾分号
+     */
+    private final String canonical;
+
+    /**
+     * 指纹：去掉注释和末尾分号，合并空白，关键字大写（标识符不区分大小写的方言中标识符也大写），字符串和数字替换为?
+     */
+    private final String fingerprint;
+
+    /**
+     * 按出现顺序提取的字面量原文，字符串带引号
+     */
+    private final List<String> literals;
+}
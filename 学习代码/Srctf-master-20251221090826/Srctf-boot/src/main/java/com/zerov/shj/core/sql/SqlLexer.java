@@ -0,0 +1,466 @@
+package com.zerov.shj.core.sql;
+
+import com.alibaba.druid.DbType;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * SQL词法分析器
+ * 单遍扫描，记号以起止位置表示，不复制文本；识别字符串、带引号的标识符和注释，
+ * 其中的内容不会被当作关键字
+ * <p>
+ * 注释和引号的写法按方言切分，与数据库一致：MySQL的--后须跟空白才是注释且#开始注释，
+ * 其他数据库的--总是注释；PostgreSQL和H2的$tag$开始字符串，H2的//开始注释，Oracle支持q'[...]'。
+ * 方言未知时，写法在不同数据库中含义不同的记号（--后无空白、#、//、开头的$、q'以及内容可疑的反引号、方括号）
+ * 标记为有歧义；字符串中反斜杠后跟引号时在任何方言下都标记为有歧义
+ */
+public class SqlLexer {
+
+    /**
+     * 记号类型
+     */
+    public enum TokenType {
+        /**
+         * 关键字或标识符
+         */
+        WORD,
+        /**
+         * 带引号的标识符：双引号、反引号或方括号
+         */
+        QUOTED,
+        /**
+         * 字符串：单引号、PostgreSQL的$tag$或Oracle的q'[...]'
+         */
+        STRING,
+        NUMBER,
+        /**
+         * 单个符号字符
+         */
+        SYMBOL,
+        COMMENT,
+        EOF
+    }
+
+    /**
+     * --后须跟空白才是注释、#开始注释、反引号为标识符引号的方言
+     */
+    private static final Set<DbType> MYSQL_DIALECTS = EnumSet.of(
+            DbType.mysql, DbType.mariadb, DbType.tidb, DbType.oceanbase, DbType.drds, DbType.ads, DbType.starrocks);
+
+    /**
+     * #开始注释的方言
+     */
+    private static final Set<DbType> HASH_COMMENT_DIALECTS = EnumSet.of(
+            DbType.mysql, DbType.mariadb, DbType.tidb, DbType.oceanbase, DbType.drds, DbType.ads, DbType.starrocks,
+            DbType.clickhouse);
+
+    /**
+     * 反引号为标识符引号的方言
+     */
+    private static final Set<DbType> BACKTICK_DIALECTS = EnumSet.of(
+            DbType.mysql, DbType.mariadb, DbType.tidb, DbType.oceanbase, DbType.drds, DbType.ads, DbType.starrocks,
+            DbType.clickhouse, DbType.hive, DbType.odps);
+
+    /**
+     * 方括号为标识符引号的方言
+     */
+    private static final Set<DbType> BRACKET_DIALECTS = EnumSet.of(DbType.sqlserver, DbType.jtds, DbType.sybase);
+
+    /**
+     * $tag$开始字符串的方言
+     */
+    private static final Set<DbType> DOLLAR_QUOTE_DIALECTS = EnumSet.of(
+            DbType.postgresql, DbType.edb, DbType.greenplum, DbType.gaussdb, DbType.highgo, DbType.kingbase, DbType.h2);
+
+    /**
+     * q'[...]'为字符串的方言
+     */
+    private static final Set<DbType> Q_QUOTE_DIALECTS = EnumSet.of(
+            DbType.oracle, DbType.oceanbase_oracle, DbType.ali_oracle);
+
+    /**
+     * 内容中出现时，引号的含义不确定就可能改变后续切分的字符
+     */
+    private static final String SUSPICIOUS_CHARS = "'\"`;\\#$";
+
+    private final String sql;
+    private final int length;
+    private final DbType dbType;
+    private int position;
+
+    private TokenType type;
+    private int start;
+    private int end;
+    private boolean ambiguous;
+    private boolean unterminated;
+    private boolean conditional;
+
+    /**
+     * 按未知方言切分
+     */
+    public SqlLexer(String sql) {
+        this(sql, null);
+    }
+
+    /**
+     * @param dbType 方言，为空时按未知方言切分
+     */
+    public SqlLexer(String sql, DbType dbType) {
+        this.sql = sql;
+        this.length = sql.length();
+        this.dbType = dbType;
+    }
+
+    /**
+     * 读取下一个记号，注释也作为记号返回
+     */
+    public TokenType next() {
+        ambiguous = false;
+        unterminated = false;
+        conditional = false;
+        while (position < length && Character.isWhitespace(sql.charAt(position))) {
+            position++;
+        }
+        start = position;
+        if (position >= length) {
+            end = length;
+            return type = TokenType.EOF;
+        }
+        char c = sql.charAt(position);
+        char next = charAt(position + 1);
+        if (c == '-' && next == '-') {
+            // MySQL中--后须跟空白或控制字符，否则是两个减号
+            boolean spaced = position + 2 >= length || sql.charAt(position + 2) <= ' '
+                    || Character.isWhitespace(sql.charAt(position + 2));
+            if (!spaced && isDialect(MYSQL_DIALECTS)) {
+                return symbol();
+            }
+            ambiguous = !spaced && dbType == null;
+            return lineComment();
+        }
+        if (c == '#') {
+            if (isDialect(HASH_COMMENT_DIALECTS)) {
+                return lineComment();
+            }
+            ambiguous = dbType == null;
+            return symbol();
+        }
+        if (c == '/' && next == '/') {
+            if (dbType == DbType.h2) {
+                return lineComment();
+            }
+            ambiguous = dbType == null;
+            return symbol();
+        }
+        if (c == '/' && next == '*') {
+            // MySQL执行/*! ... */中的内容
+            conditional = charAt(position + 2) == '!';
+            int close = sql.indexOf("*/", position + 2);
+            unterminated = close < 0;
+            position = close < 0 ? length : close + 2;
+            end = position;
+            return type = TokenType.COMMENT;
+        }
+        switch (c) {
+            case '\'':
+                scanQuoted('\'', true);
+                return type = TokenType.STRING;
+            case '"':
+                scanQuoted('"', true);
+                return type = TokenType.QUOTED;
+            case '`':
+                scanQuoted('`', false);
+                checkVariantQuote(BACKTICK_DIALECTS);
+                return type = TokenType.QUOTED;
+            case '[':
+                if (dbType != null && dbType != DbType.h2 && !isDialect(BRACKET_DIALECTS)) {
+                    // 其他数据库中为数组下标
+                    return symbol();
+                }
+                scanQuoted(']', false);
+                checkVariantQuote(BRACKET_DIALECTS);
+                return type = TokenType.QUOTED;
+            case '$':
+                return dollar();
+            default:
+                break;
+        }
+        if (isDigit(c) || (c == '.' && isDigit(next))) {
+            return number();
+        }
+        if (Character.isLetter(c) || c == '_') {
+            position++;
+            while (position < length && isWordPart(sql.charAt(position))) {
+                position++;
+            }
+            // Oracle的q'[...]'和nq'[...]'
+            if (charAt(position) == '\'' && isQuotePrefix()) {
+                if (isDialect(Q_QUOTE_DIALECTS)) {
+                    return qQuote();
+                }
+                ambiguous = dbType == null;
+            }
+            end = position;
+            return type = TokenType.WORD;
+        }
+        return symbol();
+    }
+
+    /**
+     * 读取下一个不是注释的记号
+     */
+    public TokenType nextSignificant() {
+        TokenType tokenType;
+        do {
+            tokenType = next();
+        } while (tokenType == TokenType.COMMENT);
+        return tokenType;
+    }
+
+    private TokenType symbol() {
+        end = ++position;
+        return type = TokenType.SYMBOL;
+    }
+
+    private TokenType lineComment() {
+        while (position < length && sql.charAt(position) != '\n' && sql.charAt(position) != '\r') {
+            position++;
+        }
+        end = position;
+        return type = TokenType.COMMENT;
+    }
+
+    /**
+     * 数字只包含数字、小数点和指数，十六进制以0x开头；其后紧跟的字母另作为单词，如1.union
+     */
+    private TokenType number() {
+        if (sql.charAt(position) == '0' && (charAt(position + 1) == 'x' || charAt(position + 1) == 'X')
+                && isHexDigit(charAt(position + 2))) {
+            position += 2;
+            while (position < length && isHexDigit(sql.charAt(position))) {
+                position++;
+            }
+            end = position;
+            return type = TokenType.NUMBER;
+        }
+        while (position < length && (isDigit(sql.charAt(position)) || sql.charAt(position) == '.')) {
+            position++;
+        }
+        char e = charAt(position);
+        if (e == 'e' || e == 'E') {
+            char sign = charAt(position + 1);
+            int digit = sign == '+' || sign == '-' ? position + 2 : position + 1;
+            if (isDigit(charAt(digit))) {
+                position = digit;
+                while (position < length && isDigit(sql.charAt(position))) {
+                    position++;
+                }
+            }
+        }
+        end = position;
+        return type = TokenType.NUMBER;
+    }
+
+    /**
+     * $开头：PostgreSQL的$tag$字符串或$1参数
+     */
+    private TokenType dollar() {
+        if (!isDialect(DOLLAR_QUOTE_DIALECTS)) {
+            ambiguous = dbType == null;
+            return symbol();
+        }
+        int tagEnd = position + 1;
+        if (tagEnd < length && (Character.isLetter(sql.charAt(tagEnd)) || sql.charAt(tagEnd) == '_')) {
+            while (tagEnd < length && (Character.isLetterOrDigit(sql.charAt(tagEnd)) || sql.charAt(tagEnd) == '_')) {
+                tagEnd++;
+            }
+        }
+        if (charAt(tagEnd) != '$') {
+            return symbol();
+        }
+        String tag = sql.substring(position, tagEnd + 1);
+        int close = sql.indexOf(tag, tagEnd + 1);
+        unterminated = close < 0;
+        position = close < 0 ? length : close + tag.length();
+        end = position;
+        return type = TokenType.STRING;
+    }
+
+    /**
+     * Oracle的q'[...]'，定界符为括号时以对应的右括号结束
+     */
+    private TokenType qQuote() {
+        char open = charAt(position + 1);
+        char close;
+        switch (open) {
+            case '[':
+                close = ']';
+                break;
+            case '{':
+                close = '}';
+                break;
+            case '(':
+                close = ')';
+                break;
+            case '<':
+                close = '>';
+                break;
+            default:
+                close = open;
+                break;
+        }
+        int found = open == 0 || Character.isWhitespace(open) ? -1 : sql.indexOf(close + "'", position + 2);
+        unterminated = found < 0;
+        position = found < 0 ? length : found + 2;
+        end = position;
+        return type = TokenType.STRING;
+    }
+
+    private boolean isQuotePrefix() {
+        int wordLength = position - start;
+        return (wordLength == 1 && (sql.charAt(start) == 'q' || sql.charAt(start) == 'Q'))
+                || (wordLength == 2 && (sql.charAt(start) == 'n' || sql.charAt(start) == 'N')
+                && (sql.charAt(start + 1) == 'q' || sql.charAt(start + 1) == 'Q'));
+    }
+
+    /**
+     * 反引号和方括号只在部分方言中是引号，其他方言中内容可能改变后续的切分，内容可疑时标记为有歧义
+     */
+    private void checkVariantQuote(Set<DbType> dialects) {
+        if (isDialect(dialects)) {
+            return;
+        }
+        for (int i = start + 1; i < end - 1; i++) {
+            char ch = sql.charAt(i);
+            if (SUSPICIOUS_CHARS.indexOf(ch) >= 0 || (ch == '-' && sql.charAt(i + 1) == '-')
+                    || (ch == '/' && (sql.charAt(i + 1) == '*' || sql.charAt(i + 1) == '/'))) {
+                ambiguous = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 扫描到闭合引号，连续两个闭合引号表示引号本身
+     *
+     * @param backslash 反斜杠后跟引号时，支持反斜杠转义的数据库（MySQL）与其他数据库对字符串的结束位置理解不同
+     */
+    private void scanQuoted(char close, boolean backslash) {
+        position = start + 1;
+        while (position < length) {
+            char ch = sql.charAt(position++);
+            if (ch == close) {
+                if (position < length && sql.charAt(position) == close) {
+                    position++;
+                    continue;
+                }
+                end = position;
+                return;
+            }
+            if (backslash && ch == '\\' && position < length && sql.charAt(position) == close) {
+                ambiguous = true;
+            }
+        }
+        unterminated = true;
+        end = length;
+    }
+
+    private boolean isDialect(Set<DbType> dialects) {
+        return dbType != null && dialects.contains(dbType);
+    }
+
+    private char charAt(int index) {
+        return index < length ? sql.charAt(index) : 0;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    public TokenType getType() {
+        return type;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * 当前记号的文本，会复制字符串
+     */
+    public String getText() {
+        return sql.substring(start, end);
+    }
+
+    /**
+     * 符号记号的字符
+     */
+    public char getChar() {
+        return sql.charAt(start);
+    }
+
+    /**
+     * 当前记号是否为指定的单词，不区分大小写
+     */
+    public boolean is(String word) {
+        return type == TokenType.WORD && end - start == word.length()
+                && sql.regionMatches(true, start, word, 0, word.length());
+    }
+
+    /**
+     * 当前记号是否以指定前缀开头，不区分大小写
+     */
+    public boolean startsWith(String prefix) {
+        return end - start >= prefix.length() && sql.regionMatches(true, start, prefix, 0, prefix.length());
+    }
+
+    /**
+     * 当前记号在不同数据库中的切分是否可能不同，如反斜杠转义、未知方言中的#和--x
+     */
+    public boolean isAmbiguous() {
+        return ambiguous;
+    }
+
+    /**
+     * 字符串、带引号的标识符或注释是否未闭合
+     */
+    public boolean isUnterminated() {
+        return unterminated;
+    }
+
+    /**
+     * 是否为MySQL会执行其内容的/*!注释
+     */
+    public boolean isConditionalComment() {
+        return conditional;
+    }
+
+    /**
+     * 当前扫描位置，与reset配合用于向前查看记号
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    public void reset(int position) {
+        this.position = position;
+        this.type = null;
+    }
+}
@@ -0,0 +1,169 @@
+package com.zerov.shj.core.sql;
+
+import com.alibaba.druid.DbType;
+import com.alibaba.druid.util.JdbcUtils;
+import com.zerov.shj.core.config.DatabaseConfig;
+import com.zerov.shj.core.config.DatabaseType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SQL规范化
+ * 按方言生成规范形式、去除字面量的指纹和字面量列表，每个请求计算一次，安全验证和查询引擎共用
+ * <p>
+ * 记号之间只在原文有空白且两侧都是单词类记号（或都是可能连成其他运算符的符号，如- -）时保留一个空格，
+ * 因此仅空白、注释或关键字大小写不同的查询指纹相同
+ * <p>
+ * 规范形式用作查询键，相同规范形式的查询共享结果，列名也必须相同。MySQL、ClickHouse等方言以表达式原文
+ * 作为未设置别名的列名（count(*)与COUNT(*)的列名不同），因此标识符区分大小写的方言和未知方言的规范形式
+ * 只去掉首尾空白和末尾分号，保留原文的大小写、空白和注释
+ */
+public final class SqlNormalizer {
+
+    /**
+     * 未加引号的标识符不区分大小写的方言；MySQL的表名、ClickHouse的标识符、SQL Server的列别名区分大小写
+     */
+    private static final Set<DbType> CASE_INSENSITIVE_DIALECTS = EnumSet.of(
+            DbType.postgresql, DbType.oracle, DbType.dm, DbType.h2);
+
+    /**
+     * 各数据库均不区分大小写的关键字
+     */
+    private static final KeywordAutomaton<Boolean> KEYWORDS;
+
+    static {
+        Map<String, Boolean> keywords = new HashMap<>();
+        for (String keyword : Arrays.asList(
+                "SELECT", "FROM", "WHERE", "AND", "OR", "NOT", "IN", "IS", "NULL", "LIKE", "BETWEEN", "EXISTS",
+                "ORDER", "BY", "GROUP", "HAVING", "LIMIT", "OFFSET", "AS", "DISTINCT", "ALL", "ANY", "SOME",
+                "UNION", "INTERSECT", "EXCEPT", "MINUS", "CASE", "WHEN", "THEN", "ELSE", "END",
+                "JOIN", "LEFT", "RIGHT", "FULL", "INNER", "OUTER", "CROSS", "NATURAL", "ON", "USING",
+                "ASC", "DESC", "NULLS", "TOP", "FETCH", "FIRST", "LAST", "NEXT", "ROW", "ROWS", "ONLY",
+                "WITH", "OVER", "PARTITION", "TRUE", "FALSE", "ESCAPE", "INTERVAL", "CAST",
+                "COUNT", "SUM", "AVG", "MAX", "MIN")) {
+            keywords.put(keyword, Boolean.TRUE);
+        }
+        KEYWORDS = new KeywordAutomaton<>(keywords);
+    }
+
+    /**
+     * 相邻时可能连成其他运算符或注释的符号
+     */
+    private static final String OPERATOR_CHARS = "+-*/<>=!|&^%~:@#?";
+
+    private SqlNormalizer() {
+    }
+
+    /**
+     * 按数据库类型确定方言，未设置类型时按JDBC URL识别
+     *
+     * @return 方言，无法识别时返回null
+     */
+    public static DbType dialectOf(DatabaseConfig config) {
+        if (config == null) {
+            return null;
+        }
+        DatabaseType type = DatabaseType.fromString(config.getType());
+        if (type != null) {
+            switch (type) {
+                case mysql:
+                    return DbType.mysql;
+                case mariadb:
+                    return DbType.mariadb;
+                case pg:
+                    return DbType.postgresql;
+                case oracle:
+                    return DbType.oracle;
+                case sqlserver:
+                    return DbType.sqlserver;
+                case ck:
+                    return DbType.clickhouse;
+                case dm:
+                    return DbType.dm;
+                default:
+                    break;
+            }
+        }
+        return config.getUrl() == null ? null : JdbcUtils.getDbTypeRaw(config.getUrl(), config.getDriverClassName());
+    }
+
+    /**
+     * 规范化SQL
+     *
+     * @param sql    原始SQL
+     * @param dbType 方言，为空时指纹只将关键字大写，规范形式保留原文
+     * @return 规范化结果
+     */
+    public static NormalizedSql normalize(String sql, DbType dbType) {
+        String text = sql == null ? "" : sql;
+        boolean foldIdentifiers = dbType != null && CASE_INSENSITIVE_DIALECTS.contains(dbType);
+        // MySQL默认将双引号作为字符串
+        boolean doubleQuotedStrings = dbType == DbType.mysql || dbType == DbType.mariadb;
+        StringBuilder canonical = new StringBuilder(text.length());
+        StringBuilder fingerprint = new StringBuilder(text.length());
+        List<String> literals = new ArrayList<>();
+
+        SqlLexer lexer = new SqlLexer(text, dbType);
+        SqlLexer.TokenType type;
+        boolean first = true;
+        boolean previousWord = false;
+        boolean previousOperator = false;
+        int previousEnd = 0;
+        while ((type = lexer.next()) != SqlLexer.TokenType.EOF) {
+            // 注释不影响结果，MySQL会执行其内容的/*!注释除外
+            if (type == SqlLexer.TokenType.COMMENT && !lexer.isConditionalComment()) {
+                continue;
+            }
+            int start = lexer.getStart();
+            int end = lexer.getEnd();
+            boolean word = type != SqlLexer.TokenType.SYMBOL;
+            boolean operator = !word && OPERATOR_CHARS.indexOf(lexer.getChar()) >= 0;
+            if (!first && start > previousEnd && ((word && previousWord) || (operator && previousOperator))) {
+                canonical.append(' ');
+                fingerprint.append(' ');
+            }
+            if (type == SqlLexer.TokenType.STRING || type == SqlLexer.TokenType.NUMBER
+                    || (type == SqlLexer.TokenType.QUOTED && doubleQuotedStrings && text.charAt(start) == '"')) {
+                canonical.append(text, start, end);
+                fingerprint.append('?');
+                literals.add(text.substring(start, end));
+            } else if (type == SqlLexer.TokenType.WORD && (foldIdentifiers || KEYWORDS.match(text, start, end) != null)) {
+                for (int i = start; i < end; i++) {
+                    char c = Character.toUpperCase(text.charAt(i));
+                    canonical.append(c);
+                    fingerprint.append(c);
+                }
+            } else {
+                canonical.append(text, start, end);
+                fingerprint.append(text, start, end);
+            }
+            first = false;
+            previousWord = word;
+            previousOperator = operator;
+            previousEnd = end;
+        }
+        if (!foldIdentifiers) {
+            canonical.setLength(0);
+            canonical.append(text.trim());
+        }
+        trimStatementEnd(canonical);
+        trimStatementEnd(fingerprint);
+        return new NormalizedSql(sql, dbType, canonical.toString(), fingerprint.toString(), literals);
+    }
+
+    /**
+     * 去掉末尾的分号和空白
+     */
+    private static void trimStatementEnd(StringBuilder builder) {
+        while (builder.length() > 0
+                && (builder.charAt(builder.length() - 1) == ';' || Character.isWhitespace(builder.charAt(builder.length() - 1)))) {
+            builder.setLength(builder.length() - 1);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.zerov.shj.core.sql;
+
+import com.alibaba.druid.DbType;
+import com.zerov.shj.common.exception.DatasourceException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带命名参数的SQL模板
+ * 模板中的:name替换为?占位符，参数值按PreparedStatement绑定，不拼接到SQL中；
+ * 字符串、带引号的标识符和注释中的:name不是参数，::（PostgreSQL类型转换）和:=不是参数
+ * <p>
+ * 参数值为集合时展开为多个占位符，用于IN条件，空集合替换为NULL
+ */
+public final class SqlTemplate {
+
+    /**
+     * 模板原文
+     */
+    private final String template;
+
+    /**
+     * 参数替换为?后的SQL
+     */
+    private final String sql;
+
+    /**
+     * 按出现顺序的参数名，同一参数出现多次时重复
+     */
+    private final List<String> names;
+
+    /**
+     * 各占位符在sql中的位置
+     */
+    private final int[] positions;
+
+    /**
+     * 规范化后的SQL，安全验证和查询键使用
+     */
+    private final NormalizedSql normalizedSql;
+
+    private SqlTemplate(String template, String sql, List<String> names, int[] positions, DbType dbType) {
+        this.template = template;
+        this.sql = sql;
+        this.names = Collections.unmodifiableList(names);
+        this.positions = positions;
+        this.normalizedSql = SqlNormalizer.normalize(sql, dbType);
+    }
+
+    /**
+     * 解析模板
+     *
+     * @param template 模板原文
+     * @param dbType   方言，未知时为空
+     * @return 解析后的模板
+     */
+    public static SqlTemplate compile(String template, DbType dbType) {
+        if (template == null || template.trim().isEmpty()) {
+            DatasourceException.throwException("SQL语句不能为空");
+        }
+        StringBuilder sql = new StringBuilder(template.length());
+        List<String> names = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        SqlLexer lexer = new SqlLexer(template, dbType);
+        int copied = 0;
+        int previousEnd = -1;
+        char previous = 0;
+        while (lexer.next() != SqlLexer.TokenType.EOF) {
+            if (lexer.getType() != SqlLexer.TokenType.SYMBOL) {
+                previous = 0;
+                continue;
+            }
+            char c = lexer.getChar();
+            int end = lexer.getEnd();
+            if (c == '?') {
+                DatasourceException.throwException("SQL模板中不能使用?占位符，请使用:参数名");
+            }
+            // 紧跟在:后的单词为参数名，::中的两个:都不作为参数前缀
+            boolean afterColon = previous == ':' && previousEnd == lexer.getStart();
+            previous = c;
+            previousEnd = end;
+            if (c != ':' || afterColon || end >= template.length() || !isNameStart(template.charAt(end))) {
+                continue;
+            }
+            int position = lexer.getPosition();
+            if (lexer.next() != SqlLexer.TokenType.WORD || lexer.getStart() != end) {
+                lexer.reset(position);
+                continue;
+            }
+            sql.append(template, copied, lexer.getStart() - 1);
+            positions.add(sql.length());
+            sql.append('?');
+            names.add(lexer.getText());
+            copied = lexer.getEnd();
+            previous = 0;
+        }
+        sql.append(template, copied, template.length());
+        int[] positionArray = new int[positions.size()];
+        for (int i = 0; i < positionArray.length; i++) {
+            positionArray[i] = positions.get(i);
+        }
+        return new SqlTemplate(template, sql.toString(), names, positionArray, dbType);
+    }
+
+    private static boolean isNameStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    /**
+     * 按占位符顺序取参数值，集合保持原样，用于识别相同的查询
+     *
+     * @param values 参数名到参数值的映射
+     * @return 各占位符的参数值
+     */
+    public List<Object> getValues(Map<String, Object> values) {
+        List<Object> result = new ArrayList<>(names.size());
+        for (String name : names) {
+            if (values == null || !values.containsKey(name)) {
+                DatasourceException.throwException("缺少SQL模板参数: " + name);
+            }
+            result.add(values.get(name));
+        }
+        return result;
+    }
+
+    /**
+     * 绑定参数值，集合展开为多个占位符
+     *
+     * @param values 参数名到参数值的映射
+     * @param params 按占位符顺序追加的绑定值
+     * @return 可执行的SQL，参数值中没有集合时与getSql()相同
+     */
+    public String bind(Map<String, Object> values, List<Object> params) {
+        List<Object> ordered = getValues(values);
+        StringBuilder expanded = null;
+        int copied = 0;
+        for (int i = 0; i < ordered.size(); i++) {
+            Object value = ordered.get(i);
+            if (!(value instanceof Collection)) {
+                params.add(value);
+                continue;
+            }
+            Collection<?> items = (Collection<?>) value;
+            if (expanded == null) {
+                expanded = new StringBuilder(sql.length() + items.size() * 3);
+            }
+            expanded.append(sql, copied, positions[i]);
+            copied = positions[i] + 1;
+            if (items.isEmpty()) {
+                expanded.append("NULL");
+                continue;
+            }
+            for (int j = 0; j < items.size(); j++) {
+                expanded.append(j == 0 ? "?" : ", ?");
+            }
+            params.addAll(items);
+        }
+        if (expanded == null) {
+            return sql;
+        }
+        return expanded.append(sql, copied, sql.length()).toString();
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public NormalizedSql getNormalizedSql() {
+        return normalizedSql;
+    }
+}
@@ -0,0 +1,40 @@
+package com.zerov.shj.core.subscription;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 数据源订阅配置类
+ * 订阅的数据源由服务端按更新间隔统一查询并推送给所有订阅者
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "query.subscription")
+public class SubscriptionConfig {
+
+    /**
+     * 最多登记的数据源数
+     */
+    private int maxSources = 500;
+
+    /**
+     * 最小更新间隔(毫秒)，autoUpdateTime小于该值时按该值查询
+     */
+    private long minInterval = 1000;
+
+    /**
+     * 推送线程数
+     */
+    private int threads = 2;
+
+    /**
+     * SSE连接的超时时间(毫秒)，超时后客户端自动重连
+     */
+    private long sseTimeout = 1800000;
+
+    /**
+     * 没有订阅者的数据源保留多久(毫秒)后移除
+     */
+    private long idleTimeout = 60000;
+}
@@ -0,0 +1,245 @@
+package com.zerov.shj.model.controller;
+
+import com.zerov.shj.common.entity.R;
+import com.zerov.shj.common.exception.DatasourceException;
+import com.zerov.shj.core.model.CacheStatus;
+import com.zerov.shj.core.model.MemoryStatus;
+import com.zerov.shj.core.model.QueryRequest;
+import com.zerov.shj.core.model.QueryResult;
+import com.zerov.shj.core.output.ArrowResultWriter;
+import com.zerov.shj.core.output.CsvResultWriter;
+import com.zerov.shj.core.output.ExcelResultWriter;
+import com.zerov.shj.core.output.JsonResultWriter;
+import com.zerov.shj.core.output.ResultWriter;
+import com.zerov.shj.model.service.IShjApiService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Enumeration;
+
+/**
+ * 数据查询接口
+ */
+@Slf4j
+@RestController
+@RequestMapping("/shj/api")
+public class ShjApiController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private IShjApiService shjApiService;
+
+    /**
+     * 执行数据库查询，响应带ETag，If-None-Match与结果的标签相同时返回304
+     */
+    @PostMapping("/executeQuery")
+    public R<Object> executeQuery(@RequestBody QueryRequest request, HttpServletRequest httpRequest,
+                                  HttpServletResponse response) {
+        Object result = shjApiService.executeQuery(request, etag -> checkNotModified(etag, httpRequest, response));
+        return isNotModified(response) ? null : R.success(result);
+    }
+
+    /**
+     * 执行数据库查询，Accept为application/vnd.apache.arrow.stream时以Arrow IPC流输出
+     * Accept中同时包含application/json时，查询失败可返回JSON格式的错误信息
+     */
+    @PostMapping(value = "/executeQuery", produces = ArrowResultWriter.CONTENT_TYPE)
+    public void executeQueryArrow(@RequestBody QueryRequest request, HttpServletResponse response) throws Exception {
+        response.setContentType(ArrowResultWriter.CONTENT_TYPE);
+        try (ResultWriter writer = new ArrowResultWriter(response.getOutputStream())) {
+            shjApiService.streamQuery(request, writer);
+        }
+    }
+
+    /**
+     * 流式执行数据库查询
+     * format=json（默认）输出分块的JSON数组，format=ndjson或Accept为application/x-ndjson时每行一个JSON对象，
+     * format=arrow或Accept为application/vnd.apache.arrow.stream时输出Arrow IPC流
+     */
+    @PostMapping("/executeQuery/stream")
+    public void streamQuery(@RequestBody QueryRequest request,
+                            @RequestParam(value = "format", required = false) String format,
+                            @RequestHeader(value = "Accept", required = false) String accept,
+                            HttpServletResponse response) throws Exception {
+        try (ResultWriter writer = createWriter(format, accept, response)) {
+            shjApiService.streamQuery(request, writer);
+        }
+    }
+
+    /**
+     * 导出查询结果为文件，format=csv（默认）或xlsx
+     * 从结果集逐批写出，不受最大返回行数限制，使用导出的行数上限和并发数
+     */
+    @PostMapping("/export")
+    public void export(@RequestBody QueryRequest request,
+                       @RequestParam(value = "format", required = false) String format,
+                       HttpServletResponse response) throws Exception {
+        boolean xlsx = "xlsx".equalsIgnoreCase(format);
+        if (!xlsx && format != null && !"csv".equalsIgnoreCase(format)) {
+            DatasourceException.throwException("不支持的导出格式: " + format);
+        }
+        response.setContentType(xlsx ? ExcelResultWriter.CONTENT_TYPE : CsvResultWriter.CONTENT_TYPE);
+        response.setHeader("Content-Disposition", "attachment; filename=export." + (xlsx ? "xlsx" : "csv"));
+        try (ResultWriter writer = xlsx ? new ExcelResultWriter(response.getOutputStream())
+                : new CsvResultWriter(response.getOutputStream())) {
+            shjApiService.exportQuery(request, writer);
+        } catch (Exception e) {
+            // 尚未输出内容时清除附件响应头，错误信息按JSON返回
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 登记订阅的数据源，请求须设置autoUpdateTime，相同的查询返回相同的数据源标识
+     */
+    @PostMapping("/source")
+    public R<String> registerSource(@RequestBody QueryRequest request) {
+        return R.success(shjApiService.registerSource(request));
+    }
+
+    /**
+     * 订阅数据源，服务端按更新间隔查询一次并以SSE推送给所有订阅者，
+     * update事件的数据与executeQuery的响应相同，结果不变时不推送
+     */
+    @GetMapping(value = "/source/{sourceId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@PathVariable("sourceId") String sourceId) {
+        return shjApiService.subscribe(sourceId);
+    }
+
+    /**
+     * 测试数据库连接
+     */
+    @PostMapping("/testConnection")
+    public R<QueryResult> testConnection(@RequestBody QueryRequest request) {
+        return R.success(shjApiService.testConnection(request));
+    }
+
+    /**
+     * 解析文件数据源，响应带ETag和Last-Modified，文件未修改时返回304
+     */
+    @GetMapping("/parseFile")
+    public R<Object> parseFile(@RequestParam("fileName") String fileName, WebRequest webRequest,
+                               HttpServletResponse response) throws Exception {
+        checkFileName(fileName);
+        Object result = shjApiService.parseFile(fileName, webRequest::checkNotModified);
+        return isNotModified(response) ? null : R.success(result);
+    }
+
+    /**
+     * 解析文件数据源，Accept为application/vnd.apache.arrow.stream时以Arrow IPC流输出
+     * Excel文件按sheetName输出对应工作表，为空时输出第一个工作表
+     */
+    @GetMapping(value = "/parseFile", produces = ArrowResultWriter.CONTENT_TYPE)
+    public void parseFileArrow(@RequestParam("fileName") String fileName,
+                               @RequestParam(value = "sheetName", required = false) String sheetName,
+                               HttpServletResponse response) throws Exception {
+        checkFileName(fileName);
+        response.setContentType(ArrowResultWriter.CONTENT_TYPE);
+        try (ResultWriter writer = new ArrowResultWriter(response.getOutputStream())) {
+            shjApiService.writeFile(fileName, sheetName, writer);
+        }
+    }
+
+    /**
+     * 按句柄获取大字段的完整值，二进制以application/octet-stream输出，文本以UTF-8输出
+     */
+    @GetMapping("/lob/{token}")
+    public void getLob(@PathVariable("token") String token, HttpServletResponse response) throws Exception {
+        shjApiService.writeLob(token, binary -> {
+            response.setContentType(binary ? "application/octet-stream" : "text/plain;charset=UTF-8");
+            return response.getOutputStream();
+        });
+    }
+
+    /**
+     * 查看内存预算和各请求的内存占用
+     */
+    @GetMapping("/memory")
+    public R<MemoryStatus> memory() {
+        return R.success(shjApiService.getMemoryStatus());
+    }
+
+    /**
+     * 查看查询结果缓存的大小和命中率
+     */
+    @GetMapping("/cache")
+    public R<CacheStatus> cache() {
+        return R.success(shjApiService.getCacheStatus());
+    }
+
+    /**
+     * 按format参数或Accept请求头选择输出格式
+     */
+    private ResultWriter createWriter(String format, String accept, HttpServletResponse response) throws IOException {
+        if ("arrow".equalsIgnoreCase(format) || (format == null && accept != null && accept.contains(ArrowResultWriter.CONTENT_TYPE))) {
+            response.setContentType(ArrowResultWriter.CONTENT_TYPE);
+            return new ArrowResultWriter(response.getOutputStream());
+        }
+        boolean ndjson = "ndjson".equalsIgnoreCase(format) || (format == null && accept != null && accept.contains(NDJSON));
+        response.setContentType((ndjson ? NDJSON : "application/json") + ";charset=UTF-8");
+        return new JsonResultWriter(response.getOutputStream(), ndjson);
+    }
+
+    /**
+     * 设置ETag，If-None-Match中有相同的标签时返回304
+     * POST请求的条件匹配时WebRequest.checkNotModified返回412，查询接口按304处理
+     */
+    private boolean checkNotModified(String etag, HttpServletRequest request, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        String tag = stripWeak(etag);
+        Enumeration<String> values = request.getHeaders(HttpHeaders.IF_NONE_MATCH);
+        while (values.hasMoreElements()) {
+            for (String value : values.nextElement().split(",")) {
+                value = value.trim();
+                if ("*".equals(value) || tag.equals(stripWeak(value))) {
+                    response.setStatus(HttpStatus.NOT_MODIFIED.value());
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否已按304响应，此时不输出响应体；失败的查询结果也可能为空，不能按返回值判断
+     */
+    private static boolean isNotModified(HttpServletResponse response) {
+        return response.getStatus() == HttpStatus.NOT_MODIFIED.value();
+    }
+
+    /**
+     * If-None-Match按弱比较，忽略W/前缀
+     */
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * 只允许读取file目录下的文件
+     */
+    private void checkFileName(String fileName) {
+        if (fileName.contains("..") || fileName.contains("/") || fileName.contains("\\")) {
+            DatasourceException.throwException("非法的文件名: " + fileName);
+        }
+    }
+}
@@ -1,17 +1,30 @@
 package com.zerov.shj.model.service.impl;
 
 import com.zerov.shj.core.DataQueryEngine;
+import com.zerov.shj.common.exception.DatasourceException;
 import com.zerov.shj.core.FileParseEngine;
+import com.zerov.shj.core.cache.ParsedFileCache;
+import com.zerov.shj.core.cache.QueryResultCache;
+import com.zerov.shj.core.etag.ETagGenerator;
+import com.zerov.shj.core.lob.LobOutput;
+import com.zerov.shj.core.memory.MemoryGovernor;
+import com.zerov.shj.core.model.CacheStatus;
+import com.zerov.shj.core.model.ColumnarData;
+import com.zerov.shj.core.model.MemoryStatus;
 import com.zerov.shj.core.model.QueryRequest;
 import com.zerov.shj.core.model.QueryResult;
+import com.zerov.shj.core.model.ValueMode;
+import com.zerov.shj.core.output.ResultWriter;
+import com.zerov.shj.core.subscription.SubscriptionHub;
 import com.zerov.shj.model.service.IShjApiService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.InputStream;
-import java.sql.Connection;
-import java.sql.DriverManager;
+import java.net.URL;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 
 /**
  * 数据查询服务实现类
@@ -24,9 +37,24 @@ public class ShjApiServiceImpl implements IShjApiService {
     private DataQueryEngine dataQueryEngine;
     @Autowired
     private FileParseEngine fileParseEngine;
+    @Autowired
+    private MemoryGovernor memoryGovernor;
+    @Autowired
+    private QueryResultCache queryResultCache;
+    @Autowired
+    private SubscriptionHub subscriptionHub;
+    @Autowired
+    private ETagGenerator eTagGenerator;
+    @Autowired
+    private ParsedFileCache parsedFileCache;
 
     @Override
     public Object executeQuery(QueryRequest request) {
+        return executeQuery(request, null);
+    }
+
+    @Override
+    public Object executeQuery(QueryRequest request, Predicate<String> notModified) {
         long startTime = System.currentTimeMillis();
 
         try {
@@ -37,7 +65,18 @@ public class ShjApiServiceImpl implements IShjApiService {
                 result.setTotalRows(result.getData().size());
             }
 
-            return result.getData();
+            // typed模式返回完整结果，客户端按列结构解析原生类型的值；分页查询返回完整结果以携带下一页令牌，
+            // 增量请求返回完整结果以携带版本号
+            boolean full = ValueMode.fromString(request.getValueMode()) == ValueMode.typed || request.isPaged()
+                    || request.getSinceVersion() != null;
+            // 标签与客户端已有的相同时不再返回结果，省去序列化和传输
+            if (notModified != null) {
+                String etag = eTagGenerator.forResult(result, full);
+                if (etag != null && notModified.test(etag)) {
+                    return null;
+                }
+            }
+            return full ? result : result.getData();
 
         } catch (Exception e) {
             log.error("查询执行失败", e);
@@ -49,34 +88,96 @@ public class ShjApiServiceImpl implements IShjApiService {
         }
     }
 
+    @Override
+    public long streamQuery(QueryRequest request, ResultWriter writer) throws Exception {
+        long startTime = System.currentTimeMillis();
+        long rowCount = dataQueryEngine.streamQuery(request, writer);
+        log.info("流式查询完成: {} 行, 耗时 {} ms", rowCount, System.currentTimeMillis() - startTime);
+        return rowCount;
+    }
+
+    @Override
+    public long exportQuery(QueryRequest request, ResultWriter writer) throws Exception {
+        long startTime = System.currentTimeMillis();
+        long rowCount = dataQueryEngine.exportQuery(request, writer);
+        log.info("导出完成: {} 行, 耗时 {} ms", rowCount, System.currentTimeMillis() - startTime);
+        return rowCount;
+    }
+
     @Override
     public QueryResult testConnection(QueryRequest request) {
         QueryResult result = new QueryResult();
+        // 与查询相同，驱动从驱动目录获取，drivers目录中的驱动未注册到DriverManager
+        DataQueryEngine.ConnectionTestResult test = dataQueryEngine.testConnection(request.getConfig());
+        result.setSuccess(test.isSuccess());
+        result.setMessage(test.getMessage());
+        return result;
+    }
 
-        try (Connection connection = DriverManager.getConnection(
-                request.getConfig().getUrl(),
-                request.getConfig().getUsername(),
-                request.getConfig().getPassword())) {
 
-            result.setSuccess(true);
-            result.setMessage("数据库连接成功");
+    @Override
+    public Object parseFile(String fileName) throws Exception {
+        return parseFile(fileName, null);
+    }
 
-        } catch (Exception e) {
-            log.error("数据库连接失败", e);
-            result.setSuccess(false);
-            result.setMessage("数据库连接失败: " + e.getMessage());
+    @Override
+    public Object parseFile(String fileName, BiPredicate<String, Long> notModified) throws Exception {
+        // 读取文件路径
+        URL url = this.getClass().getClassLoader().getResource("file/" + fileName);
+        if (url == null) {
+            DatasourceException.throwException("文件不存在: " + fileName);
         }
+        // 文件未修改时不解析，解析结果按文件内容的版本缓存
+        ETagGenerator.FileTag tag = parsedFileCache.getTag(fileName, url);
+        if (notModified != null && notModified.test(tag.getETag(), tag.getLastModified())) {
+            return null;
+        }
+        return parsedFileCache.get(fileName, url, tag);
+    }
 
-        return result;
+    @Override
+    public long writeFile(String fileName, String sheetName, ResultWriter writer) throws Exception {
+        ColumnarData data = fileParseEngine.toColumnarData(parseFile(fileName), sheetName);
+        writer.start(data);
+        writer.writeBatch(data);
+        writer.finish();
+        return data.getRowCount();
     }
 
+    @Override
+    public void writeLob(String token, LobOutput output) throws Exception {
+        dataQueryEngine.writeLob(token, output);
+    }
 
     @Override
-    public Object parseFile(String fileName) throws Exception {
-        // 读取文件路径
-        InputStream in = this.getClass().getClassLoader().getResourceAsStream("file/" + fileName);
-        Object object = fileParseEngine.parseFile(fileName, in);
-        return object;
+    public MemoryStatus getMemoryStatus() {
+        return memoryGovernor.getStatus();
+    }
+
+    @Override
+    public CacheStatus getCacheStatus() {
+        return queryResultCache.getStatus();
+    }
+
+    @Override
+    public String registerSource(QueryRequest request) {
+        if (request.getAutoUpdateTime() == null || request.getAutoUpdateTime() <= 0) {
+            DatasourceException.throwException("订阅的数据源须设置autoUpdateTime");
+        }
+        return subscriptionHub.register(dataQueryEngine.getQueryKey(request), request.getAutoUpdateTime() * 1000L, () -> {
+            Object result = executeQuery(request);
+            // 去掉每次执行都不同的字段，结果不变时推送内容相同
+            if (result instanceof QueryResult) {
+                ((QueryResult) result).setExecutionTime(0);
+                ((QueryResult) result).setCached(false);
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public SseEmitter subscribe(String sourceId) {
+        return subscriptionHub.subscribe(sourceId);
     }
 
 } 
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.zerov.shj.core.dialect;
+
+import com.zerov.shj.core.config.DatabaseType;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 行数限制改写：SQL Server中TOP只能限制整个语句时才插入，执行阶段的错误不回退为原SQL
+ */
+class QueryDialectTest {
+
+    @Test
+    void sqlServerTopOnlyForSingleSelect() {
+        assertEquals("SELECT DISTINCT TOP 10 a FROM t", QueryDialect.applyLimit("SELECT DISTINCT a FROM t", DatabaseType.sqlserver, 10));
+        assertEquals("SELECT TOP 10 a FROM t WHERE b IN (SELECT b FROM u UNION SELECT b FROM v)",
+                QueryDialect.applyLimit("SELECT a FROM t WHERE b IN (SELECT b FROM u UNION SELECT b FROM v)", DatabaseType.sqlserver, 10));
+        for (String sql : new String[]{
+                "SELECT a FROM t UNION ALL SELECT a FROM u",
+                "SELECT a FROM t EXCEPT SELECT a FROM u",
+                "SELECT a FROM t ORDER BY a OFFSET 5 ROWS",
+                "WITH x AS (SELECT a FROM t) SELECT a FROM x",
+                "SELECT TOP 5 a FROM t"}) {
+            assertEquals(sql, QueryDialect.applyLimit(sql, DatabaseType.sqlserver, 10), sql);
+        }
+    }
+
+    @Test
+    void onlyParseErrorsAreRewriteErrors() {
+        assertTrue(QueryDialect.isRewriteError(DatabaseType.pg, new SQLException("syntax error", "42601")));
+        assertTrue(QueryDialect.isRewriteError(DatabaseType.oracle, new SQLException("ORA-00918", "99999", 918)));
+        assertTrue(QueryDialect.isRewriteError(DatabaseType.sqlserver, new SQLException("no column name", "S0001", 8155)));
+        assertFalse(QueryDialect.isRewriteError(DatabaseType.sqlserver, new SQLException("deadlock", "40001", 1205)));
+        assertFalse(QueryDialect.isRewriteError(DatabaseType.pg, new SQLException("canceling statement", "57014")));
+    }
+}
@@ -0,0 +1,67 @@
+package com.zerov.shj.core.output;
+
+import com.zerov.shj.core.model.ColumnVector;
+import com.zerov.shj.core.model.ColumnarData;
+import com.zerov.shj.core.reader.ColumnReader;
+import com.zerov.shj.core.reader.ColumnReaders;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 导出使用legacy模式读取，超出双精度浮点数精度的整数输出为文本单元格
+ */
+class ExcelResultWriterTest {
+
+    @Test
+    void largeLongsAsText() throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnType(1)).thenReturn(Types.BIGINT);
+        when(metaData.isSigned(1)).thenReturn(true);
+        when(metaData.getColumnType(2)).thenReturn(Types.DECIMAL);
+        ColumnReader longReader = ColumnReaders.forColumn(metaData, 1);
+        ColumnReader decimalReader = ColumnReaders.forColumn(metaData, 2);
+        ColumnarData batch = new ColumnarData(Arrays.asList("l", "d"),
+                new ColumnVector[]{longReader.newVector(), decimalReader.newVector()});
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(9007199254740992L, 9007199254740993L, Long.MIN_VALUE);
+        when(rs.getString(2)).thenReturn("123.45", "1234567890123.4567", "0");
+        for (int row = 0; row < 3; row++) {
+            longReader.read(rs, 1, batch.getVector(0));
+            decimalReader.read(rs, 2, batch.getVector(1));
+            batch.commitRow();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ExcelResultWriter writer = new ExcelResultWriter(out)) {
+            writer.start(batch);
+            writer.writeBatch(batch);
+            writer.finish();
+        }
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Row exact = workbook.getSheetAt(0).getRow(1);
+            assertEquals(CellType.NUMERIC, exact.getCell(0).getCellTypeEnum());
+            assertEquals(9007199254740992d, exact.getCell(0).getNumericCellValue());
+
+            Row text = workbook.getSheetAt(0).getRow(2);
+            assertEquals("9007199254740993", text.getCell(0).getStringCellValue());
+            // legacy模式的DECIMAL按驱动返回的字符串读取，本来就是文本
+            assertEquals("1234567890123.4567", text.getCell(1).getStringCellValue());
+
+            assertEquals(String.valueOf(Long.MIN_VALUE), workbook.getSheetAt(0).getRow(3).getCell(0).getStringCellValue());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.zerov.shj.core.reader;
+
+import com.zerov.shj.core.model.ColumnVector;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * legacy模式浮点列的输出格式与旧版一致
+ */
+class ColumnReadersTest {
+
+    private static String readLegacy(int jdbcType, float floatValue, String driverString) throws SQLException {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnType(1)).thenReturn(jdbcType);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getFloat(1)).thenReturn(floatValue);
+        when(rs.getString(1)).thenReturn(driverString);
+        ColumnReader reader = ColumnReaders.forColumn(metaData, 1);
+        ColumnVector vector = reader.newVector();
+        reader.read(rs, 1, vector);
+        return (String) vector.get(0);
+    }
+
+    @Test
+    void legacyFloatUsesDriverString() throws SQLException {
+        for (int jdbcType : new int[]{Types.REAL, Types.FLOAT, Types.DOUBLE}) {
+            assertEquals("0.0001", readLegacy(jdbcType, 0.0001f, "0.0001"));
+            assertEquals("1234.5678", readLegacy(jdbcType, 1234.5678f, "1234.5678"));
+            assertEquals("3.14", readLegacy(jdbcType, 3.14f, "3.14"));
+        }
+    }
+
+    @Test
+    void legacyIntegralFloatAsInteger() throws SQLException {
+        assertEquals("2", readLegacy(Types.DOUBLE, 2.0f, "2.0"));
+        assertEquals("-7", readLegacy(Types.REAL, -7.0f, "-7.0"));
+        // 按float判断，超出float精度的小数部分被舍去
+        assertEquals("12345679", readLegacy(Types.DOUBLE, 12345678.9f, "12345678.9"));
+        // 空值按0输出
+        assertEquals("0", readLegacy(Types.DOUBLE, 0f, null));
+    }
+
+    @Test
+    void doubleVectorPlainNotation() {
+        ColumnVector.DoubleVector doubles = new ColumnVector.DoubleVector(false);
+        doubles.append(0.0001);
+        doubles.append(1.5E10);
+        doubles.append(2.0);
+        doubles.appendNull();
+        assertEquals("0.0001", doubles.get(0));
+        assertEquals("15000000000", doubles.get(1));
+        assertEquals("2", doubles.get(2));
+        assertEquals(null, doubles.get(3));
+
+        ColumnVector.DoubleVector floats = new ColumnVector.DoubleVector(true);
+        floats.append(0.1f);
+        assertEquals("0.1", floats.get(0));
+    }
+
+    @Test
+    void decimalVectorPlainNotation() {
+        ColumnVector.DecimalVector decimals = new ColumnVector.DecimalVector();
+        decimals.append(new BigDecimal("0E-10"));
+        decimals.append(new BigDecimal("1E+3"));
+        decimals.append(new BigDecimal("12.50"));
+        assertEquals("0.0000000000", decimals.get(0));
+        assertEquals("1000", decimals.get(1));
+        assertEquals("12.50", decimals.get(2));
+    }
+}
@@ -0,0 +1,42 @@
+package com.zerov.shj.core.sql;
+
+import com.alibaba.druid.DbType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * 规范形式用作查询键，列名不同的查询规范形式也必须不同
+ */
+class SqlNormalizerTest {
+
+    private static String canonical(String sql, DbType dbType) {
+        return SqlNormalizer.normalize(sql, dbType).getCanonical();
+    }
+
+    private static String fingerprint(String sql, DbType dbType) {
+        return SqlNormalizer.normalize(sql, dbType).getFingerprint();
+    }
+
+    @Test
+    void expressionColumnNamesKeepOriginalText() {
+        // MySQL和ClickHouse中未设置别名的列名为表达式原文
+        for (DbType dbType : new DbType[]{null, DbType.mysql, DbType.clickhouse, DbType.sqlserver}) {
+            assertNotEquals(canonical("SELECT count(*) FROM t", dbType), canonical("SELECT COUNT(*) FROM t", dbType));
+            assertNotEquals(canonical("SELECT a+b FROM t", dbType), canonical("SELECT a + b FROM t", dbType));
+            assertEquals("SELECT max(a) FROM t", canonical("  SELECT max(a) FROM t ;\n", dbType));
+            // 验证结果只与结构有关，指纹仍然合并大小写和空白
+            assertEquals(fingerprint("select count(*) from t where a = 1", dbType),
+                    fingerprint("SELECT  COUNT(*)\nFROM t WHERE a=2;", dbType));
+        }
+    }
+
+    @Test
+    void foldingDialectsNormalizeCanonical() {
+        for (DbType dbType : new DbType[]{DbType.postgresql, DbType.oracle, DbType.h2}) {
+            assertEquals("SELECT COUNT(*)FROM T WHERE A='x'",
+                    canonical("select count(*)\n  from t -- 注释\n where a = 'x';", dbType));
+        }
+    }
+}
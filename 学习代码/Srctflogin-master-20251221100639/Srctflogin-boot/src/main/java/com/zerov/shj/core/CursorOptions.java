@@ -0,0 +1,60 @@
+package com.zerov.shj.core;
+
+import com.zerov.shj.core.config.DatabaseType;
+import com.zerov.shj.core.reader.ReaderOptions;
+import com.zerov.shj.core.reader.RowReaderPlanCache;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 游标打开参数
+ */
+@Data
+public class CursorOptions {
+
+    /**
+     * 数据库类型，可为空
+     */
+    private DatabaseType dbType;
+
+    /**
+     * 查询超时时间(秒)，可为空
+     */
+    private Integer timeout;
+
+    /**
+     * 最大行数，由驱动限制返回行数，0表示不限制
+     */
+    private int maxRows;
+
+    /**
+     * 是否流式读取
+     */
+    private boolean streaming;
+
+    /**
+     * 每批拉取行数
+     */
+    private int fetchSize;
+
+    /**
+     * 绑定参数，不为空时使用PreparedStatement执行
+     */
+    private List<Object> params;
+
+    /**
+     * 读取参数（取值模式、大字段输出方式）
+     */
+    private ReaderOptions readerOptions = new ReaderOptions();
+
+    /**
+     * 读取计划缓存，为空时每次编译
+     */
+    private RowReaderPlanCache planCache;
+
+    /**
+     * 读取计划缓存键
+     */
+    private String planKey;
+}
@@ -1,27 +1,60 @@
 package com.zerov.shj.core;
 
+import com.zerov.shj.common.exception.DatasourceException;
+import com.zerov.shj.core.cache.CacheConfig;
+import com.zerov.shj.core.cache.QueryCoalescer;
+import com.zerov.shj.core.cache.QueryKey;
+import com.zerov.shj.core.cache.QueryResultCache;
+import com.zerov.shj.core.cache.RefreshScheduler;
 import com.zerov.shj.core.config.DatabaseConfig;
 import com.zerov.shj.core.config.DatabaseType;
-import com.zerov.shj.core.model.QueryResult;
+import com.zerov.shj.core.config.EngineConfig;
+import com.zerov.shj.core.config.ExportConfig;
+import com.zerov.shj.core.config.LobConfig;
+import com.zerov.shj.core.datasource.DataSourcePoolManager;
+import com.zerov.shj.core.delta.DeltaTracker;
+import com.zerov.shj.core.datasource.DriverCatalog;
+import com.zerov.shj.core.datasource.PoolConfig;
+import com.zerov.shj.core.dialect.QueryDialect;
+import com.zerov.shj.core.lob.LobHandleRegistry;
+import com.zerov.shj.core.lob.LobOutput;
+import com.zerov.shj.core.lob.LobQuery;
+import com.zerov.shj.core.memory.MemoryGovernor;
+import com.zerov.shj.core.memory.MemoryPolicy;
+import com.zerov.shj.core.memory.MemoryReservation;
+import com.zerov.shj.core.memory.SpillableRowBuffer;
+import com.zerov.shj.core.memory.SpilledRowList;
+import com.zerov.shj.core.model.ColumnarData;
+import com.zerov.shj.core.model.LobMode;
 import com.zerov.shj.core.model.QueryRequest;
+import com.zerov.shj.core.model.QueryResult;
+import com.zerov.shj.core.model.ValueMode;
+import com.zerov.shj.core.output.ResultWriter;
+import com.zerov.shj.core.page.KeysetPager;
+import com.zerov.shj.core.reader.ReaderOptions;
+import com.zerov.shj.core.reader.RowReaderPlanCache;
+import com.zerov.shj.core.security.SecurityConfig;
 import com.zerov.shj.core.security.SqlSecurityValidator;
+import com.zerov.shj.core.sql.NormalizedSql;
+import com.zerov.shj.core.sql.SqlNormalizer;
+import com.zerov.shj.core.sql.SqlTemplate;
+import com.zerov.shj.core.sql.SqlTemplateCache;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
-import java.io.FileOutputStream;
+import javax.annotation.PostConstruct;
 import java.io.InputStream;
-import java.net.JarURLConnection;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.*;
-import java.util.logging.Logger;
+import java.util.concurrent.Semaphore;
 
 /**
  * 数据查询引擎核心类
@@ -33,6 +66,49 @@ public class DataQueryEngine {
 
     @Autowired
     private SqlSecurityValidator sqlSecurityValidator;
+    @Autowired
+    private DataSourcePoolManager dataSourcePoolManager;
+    @Autowired
+    private PoolConfig poolConfig;
+    @Autowired
+    private DriverCatalog driverCatalog;
+    @Autowired
+    private EngineConfig engineConfig;
+    @Autowired
+    private SecurityConfig securityConfig;
+    @Autowired
+    private RowReaderPlanCache rowReaderPlanCache;
+    @Autowired
+    private LobConfig lobConfig;
+    @Autowired
+    private LobHandleRegistry lobHandleRegistry;
+    @Autowired
+    private MemoryGovernor memoryGovernor;
+    @Autowired
+    private ExportConfig exportConfig;
+    @Autowired
+    private CacheConfig cacheConfig;
+    @Autowired
+    private QueryResultCache queryResultCache;
+    @Autowired
+    private QueryCoalescer queryCoalescer;
+    @Autowired
+    private RefreshScheduler refreshScheduler;
+    @Autowired
+    private DeltaTracker deltaTracker;
+    @Autowired
+    private SqlTemplateCache sqlTemplateCache;
+
+    /**
+     * 导出并发许可，与普通查询分开计算
+     */
+    private Semaphore exportPermits;
+
+    @PostConstruct
+    public void init() {
+        exportPermits = new Semaphore(Math.max(1, exportConfig.getMaxConcurrent()));
+    }
+
     /**
      * 执行数据库查询
      *
@@ -43,7 +119,7 @@ public class DataQueryEngine {
         QueryResult result = new QueryResult();
 
         // 安全验证
-        SqlSecurityValidator.SqlValidationResult validationResult = sqlSecurityValidator.validateSql(request.getSql());
+        SqlSecurityValidator.SqlValidationResult validationResult = validate(request);
 
         if (!validationResult.isValid()) {
             log.warn("SQL安全验证失败: {}", validationResult.getMessage());
@@ -54,35 +130,370 @@ public class DataQueryEngine {
 
         long startTime = System.currentTimeMillis();
 
-        try (Connection connection = createConnection(request.getConfig());
-             Statement statement = connection.createStatement()) {
-            // 设置查询超时时间
-            if (request.getTimeout() != null) {
-                statement.setQueryTimeout(request.getTimeout());
+        int maxRows = getMaxRows(request);
+        // 分页查询按客户端各自的位置读取，不缓存也不合并
+        if (request.isPaged()) {
+            return runQuery(request, maxRows, null, 0, startTime);
+        }
+        QueryKey key = getQueryKey(request, maxRows);
+        result = getSharedResult(request, maxRows, key, startTime);
+        // 携带版本的请求按版本返回变化的行
+        if (request.getSinceVersion() != null) {
+            deltaTracker.apply(key.toString(), request.getRowKey(), request.getSinceVersion(), result);
+        }
+        return result;
+    }
+
+    /**
+     * 依次从缓存、执行中的相同查询获取结果，都没有时执行查询
+     */
+    private QueryResult getSharedResult(QueryRequest request, int maxRows, QueryKey key, long startTime) {
+        // 相同数据源和SQL在缓存时间内共享结果
+        long cacheTtl = getCacheTtl(request);
+        QueryKey cacheKey = cacheTtl > 0 && queryResultCache.isEnabled() ? key : null;
+        if (cacheKey != null) {
+            refreshScheduler.touch(cacheKey);
+            QueryResult cached = queryResultCache.get(cacheKey);
+            if (cached != null) {
+                // 已过期的结果在后台刷新完成前继续返回
+                if (cached.isStale()) {
+                    refreshScheduler.refreshNow(cacheKey, cacheTtl, () -> refreshQuery(request, cacheKey, cacheTtl));
+                }
+                cached.setExecutionTime(System.currentTimeMillis() - startTime);
+                return cached;
             }
-            // 执行查询
-            try (ResultSet resultSet = statement.executeQuery(request.getSql())) {
+        }
+        // 相同查询正在执行时等待并共享其结果
+        if (queryCoalescer.isEnabled()) {
+            QueryResult shared = coalesceQuery(request, maxRows, key, cacheKey, cacheTtl, startTime);
+            shared.setExecutionTime(System.currentTimeMillis() - startTime);
+            return shared;
+        }
+        return runQuery(request, maxRows, cacheKey, cacheTtl, startTime);
+    }
+
+    /**
+     * 合并执行相同的查询，溢出到临时文件的结果属于首个请求，不共享；
+     * 截断的结果取决于首个请求执行时的内存余量，等待的请求各自执行
+     */
+    private QueryResult coalesceQuery(QueryRequest request, int maxRows, QueryKey key, QueryKey cacheKey,
+                                      long cacheTtl, long startTime) {
+        return queryCoalescer.execute(key, () -> runQuery(request, maxRows, cacheKey, cacheTtl, startTime),
+                result -> !result.isTruncated() && !(result.getData() instanceof SpilledRowList));
+    }
+
+    /**
+     * 后台刷新缓存的查询，失败时保留缓存中的旧结果
+     */
+    private void refreshQuery(QueryRequest request, QueryKey cacheKey, long cacheTtl) {
+        QueryResult result = coalesceQuery(request, cacheKey.getMaxRows(), cacheKey, cacheKey, cacheTtl,
+                System.currentTimeMillis());
+        if (!result.isSuccess()) {
+            log.warn("后台刷新查询失败: {}", result.getMessage());
+        }
+    }
+
+    /**
+     * 执行查询并读取结果，cacheKey不为空时缓存结果
+     */
+    private QueryResult runQuery(QueryRequest request, int maxRows, QueryKey cacheKey, long cacheTtl, long startTime) {
+        QueryResult result = new QueryResult();
+        String sql = request.getSql();
+        List<Object> params = new ArrayList<>();
+        KeysetPager pager = null;
+        MemoryReservation reservation = memoryGovernor.open("executeQuery: " + StringUtils.abbreviate(sql, 200));
+        try {
+            sql = bind(request, params);
+            // 分页查询按分页键列改写SQL，从上一页最后一行之后读取，分页键的参数在模板参数之后
+            if (request.isPaged()) {
+                pager = KeysetPager.of(request.getConfig(), sql, request.getKeyColumns());
+                List<Object> lastKeys = pager.decode(request.getPageToken());
+                sql = pager.rewrite(sql, lastKeys);
+                params.addAll(pager.getParams(lastKeys));
+                if (request.getPageSize() != null && request.getPageSize() > 0) {
+                    maxRows = Math.min(securityConfig.getMaxRows(), request.getPageSize());
+                }
+            }
+            // 执行查询，分页时多读一行判断是否还有下一页
+            try (QueryCursor cursor = openCursor(request, sql, params, pager == null ? maxRows : maxRows + 1)) {
                 // 获取字段信息
-                List<String> columns = getColumnNames(resultSet);
+                List<String> columns = cursor.getColumns();
                 result.setColumns(columns);
+                result.setSchema(cursor.getSchema());
                 // 获取数据
-                List<Map<String, Object>> data = getData(resultSet, columns, request.getMaxRows());
-                result.setData(data);
-                result.setTotalRows(data.size());
+                ColumnarData data = pager == null ? getData(cursor, maxRows, reservation)
+                        : getPage(cursor, maxRows, pager, reservation, result);
+                result.setColumnar(data);
+                result.setTotalRows(data.getRowCount());
+                result.setTruncated(reservation.isTruncated());
+                // spill方式下超出预算的剩余行写入临时文件，输出时顺序读回
+                if (pager == null && reservation.isExhausted() && reservation.getPolicy() == MemoryPolicy.spill) {
+                    SpillableRowBuffer spill = spillRows(cursor, data, maxRows - data.getRowCount(), reservation);
+                    result.setData(new SpilledRowList(data.asMaps(), spill));
+                    result.setTotalRows(result.getData().size());
+                }
+                result.setSuccess(true);
+                result.setMessage("查询成功");
+                // 截断和溢出到临时文件的结果不缓存；大字段句柄有有效期，缓存时间不超过句柄有效期
+                if (cacheKey != null && !result.isTruncated() && !(result.getData() instanceof SpilledRowList)) {
+                    long ttl = queryResultCache.put(cacheKey, result,
+                            cursor.hasLobColumns() ? Math.min(cacheTtl, lobConfig.getHandleTtl()) : cacheTtl);
+                    if (ttl > 0) {
+                        refreshScheduler.schedule(cacheKey, ttl, () -> refreshQuery(request, cacheKey, cacheTtl));
+                    }
+                }
             }
-            result.setSuccess(true);
-            result.setMessage("查询成功");
         } catch (Exception e) {
             log.error("查询执行失败", e);
             result.setSuccess(false);
             result.setMessage("查询失败: " + e.getMessage());
         } finally {
             result.setExecutionTime(System.currentTimeMillis() - startTime);
+            // 结果在响应写出后才释放
+            if (result.isSuccess()) {
+                memoryGovernor.closeAfterRequest(reservation);
+            } else {
+                reservation.close();
+            }
         }
 
         return result;
     }
 
+    /**
+     * 验证SQL并生成查询键，相同查询键的查询结果相同
+     *
+     * @param request 查询请求
+     * @return 查询键
+     */
+    public QueryKey getQueryKey(QueryRequest request) {
+        checkSql(request);
+        return getQueryKey(request, getMaxRows(request));
+    }
+
+    private QueryKey getQueryKey(QueryRequest request, int maxRows) {
+        SqlTemplate template = getTemplate(request);
+        List<Object> params = template == null ? Collections.emptyList() : template.getValues(request.getParams());
+        return new QueryKey(DataSourcePoolManager.fingerprint(request.getConfig()),
+                normalize(request).getCanonical(), params, maxRows, getReaderOptions(request).getKey());
+    }
+
+    /**
+     * 请求带参数时按模板解析SQL，同一模板只解析一次
+     *
+     * @return 解析后的模板，不是模板时返回null
+     */
+    private SqlTemplate getTemplate(QueryRequest request) {
+        if (request.getParams() == null) {
+            return null;
+        }
+        return sqlTemplateCache.get(request.getSql(), SqlNormalizer.dialectOf(request.getConfig()));
+    }
+
+    /**
+     * 绑定模板参数
+     *
+     * @param params 追加绑定值
+     * @return 可执行的SQL，不是模板时为原SQL
+     */
+    private String bind(QueryRequest request, List<Object> params) {
+        SqlTemplate template = getTemplate(request);
+        return template == null ? request.getSql() : template.bind(request.getParams(), params);
+    }
+
+    /**
+     * SQL安全验证，模板的验证结果按模板缓存
+     */
+    private SqlSecurityValidator.SqlValidationResult validate(QueryRequest request) {
+        SqlTemplate template = getTemplate(request);
+        if (template != null) {
+            return sqlSecurityValidator.validateTemplate(template);
+        }
+        return sqlSecurityValidator.validateSql(normalize(request));
+    }
+
+    /**
+     * 规范化请求的SQL，安全验证和查询键共用，每个请求只计算一次；模板为占位符替换后的SQL
+     */
+    private NormalizedSql normalize(QueryRequest request) {
+        SqlTemplate template = getTemplate(request);
+        if (template != null) {
+            return template.getNormalizedSql();
+        }
+        NormalizedSql normalizedSql = request.getNormalizedSql();
+        if (normalizedSql == null || !Objects.equals(normalizedSql.getSql(), request.getSql())) {
+            normalizedSql = SqlNormalizer.normalize(request.getSql(), SqlNormalizer.dialectOf(request.getConfig()));
+            request.setNormalizedSql(normalizedSql);
+        }
+        return normalizedSql;
+    }
+
+    /**
+     * 流式执行数据库查询，结果按批次写出，不在内存中保留完整结果
+     *
+     * @param request 查询请求
+     * @param writer  结果输出
+     * @return 输出行数
+     */
+    public long streamQuery(QueryRequest request, ResultWriter writer) throws Exception {
+        // 安全验证，失败时尚未输出任何内容
+        checkSql(request);
+        return writeQuery(request, getReaderOptions(request), getMaxRows(request), writer, "streamQuery");
+    }
+
+    /**
+     * 导出查询结果，从结果集逐批写出到文件格式
+     * 不受安全配置的最大行数限制，使用导出配置的行数上限和并发数
+     *
+     * @param request 查询请求
+     * @param writer  导出格式输出
+     * @return 导出行数
+     */
+    public long exportQuery(QueryRequest request, ResultWriter writer) throws Exception {
+        checkSql(request);
+        if (!exportPermits.tryAcquire()) {
+            DatasourceException.throwException("导出任务过多，请稍后重试");
+        }
+        try {
+            // 导出文件中输出原始值，大字段输出完整内容；请求中的maxRows不生效
+            return writeQuery(request, new ReaderOptions(), exportConfig.getMaxRows(), writer, "exportQuery");
+        } finally {
+            exportPermits.release();
+        }
+    }
+
+    /**
+     * SQL安全验证，不通过时抛出异常
+     */
+    private void checkSql(QueryRequest request) {
+        SqlSecurityValidator.SqlValidationResult validationResult = validate(request);
+        if (!validationResult.isValid()) {
+            log.warn("SQL安全验证失败: {}", validationResult.getMessage());
+            DatasourceException.throwException("SQL安全验证失败: " + validationResult.getMessage());
+        }
+    }
+
+    /**
+     * 执行查询并按批次写出，内存中只保留当前批次
+     */
+    private long writeQuery(QueryRequest request, ReaderOptions readerOptions, int maxRows, ResultWriter writer,
+                            String name) throws Exception {
+        List<Object> params = new ArrayList<>();
+        String sql = bind(request, params);
+        try (MemoryReservation reservation = memoryGovernor.open(name + ": " + StringUtils.abbreviate(sql, 200));
+             QueryCursor cursor = openCursor(request, readerOptions, sql, params, maxRows)) {
+            ColumnarData batch = cursor.newColumnarData();
+            writer.start(batch);
+            long rowCount = 0;
+            try {
+                int batchSize = engineConfig.getStreamBatchSize();
+                // spill方式下预算不足时批次照常写出，写出前不再申请
+                boolean overBudget = false;
+                while (rowCount < maxRows && cursor.next()) {
+                    cursor.appendRow(batch);
+                    rowCount++;
+                    // 只占用当前批次的内存，truncate方式下预算不足时停止输出
+                    if (!overBudget && !reservation.resize(batch.getBytes())) {
+                        if (reservation.isTruncated()) {
+                            log.warn("内存预算不足，{} 结果被截断: {} 行", name, rowCount);
+                            break;
+                        }
+                        overBudget = true;
+                    }
+                    if (batch.getRowCount() >= batchSize) {
+                        writer.writeBatch(batch);
+                        batch.clear();
+                        reservation.resize(0);
+                        overBudget = false;
+                    }
+                }
+                if (batch.getRowCount() > 0) {
+                    writer.writeBatch(batch);
+                }
+            } catch (SQLException | RuntimeException e) {
+                log.error("流式查询读取失败", e);
+                writer.error("查询失败: " + e.getMessage());
+                throw e;
+            }
+            writer.finish();
+            return rowCount;
+        }
+    }
+
+    /**
+     * 按句柄获取大字段的完整值
+     * 重新执行句柄对应的查询，定位到所在行后以流的方式输出，不在内存中保留完整值
+     *
+     * @param token  单元格句柄，格式为 查询句柄-行号-列序号
+     * @param output 大字段输出
+     */
+    public void writeLob(String token, LobOutput output) throws Exception {
+        String[] parts = token.split("-");
+        if (parts.length != 3 || !StringUtils.isNumeric(parts[1]) || !StringUtils.isNumeric(parts[2])) {
+            DatasourceException.throwException("无效的大字段句柄: " + token);
+        }
+        LobQuery query = lobHandleRegistry.get(parts[0]);
+        if (query == null) {
+            DatasourceException.throwException("大字段句柄不存在或已过期");
+        }
+        long row = Long.parseLong(parts[1]);
+        int column = Integer.parseInt(parts[2]);
+        if (row < 1 || row > securityConfig.getMaxRows()) {
+            DatasourceException.throwException("无效的大字段句柄: " + token);
+        }
+
+        DatabaseConfig config = query.getConfig();
+        DatabaseType dbType = DatabaseType.fromString(config.getType());
+        CursorOptions options = new CursorOptions();
+        options.setDbType(dbType);
+        options.setTimeout(query.getTimeout());
+        options.setMaxRows((int) row);
+        options.setParams(query.getParams());
+        options.setStreaming(engineConfig.isStreaming());
+        options.setFetchSize(engineConfig.getFetchSize(dbType));
+        try (QueryCursor cursor = QueryCursor.open(getConnection(config), query.getSql(), options)) {
+            for (long i = 0; i < row; i++) {
+                if (!cursor.next()) {
+                    DatasourceException.throwException("大字段所在行已不存在");
+                }
+            }
+            ResultSet rs = cursor.getResultSet();
+            ResultSetMetaData metaData = rs.getMetaData();
+            if (column < 1 || column > metaData.getColumnCount()) {
+                DatasourceException.throwException("无效的大字段句柄: " + token);
+            }
+            if (isBinary(metaData, column)) {
+                try (InputStream in = rs.getBinaryStream(column)) {
+                    OutputStream out = output.open(true);
+                    if (in != null) {
+                        IOUtils.copy(in, out);
+                    }
+                    out.flush();
+                }
+            } else {
+                try (Reader reader = rs.getCharacterStream(column)) {
+                    Writer writer = new OutputStreamWriter(output.open(false), StandardCharsets.UTF_8);
+                    if (reader != null) {
+                        IOUtils.copy(reader, writer);
+                    }
+                    writer.flush();
+                }
+            }
+        }
+    }
+
+    private static boolean isBinary(ResultSetMetaData metaData, int column) throws SQLException {
+        switch (metaData.getColumnType(column)) {
+            case Types.BLOB:
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
 
     public Boolean testConnection(String config) {
         QueryRequest request = new QueryRequest();
@@ -110,7 +521,6 @@ public class DataQueryEngine {
         QueryRequest request = new QueryRequest();
         request.setConfigJson(config);
         DatabaseConfig databaseConfig = request.getConfig();
-        ConnectionTestResult result = new ConnectionTestResult();
 
         // 强制设置type和根据type设置正确的驱动类名
         databaseConfig.setType(type);
@@ -119,7 +529,17 @@ public class DataQueryEngine {
             databaseConfig.setDriverClassName(dbType.getDriverClassName());
             log.info("根据type设置驱动类名: type={}, driver={}", type, dbType.getDriverClassName());
         }
+        return testConnection(databaseConfig);
+    }
 
+    /**
+     * 测试数据库连接并返回详细结果，驱动按驱动类名或URL从驱动目录获取
+     *
+     * @param databaseConfig 数据库配置
+     * @return 连接测试结果
+     */
+    public ConnectionTestResult testConnection(DatabaseConfig databaseConfig) {
+        ConnectionTestResult result = new ConnectionTestResult();
         try {
             // 使用createConnection方法来正确加载驱动
             try (Connection connection = createConnection(databaseConfig)) {
@@ -171,283 +591,186 @@ public class DataQueryEngine {
 
 
     /**
-     * 创建数据库连接
+     * 结果缓存时间(毫秒)，优先使用请求中组件的自动更新间隔
      */
-    private Connection createConnection(DatabaseConfig config) throws Exception {
-        // 如果设置了type，则自动映射驱动和URL
-        if (config.getType() != null && !config.getType().trim().isEmpty()) {
-            DatabaseType dbType = DatabaseType.fromString(config.getType());
-            if (dbType != null) {
-                // 自动设置驱动类名
-                if (config.getDriverClassName() == null || config.getDriverClassName().trim().isEmpty()) {
-                    config.setDriverClassName(dbType.getDriverClassName());
-                }
-
-                // 如果URL为空，则从type中解析URL
-                if (config.getUrl() == null || config.getUrl().trim().isEmpty()) {
-                    // 这里需要从URL中提取host, port, database信息
-                    // 暂时保持原有逻辑，用户需要提供完整的URL
-                    log.info("自动映射驱动: type={}, driver={}", config.getType(), config.getDriverClassName());
-                }
-            } else {
-                log.warn("不支持的数据库类型: {}", config.getType());
-            }
+    private long getCacheTtl(QueryRequest request) {
+        if (request.getAutoUpdateTime() != null && request.getAutoUpdateTime() > 0) {
+            return request.getAutoUpdateTime() * 1000L;
         }
+        return cacheConfig.getDefaultTtl();
+    }
 
-        // 加载驱动
-        if (config.getDriverClassName() != null) {
-            try {
-                // 首先尝试直接加载驱动类
-                Class.forName(config.getDriverClassName());
-                log.info("成功加载驱动: {}", config.getDriverClassName());
-            } catch (ClassNotFoundException e) {
-                log.warn("无法直接加载驱动: {}, 尝试从drivers目录加载", config.getDriverClassName());
-
-                // 如果直接加载失败，尝试从drivers目录加载
-                loadDriverFromDriversDirectory(config.getDriverClassName());
-            }
+    /**
+     * 最大返回行数，不超过安全配置的上限
+     */
+    private int getMaxRows(QueryRequest request) {
+        int maxRows = securityConfig.getMaxRows();
+        if (request.getMaxRows() != null && request.getMaxRows() > 0) {
+            maxRows = Math.min(maxRows, request.getMaxRows());
         }
-
-        // 建立连接
-        Properties props = new Properties();
-        props.setProperty("user", config.getUsername());
-        props.setProperty("password", config.getPassword());
-
-        // 添加SSL配置，避免SSL警告
-        props.setProperty("useSSL", "false");
-        props.setProperty("allowPublicKeyRetrieval", "true");
-        props.setProperty("serverTimezone", "UTC");
-
-        return DriverManager.getConnection(config.getUrl(), props);
+        return maxRows;
     }
 
     /**
-     * 从drivers目录加载驱动
+     * 打开查询游标，将最大行数下推到数据库
      */
-    private void loadDriverFromDriversDirectory(String driverClassName) throws Exception {
-        try {
-            // 首先尝试从 classpath 加载（支持 jar 包内部）
-            URL driversUrl = getClass().getClassLoader().getResource("drivers");
-            if (driversUrl == null) {
-                // 尝试相对路径
-                String[] possiblePaths = {
-                        "drivers",
-                        "./drivers",
-                        "../drivers"
-                };
-                for (String path : possiblePaths) {
-                    File testDir = new File(path);
-                    if (testDir.exists() && testDir.isDirectory()) {
-                        driversUrl = testDir.toURI().toURL();
-                        break;
-                    }
-                }
-            }
-
-            if (driversUrl == null) {
-                throw new Exception("无法找到drivers目录，请确保drivers目录存在于classpath或jar包同级目录");
-            }
-
-            log.info("找到drivers资源: {}", driversUrl);
-
-            List<URL> jarUrls = new ArrayList<>();
-            
-            // 判断是 jar 包内部还是文件系统
-            if ("jar".equals(driversUrl.getProtocol())) {
-                // 从 jar 包中读取
-                log.info("从jar包内部读取drivers目录");
-                jarUrls = loadJarsFromJar(driversUrl, driverClassName);
-            } else {
-                // 从文件系统读取
-                log.info("从文件系统读取drivers目录");
-                File driversDir = new File(driversUrl.toURI());
-                if (!driversDir.exists() || !driversDir.isDirectory()) {
-                    throw new Exception("drivers目录不存在或不是目录: " + driversDir.getAbsolutePath());
-                }
-                
-                File[] jarFiles = driversDir.listFiles((dir, name) -> name.endsWith(".jar"));
-                if (jarFiles == null || jarFiles.length == 0) {
-                    throw new Exception("drivers目录中没有找到jar文件: " + driversDir.getAbsolutePath());
-                }
-                
-                for (File jarFile : jarFiles) {
-                    jarUrls.add(jarFile.toURI().toURL());
-                }
-            }
-
-            if (jarUrls.isEmpty()) {
-                throw new Exception("drivers目录中没有找到jar文件");
-            }
-
-            log.info("找到 {} 个jar文件", jarUrls.size());
-
-            // 尝试加载每个jar文件
-            for (URL jarUrl : jarUrls) {
-                try {
-                    log.debug("尝试加载jar文件: {}", jarUrl);
-                    URLClassLoader classLoader = new URLClassLoader(new URL[]{jarUrl}, getClass().getClassLoader());
-
-                    // 加载驱动类
-                    Class<?> driverClass = Class.forName(driverClassName, true, classLoader);
-
-                    // 创建驱动实例并注册到DriverManager
-                    Driver driver = (Driver) driverClass.getDeclaredConstructor().newInstance();
-                    DriverManager.registerDriver(new DriverShim(driver));
-
-                    log.info("成功从jar文件加载并注册驱动: {} -> {}", jarUrl, driverClassName);
-                    return;
-                } catch (Exception e) {
-                    log.debug("从jar文件加载驱动失败: {} -> {}", jarUrl, e.getMessage());
-                }
-            }
-
-            throw new Exception("无法从任何jar文件加载驱动: " + driverClassName);
-
-        } catch (Exception e) {
-            log.error("从drivers目录加载驱动失败", e);
-            throw e;
-        }
+    private QueryCursor openCursor(QueryRequest request, String sql, List<Object> params, int maxRows) throws Exception {
+        return openCursor(request, getReaderOptions(request), sql, params, maxRows);
     }
 
     /**
-     * 从jar包内部读取drivers目录中的jar文件
+     * 按指定的读取参数打开查询游标
      */
-    private List<URL> loadJarsFromJar(URL driversUrl, String driverClassName) throws Exception {
-        List<URL> jarUrls = new ArrayList<>();
-        
-        try {
-            JarURLConnection jarConnection = (JarURLConnection) driversUrl.openConnection();
-            JarFile jarFile = jarConnection.getJarFile();
-            String driversPath = jarConnection.getEntryName(); // "drivers"
-            
-            // 遍历jar包中的drivers目录
-            Enumeration<JarEntry> entries = jarFile.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                String entryName = entry.getName();
-                
-                // 检查是否是drivers目录下的jar文件
-                if (entryName.startsWith(driversPath + "/") && 
-                    entryName.endsWith(".jar") && 
-                    !entry.isDirectory()) {
-                    
-                    log.debug("找到jar文件: {}", entryName);
-                    
-                    // 提取jar文件到临时目录
-                    Path tempDir = Files.createTempDirectory("shj-drivers-");
-                    tempDir.toFile().deleteOnExit();
-                    
-                    String fileName = entryName.substring(entryName.lastIndexOf("/") + 1);
-                    Path tempJar = tempDir.resolve(fileName);
-                    
-                    try (InputStream is = jarFile.getInputStream(entry);
-                         FileOutputStream fos = new FileOutputStream(tempJar.toFile())) {
-                        byte[] buffer = new byte[8192];
-                        int bytesRead;
-                        while ((bytesRead = is.read(buffer)) != -1) {
-                            fos.write(buffer, 0, bytesRead);
-                        }
+    private QueryCursor openCursor(QueryRequest request, ReaderOptions readerOptions, String sql, List<Object> params,
+                                   int maxRows) throws Exception {
+        DatabaseConfig config = request.getConfig();
+        DatabaseType dbType = DatabaseType.fromString(config.getType());
+        QueryCursor cursor = null;
+        if (engineConfig.isLimitRewrite()) {
+            String limitedSql = QueryDialect.applyLimit(sql, dbType, maxRows);
+            if (!limitedSql.equals(sql)) {
+                try {
+                    cursor = openCursor(config, dbType, limitedSql, params, request.getTimeout(), maxRows, readerOptions);
+                } catch (SQLException e) {
+                    // 如子查询中存在重名列等情况，改写后的SQL在解析阶段失败，回退为原SQL；执行阶段的错误不重试
+                    if (!QueryDialect.isRewriteError(dbType, e)) {
+                        throw e;
                     }
-                    
-                    jarUrls.add(tempJar.toUri().toURL());
-                    log.info("提取jar文件到临时目录: {}", tempJar);
+                    log.warn("行数限制改写后执行失败，使用原SQL重试: {}", e.getMessage());
                 }
             }
-        } catch (Exception e) {
-            log.error("从jar包读取drivers目录失败", e);
-            throw e;
         }
-        
-        return jarUrls;
+        if (cursor == null) {
+            cursor = openCursor(config, dbType, sql, params, request.getTimeout(), maxRows, readerOptions);
+        }
+        // 结果中的大字段只输出句柄，登记查询以便按需获取完整值
+        if (cursor.hasLobColumns()) {
+            cursor.setLobToken(lobHandleRegistry.register(config, sql, params, request.getTimeout()));
+        }
+        return cursor;
     }
 
     /**
-     * 驱动包装类，用于注册到DriverManager
+     * 打开查询游标，按数据库类型设置流式读取
      */
-    private static class DriverShim implements Driver {
-        private final Driver driver;
-
-        DriverShim(Driver driver) {
-            this.driver = driver;
-        }
-
-        @Override
-        public Connection connect(String url, Properties info) throws SQLException {
-            return driver.connect(url, info);
-        }
+    private QueryCursor openCursor(DatabaseConfig config, DatabaseType dbType, String sql, List<Object> params,
+                                   Integer timeout, int maxRows, ReaderOptions readerOptions) throws Exception {
+        CursorOptions options = new CursorOptions();
+        options.setDbType(dbType);
+        options.setTimeout(timeout);
+        options.setMaxRows(maxRows);
+        options.setStreaming(engineConfig.isStreaming());
+        options.setFetchSize(engineConfig.getFetchSize(dbType));
+        options.setParams(params);
+        options.setReaderOptions(readerOptions);
+        options.setPlanCache(rowReaderPlanCache);
+        options.setPlanKey(DataSourcePoolManager.fingerprint(config) + ":" + readerOptions.getKey() + ":" + sql);
+        Connection connection = getConnection(config);
+        return QueryCursor.open(connection, sql, options);
+    }
 
-        @Override
-        public boolean acceptsURL(String url) throws SQLException {
-            return driver.acceptsURL(url);
-        }
+    /**
+     * 按请求和大字段配置生成读取参数
+     */
+    private ReaderOptions getReaderOptions(QueryRequest request) {
+        ReaderOptions options = new ReaderOptions();
+        options.setValueMode(ValueMode.fromString(request.getValueMode()));
+        options.setLobMode(LobMode.fromString(request.getLobMode(), LobMode.fromString(lobConfig.getMode(), LobMode.handle)));
+        options.setPreviewLength(lobConfig.getPreviewLength());
+        options.setLargeVarcharLength(lobConfig.getLargeVarcharLength());
+        return options;
+    }
 
-        @Override
-        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) throws SQLException {
-            return driver.getPropertyInfo(url, info);
+    /**
+     * 获取数据库连接，启用连接池时从对应数据源的连接池中获取
+     */
+    private Connection getConnection(DatabaseConfig config) throws Exception {
+        if (!poolConfig.isEnabled()) {
+            return createConnection(config);
         }
+        Driver driver = resolveDriver(config);
+        return dataSourcePoolManager.getConnection(config, driver, getConnectionProperties());
+    }
 
-        @Override
-        public int getMajorVersion() {
-            return driver.getMajorVersion();
-        }
+    /**
+     * 创建数据库连接（不经过连接池，用于连接测试）
+     */
+    private Connection createConnection(DatabaseConfig config) throws Exception {
+        Driver driver = resolveDriver(config);
 
-        @Override
-        public int getMinorVersion() {
-            return driver.getMinorVersion();
-        }
+        // 建立连接
+        Properties props = getConnectionProperties();
+        props.setProperty("user", config.getUsername());
+        props.setProperty("password", config.getPassword());
 
-        @Override
-        public boolean jdbcCompliant() {
-            return driver.jdbcCompliant();
+        Connection connection = driver.connect(config.getUrl(), props);
+        if (connection == null) {
+            throw new SQLException("驱动不支持该连接URL: " + config.getUrl());
         }
+        return connection;
+    }
 
-        @Override
-        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
-            return driver.getParentLogger();
+    /**
+     * 公共连接属性
+     */
+    private Properties getConnectionProperties() {
+        Properties props = new Properties();
+        // 添加SSL配置，避免SSL警告
+        props.setProperty("useSSL", "false");
+        props.setProperty("allowPublicKeyRetrieval", "true");
+        props.setProperty("serverTimezone", "UTC");
+        if (poolConfig.isServerPreparedStatements()) {
+            // MySQL驱动的服务端预编译，语句由连接池按连接缓存
+            props.setProperty("useServerPrepStmts", "true");
         }
+        return props;
     }
 
     /**
-     * 获取列名
+     * 根据type补全驱动类名并从驱动目录获取驱动实例
      */
-    private List<String> getColumnNames(ResultSet resultSet) throws SQLException {
-        List<String> columns = new ArrayList<>();
-        ResultSetMetaData metaData = resultSet.getMetaData();
-        int columnCount = metaData.getColumnCount();
+    private Driver resolveDriver(DatabaseConfig config) throws Exception {
+        // 如果设置了type，则自动映射驱动和URL
+        if (config.getType() != null && !config.getType().trim().isEmpty()) {
+            DatabaseType dbType = DatabaseType.fromString(config.getType());
+            if (dbType != null) {
+                // 自动设置驱动类名
+                if (config.getDriverClassName() == null || config.getDriverClassName().trim().isEmpty()) {
+                    config.setDriverClassName(dbType.getDriverClassName());
+                }
 
-        for (int i = 1; i <= columnCount; i++) {
-            String columnName = metaData.getColumnName(i);
-            String columnLabel = metaData.getColumnLabel(i);
-            // 使用columnLabel，如果为空则使用columnName
-            String finalName = (columnLabel != null && !columnLabel.trim().isEmpty()) ? columnLabel : columnName;
-            columns.add(finalName);
+                // 如果URL为空，则从type中解析URL
+                if (config.getUrl() == null || config.getUrl().trim().isEmpty()) {
+                    // 这里需要从URL中提取host, port, database信息
+                    // 暂时保持原有逻辑，用户需要提供完整的URL
+                    log.info("自动映射驱动: type={}, driver={}", config.getType(), config.getDriverClassName());
+                }
+            } else {
+                log.warn("不支持的数据库类型: {}", config.getType());
+            }
         }
 
-        return columns;
+        // 获取驱动，未指定驱动类名时按URL匹配驱动目录和classpath中的驱动
+        return driverCatalog.getDriver(config.getDriverClassName(), config.getUrl());
     }
 
     /**
      * 获取数据
      */
-    private List<Map<String, Object>> getData(ResultSet resultSet, List<String> columns, Integer maxRows) throws SQLException {
-        List<Map<String, Object>> data = new ArrayList<>();
+    private ColumnarData getData(QueryCursor cursor, int maxRowLimit, MemoryReservation reservation) throws SQLException {
+        ColumnarData data = cursor.newColumnarData();
         int rowCount = 0;
-        int maxRowLimit = maxRows != null ? maxRows : 10000; // 默认最大10000行
-
-        ResultSetMetaData metaData = resultSet.getMetaData();
-        int columnCount = metaData.getColumnCount();
 
-        while (resultSet.next() && rowCount < maxRowLimit) {
-            Map<String, Object> row = new LinkedHashMap<>();
-            for (int j = 0; j < columnCount; j++) {
-                String columnName = columns.get(j);
-                int columnType = metaData.getColumnType(j + 1);
-
-                Object value = getColumnValue(resultSet, metaData, j + 1, columnType);
-                row.put(columnName, value);
-            }
-            data.add(row);
+        while (rowCount < maxRowLimit && cursor.next()) {
+            cursor.appendRow(data);
             rowCount++;
+            // 按估算的字节数申请内存，预算不足时停止读取，spill方式下由调用方继续读取剩余行
+            if (!reservation.resize(data.getBytes())) {
+                if (reservation.isTruncated()) {
+                    log.warn("内存预算不足，查询结果被截断: {} 行", rowCount);
+                }
+                return data;
+            }
         }
 
         if (rowCount >= maxRowLimit) {
@@ -458,34 +781,59 @@ public class DataQueryEngine {
     }
 
     /**
-     * 根据列类型获取列值
+     * 将剩余的行写入临时文件，只在内存中保留一个批次
+     *
+     * @param head      已在内存中的行
+     * @param remaining 最多还可读取的行数
      */
-    private Object getColumnValue(ResultSet rs, ResultSetMetaData metaData, int columnIndex, int columnType) throws SQLException {
-        switch (columnType) {
-            case Types.DATE:
-                if (rs.getDate(columnIndex) != null) {
-                    return rs.getDate(columnIndex).toString();
-                }
-                return null;
-            case Types.BOOLEAN:
-                return rs.getBoolean(columnIndex) ? "1" : "0";
-            case Types.REAL:
-            case Types.FLOAT:
-            case Types.DOUBLE:
-                float aFloat = rs.getFloat(columnIndex);
-                if (aFloat % 1 == 0) {
-                    // 转换为整数输出
-                    return String.valueOf((int) aFloat);
-                } else {
-                    return rs.getString(columnIndex);
-                }
-            default:
-                if (metaData.getColumnTypeName(columnIndex).toLowerCase().equalsIgnoreCase("blob")) {
-                    return rs.getBlob(columnIndex) == null ? "" : rs.getBlob(columnIndex).toString();
-                } else {
-                    return rs.getString(columnIndex);
-                }
+    private SpillableRowBuffer spillRows(QueryCursor cursor, ColumnarData head, long remaining,
+                                         MemoryReservation reservation) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        for (int index : head.getVisibleColumns()) {
+            columns.add(head.getColumns().get(index));
         }
+        SpillableRowBuffer spill = reservation.newSpillBuffer(columns);
+        // 行号延续内存中的行，保证大字段句柄指向正确的行
+        ColumnarData batch = cursor.newColumnarData(head.getRowCount() + 1L);
+        int batchSize = engineConfig.getStreamBatchSize();
+        long rowCount = 0;
+        while (rowCount < remaining && cursor.next()) {
+            cursor.appendRow(batch);
+            rowCount++;
+            if (batch.getRowCount() >= batchSize) {
+                spill.append(batch);
+                batch.clear();
+            }
+        }
+        if (batch.getRowCount() > 0) {
+            spill.append(batch);
+        }
+        spill.finish();
+        log.info("内存预算不足，{} 行写入临时文件, {} 字节", spill.getRowCount(), spill.getBytes());
+        return spill;
     }
-}
 
+    /**
+     * 读取一页数据，读满一页且还有下一行时生成下一页令牌
+     */
+    private ColumnarData getPage(QueryCursor cursor, int pageSize, KeysetPager pager, MemoryReservation reservation,
+                                 QueryResult result) throws SQLException {
+        ColumnarData data = cursor.newColumnarData();
+        while (data.getRowCount() < pageSize && cursor.next()) {
+            cursor.appendRow(data);
+            if (!reservation.resize(data.getBytes())) {
+                // 内存不足时提前结束本页，下一页从已读取的最后一行之后继续
+                result.setNextPageToken(pager.encode(cursor.getResultSet(), cursor.getColumns()));
+                return data;
+            }
+        }
+        if (data.getRowCount() == pageSize) {
+            // 令牌取本页最后一行的键值，需在移动游标前读取
+            String nextPageToken = pager.encode(cursor.getResultSet(), cursor.getColumns());
+            if (cursor.next()) {
+                result.setNextPageToken(nextPageToken);
+            }
+        }
+        return data;
+    }
+}
@@ -0,0 +1,193 @@
+package com.zerov.shj.core;
+
+import com.zerov.shj.core.dialect.QueryDialect;
+import com.zerov.shj.core.model.ColumnSchema;
+import com.zerov.shj.core.model.ColumnVector;
+import com.zerov.shj.core.model.ColumnarData;
+import com.zerov.shj.core.reader.RowReaderPlan;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * 查询游标
+ * 持有连接、语句和结果集，逐行读取结果，关闭时恢复会话并归还连接
+ */
+@Slf4j
+public class QueryCursor implements AutoCloseable {
+
+    private final Connection connection;
+    private final boolean autoCommitChanged;
+    private final Statement statement;
+    private final ResultSet resultSet;
+    private final RowReaderPlan plan;
+
+    /**
+     * 大字段所在查询的句柄
+     */
+    private String lobToken;
+
+    private QueryCursor(Connection connection, boolean autoCommitChanged, Statement statement, ResultSet resultSet,
+                        CursorOptions options) throws SQLException {
+        this.connection = connection;
+        this.autoCommitChanged = autoCommitChanged;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        if (options.getPlanCache() != null && options.getPlanKey() != null) {
+            this.plan = options.getPlanCache().getPlan(options.getPlanKey(), metaData, options.getReaderOptions());
+        } else {
+            this.plan = RowReaderPlan.compile(metaData, options.getReaderOptions());
+        }
+    }
+
+    /**
+     * 打开游标，失败时关闭连接
+     *
+     * @param connection 数据库连接，由游标负责关闭
+     * @param sql        已验证的SQL
+     * @param options    游标参数
+     */
+    public static QueryCursor open(Connection connection, String sql, CursorOptions options) throws SQLException {
+        boolean autoCommitChanged = false;
+        Statement statement = null;
+        boolean prepared = options.getParams() != null && !options.getParams().isEmpty();
+        try {
+            if (options.isStreaming()) {
+                autoCommitChanged = QueryDialect.prepareStreamingSession(connection, options.getDbType());
+                statement = prepared
+                        ? QueryDialect.prepareStreamingStatement(connection, options.getDbType(), sql, options.getFetchSize())
+                        : QueryDialect.createStreamingStatement(connection, options.getDbType(), options.getFetchSize());
+            } else {
+                statement = prepared ? connection.prepareStatement(sql) : connection.createStatement();
+            }
+            // 设置查询超时时间
+            if (options.getTimeout() != null) {
+                statement.setQueryTimeout(options.getTimeout());
+            }
+            statement.setMaxRows(options.getMaxRows());
+            ResultSet resultSet;
+            if (prepared) {
+                PreparedStatement preparedStatement = (PreparedStatement) statement;
+                for (int i = 0; i < options.getParams().size(); i++) {
+                    preparedStatement.setObject(i + 1, options.getParams().get(i));
+                }
+                resultSet = preparedStatement.executeQuery();
+            } else {
+                resultSet = statement.executeQuery(sql);
+            }
+            return new QueryCursor(connection, autoCommitChanged, statement, resultSet, options);
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(statement);
+            try {
+                QueryDialect.restoreSession(connection, autoCommitChanged);
+            } catch (SQLException ex) {
+                log.debug("恢复会话失败: {}", ex.getMessage());
+            }
+            closeQuietly(connection);
+            throw e;
+        }
+    }
+
+    /**
+     * 列名列表
+     */
+    public List<String> getColumns() {
+        return plan.getColumns();
+    }
+
+    /**
+     * 列结构
+     */
+    public List<ColumnSchema> getSchema() {
+        return plan.getSchema();
+    }
+
+    /**
+     * 移动到下一行
+     *
+     * @return 是否还有数据
+     */
+    public boolean next() throws SQLException {
+        return resultSet.next();
+    }
+
+    /**
+     * 是否包含按句柄输出的大字段列
+     */
+    public boolean hasLobColumns() {
+        return plan.hasLobColumns();
+    }
+
+    /**
+     * 设置大字段所在查询的句柄，须在newColumnarData之前调用
+     */
+    public void setLobToken(String lobToken) {
+        this.lobToken = lobToken;
+    }
+
+    /**
+     * 按列类型创建空的列式结果
+     */
+    public ColumnarData newColumnarData() {
+        return newColumnarData(1);
+    }
+
+    /**
+     * 创建列式数据
+     *
+     * @param firstRow 第一行在结果中的行号，从1开始，用于生成大字段句柄
+     */
+    public ColumnarData newColumnarData(long firstRow) {
+        ColumnarData data = plan.newColumnarData();
+        for (int i = 0; i < data.getColumnCount(); i++) {
+            if (data.getVector(i) instanceof ColumnVector.LobVector) {
+                ((ColumnVector.LobVector) data.getVector(i)).bind(lobToken, i + 1, firstRow);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * 当前行所在的结果集，用于按需读取大字段
+     */
+    public ResultSet getResultSet() {
+        return resultSet;
+    }
+
+    /**
+     * 将当前行追加到列式结果
+     */
+    public void appendRow(ColumnarData data) throws SQLException {
+        plan.readRow(resultSet, data);
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(resultSet);
+        closeQuietly(statement);
+        try {
+            QueryDialect.restoreSession(connection, autoCommitChanged);
+        } catch (SQLException e) {
+            log.debug("恢复会话失败: {}", e.getMessage());
+        }
+        closeQuietly(connection);
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            log.debug("关闭资源失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.zerov.shj.core.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文件解析结果缓存配置类
+ * 文件数据源按文件名和内容版本缓存解析结果，文件变化时失效
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "query.file-cache")
+public class FileCacheConfig {
+
+    /**
+     * 是否缓存文件的解析结果
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存的解析结果的总字节数上限，超出时按访问频率淘汰
+     */
+    private long maxBytes = 128 * 1024 * 1024;
+
+    /**
+     * 是否监听文件目录的变化；关闭或无法监听时每次请求检查文件的修改时间和大小
+     */
+    private boolean watch = true;
+
+    /**
+     * 已缓存的文件变化后是否在后台重新解析，否则在下一次请求时解析
+     */
+    private boolean reparse = false;
+
+    /**
+     * 文件变化后等待多久再重新解析(毫秒)，避免读到写入中的文件
+     */
+    private long reparseDelay = 1000;
+}
@@ -0,0 +1,190 @@
+package com.zerov.shj.core.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.zerov.shj.core.model.CacheStatus;
+import com.zerov.shj.core.model.QueryResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询结果缓存
+ * 按结果占用的字节数限制总大小，由Caffeine按W-TinyLFU淘汰，每个结果按各自的缓存时间过期
+ */
+@Slf4j
+@Component
+public class QueryResultCache {
+
+    /**
+     * 每个缓存项除结果数据外的估算开销
+     */
+    private static final long ENTRY_OVERHEAD = 512;
+
+    @Autowired
+    private CacheConfig cacheConfig;
+    @Autowired
+    private QueryCoalescer queryCoalescer;
+    @Autowired
+    private RefreshScheduler refreshScheduler;
+
+    private Cache<QueryKey, Entry> cache;
+
+    @PostConstruct
+    public void init() {
+        if (!cacheConfig.isEnabled() || cacheConfig.getMaxBytes() <= 0) {
+            return;
+        }
+        cache = Caffeine.newBuilder()
+                .maximumWeight(cacheConfig.getMaxBytes())
+                .weigher((QueryKey key, Entry entry) -> (int) Math.min(Integer.MAX_VALUE, entry.bytes))
+                .expireAfter(new Expiry<QueryKey, Entry>() {
+                    @Override
+                    public long expireAfterCreate(QueryKey key, Entry entry, long currentTime) {
+                        return entry.expireNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(QueryKey key, Entry entry, long currentTime, long currentDuration) {
+                        return entry.expireNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(QueryKey key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * 获取缓存的结果，返回副本，调用方可修改执行时间等字段
+     * 超过缓存时间但仍在maxStale内的结果标记为stale
+     *
+     * @return 未命中时返回null
+     */
+    public QueryResult get(QueryKey key) {
+        if (cache == null) {
+            return null;
+        }
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        QueryResult result = copyOf(entry.result, true);
+        result.setStale(System.currentTimeMillis() >= entry.freshUntil);
+        return result;
+    }
+
+    /**
+     * 缓存查询结果
+     *
+     * @param ttl 缓存时间(毫秒)，超过maxTtl时取maxTtl
+     * @return 实际的缓存时间(毫秒)，未缓存时返回0
+     */
+    public long put(QueryKey key, QueryResult result, long ttl) {
+        if (cache == null || ttl <= 0) {
+            return 0;
+        }
+        long bytes = ENTRY_OVERHEAD + key.getSql().length() * 2L + key.getParams().size() * 32L;
+        if (result.getColumnar() != null) {
+            bytes += result.getColumnar().getBytes();
+        }
+        // 单个结果超过总大小时不缓存，避免挤掉所有其他结果
+        if (bytes > cacheConfig.getMaxBytes()) {
+            log.debug("查询结果过大，不缓存: {} bytes", bytes);
+            return 0;
+        }
+        long ttlMillis = cacheConfig.getMaxTtl() > 0 ? Math.min(ttl, cacheConfig.getMaxTtl()) : ttl;
+        // 启用后台刷新时保留过期的结果，刷新期间或数据库响应慢时返回旧结果
+        long staleMillis = cacheConfig.isRefresh() ? Math.max(0, cacheConfig.getMaxStale()) : 0;
+        cache.put(key, new Entry(copyOf(result, false), bytes, System.currentTimeMillis() + ttlMillis,
+                TimeUnit.MILLISECONDS.toNanos(ttlMillis + staleMillis)));
+        return ttlMillis;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * 缓存使用情况
+     */
+    public CacheStatus getStatus() {
+        CacheStatus status = new CacheStatus();
+        status.setEnabled(cache != null);
+        status.setMaxBytes(cacheConfig.getMaxBytes());
+        status.setInFlight(queryCoalescer.getInFlightCount());
+        status.setCoalescedCount(queryCoalescer.getCoalescedCount());
+        status.setRefreshTasks(refreshScheduler.getTaskCount());
+        status.setRefreshCount(refreshScheduler.getRefreshCount());
+        if (cache == null) {
+            return status;
+        }
+        CacheStats stats = cache.stats();
+        status.setEntries(cache.estimatedSize());
+        status.setBytes(cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+        status.setHitCount(stats.hitCount());
+        status.setMissCount(stats.missCount());
+        status.setHitRatio(stats.hitRate());
+        status.setEvictionCount(stats.evictionCount());
+        return status;
+    }
+
+    /**
+     * 复制结果，共享只读的列式数据和行标识；按请求计算的增量不复制
+     *
+     * @param cached 副本是否标记为来自缓存
+     */
+    static QueryResult copyOf(QueryResult source, boolean cached) {
+        QueryResult result = new QueryResult();
+        result.setSuccess(source.isSuccess());
+        result.setMessage(source.getMessage());
+        result.setColumns(source.getColumns());
+        result.setSchema(source.getSchema());
+        result.setColumnar(source.getColumnar());
+        if (source.getColumnar() == null) {
+            result.setData(source.getData());
+        }
+        result.setTotalRows(source.getTotalRows());
+        result.setExecutionTime(source.getExecutionTime());
+        result.setNextPageToken(source.getNextPageToken());
+        result.setTruncated(source.isTruncated());
+        result.setVersion(source.getVersion());
+        result.setRowIds(source.getRowIds());
+        result.setCached(cached);
+        return result;
+    }
+
+    /**
+     * 缓存项
+     */
+    private static class Entry {
+        private final QueryResult result;
+        private final long bytes;
+        private final long freshUntil;
+        private final long expireNanos;
+
+        Entry(QueryResult result, long bytes, long freshUntil, long expireNanos) {
+            this.result = result;
+            this.bytes = bytes;
+            this.freshUntil = freshUntil;
+            this.expireNanos = expireNanos;
+        }
+    }
+}
@@ -39,6 +39,21 @@ public class DatabaseConfig {
      */
     private Integer queryTimeout = 30;
     
+    /**
+     * 连接池初始化连接数（为空时使用全局配置）
+     */
+    private Integer initialSize;
+    
+    /**
+     * 连接池最小空闲连接数（为空时使用全局配置）
+     */
+    private Integer minIdle;
+    
+    /**
+     * 连接池最大活动连接数（为空时使用全局配置）
+     */
+    private Integer maxActive;
+    
     // 原始配置字段
     private String host;
     private Integer port;
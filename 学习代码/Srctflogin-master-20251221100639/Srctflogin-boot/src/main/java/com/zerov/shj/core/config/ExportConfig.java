@@ -0,0 +1,25 @@
+package com.zerov.shj.core.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 导出配置类
+ * 导出不受query.security.max-rows限制，使用单独的行数和并发限制
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "query.export")
+public class ExportConfig {
+
+    /**
+     * 单次导出的最大行数
+     */
+    private int maxRows = 1000000;
+
+    /**
+     * 同时进行的导出数量上限，超出时直接拒绝
+     */
+    private int maxConcurrent = 2;
+}
@@ -0,0 +1,40 @@
+package com.zerov.shj.core.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 大字段配置类
+ * 用于管理CLOB/BLOB/长文本列在查询结果中的输出方式
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "query.lob")
+public class LobConfig {
+
+    /**
+     * 默认输出方式：handle（只返回句柄和大小）、preview（句柄、大小和截断预览）、inline（直接输出完整值）
+     */
+    private String mode = "handle";
+
+    /**
+     * 预览的最大字符数
+     */
+    private int previewLength = 200;
+
+    /**
+     * VARCHAR长度超过该值时按大字段处理
+     */
+    private int largeVarcharLength = 4000;
+
+    /**
+     * 句柄有效期(毫秒)
+     */
+    private long handleTtl = 600000;
+
+    /**
+     * 最多同时保留的句柄数量
+     */
+    private int maxHandles = 10000;
+}
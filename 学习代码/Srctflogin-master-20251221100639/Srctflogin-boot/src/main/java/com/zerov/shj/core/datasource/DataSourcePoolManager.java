@@ -0,0 +1,216 @@
+package com.zerov.shj.core.datasource;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.zerov.shj.core.config.DatabaseConfig;
+import com.zerov.shj.core.config.DatabaseType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据源连接池管理器
+ * 按解析后的数据库配置缓存Druid连接池，避免每次查询重新建立连接
+ */
+@Slf4j
+@Component
+public class DataSourcePoolManager {
+
+    @Autowired
+    private PoolConfig poolConfig;
+
+    private final Map<String, PoolHolder> pools = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService evictor;
+
+    @PostConstruct
+    public void init() {
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "shj-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdlePools, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        for (PoolHolder holder : pools.values()) {
+            holder.close();
+        }
+        pools.clear();
+    }
+
+    /**
+     * 从连接池获取连接，连接池不存在时创建并预热
+     *
+     * @param config 已解析驱动的数据库配置
+     * @param driver 驱动实例
+     * @param props  连接属性（不含用户名密码）
+     * @return 池化连接，关闭即归还
+     */
+    public Connection getConnection(DatabaseConfig config, Driver driver, Properties props) throws SQLException {
+        String key = fingerprint(config);
+        PoolHolder holder = pools.computeIfAbsent(key, k -> new PoolHolder(k));
+        try {
+            return holder.getDataSource(config, driver, props).getConnection();
+        } catch (SQLException e) {
+            // 初始化失败或持续无法创建连接的连接池不保留，下次请求重新创建
+            if ((!holder.isReady() || holder.isFailing()) && pools.remove(key, holder)) {
+                holder.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 数据源指纹，相同连接信息的配置共享同一个连接池
+     */
+    public static String fingerprint(DatabaseConfig config) {
+        String raw = config.getType() + "|" + config.getDriverClassName() + "|" + config.getUrl()
+                + "|" + config.getUsername() + "|" + config.getPassword();
+        return DigestUtils.md5DigestAsHex(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 关闭长时间未使用的连接池
+     */
+    private void evictIdlePools() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, PoolHolder>> iterator = pools.entrySet().iterator();
+        while (iterator.hasNext()) {
+            PoolHolder holder = iterator.next().getValue();
+            if (holder.isIdle(now, poolConfig.getPoolIdleTimeoutMillis())) {
+                iterator.remove();
+                holder.close();
+                log.info("关闭空闲连接池: {}", holder.key);
+            }
+        }
+    }
+
+    private DruidDataSource createDataSource(String key, DatabaseConfig config, Driver driver, Properties props) throws SQLException {
+        DruidDataSource dataSource = new DruidDataSource();
+        dataSource.setName("shj-" + key.substring(0, 8));
+        dataSource.setUrl(config.getUrl());
+        dataSource.setUsername(config.getUsername());
+        dataSource.setPassword(config.getPassword());
+        dataSource.setDriver(driver);
+        dataSource.setConnectProperties(props);
+
+        // 单个数据源可覆盖全局池大小
+        int maxActive = config.getMaxActive() != null ? config.getMaxActive() : poolConfig.getMaxActive();
+        int minIdle = Math.min(config.getMinIdle() != null ? config.getMinIdle() : poolConfig.getMinIdle(), maxActive);
+        int initialSize = Math.min(config.getInitialSize() != null ? config.getInitialSize() : poolConfig.getInitialSize(), maxActive);
+        dataSource.setMaxActive(maxActive);
+        dataSource.setMinIdle(minIdle);
+        dataSource.setInitialSize(initialSize);
+        dataSource.setMaxWait(poolConfig.getMaxWait());
+
+        // 空闲连接回收与保活
+        dataSource.setMinEvictableIdleTimeMillis(poolConfig.getMinEvictableIdleTimeMillis());
+        dataSource.setTimeBetweenEvictionRunsMillis(poolConfig.getTimeBetweenEvictionRunsMillis());
+        dataSource.setKeepAlive(true);
+        dataSource.setTestWhileIdle(true);
+        dataSource.setTestOnBorrow(false);
+        dataSource.setTestOnReturn(false);
+        dataSource.setValidationQuery(getValidationQuery(config.getType()));
+
+        // 按连接缓存预编译语句，支持服务端预编译的驱动可复用执行计划
+        if (poolConfig.getPreparedStatementCacheSize() > 0) {
+            dataSource.setPoolPreparedStatements(true);
+            dataSource.setMaxPoolPreparedStatementPerConnectionSize(poolConfig.getPreparedStatementCacheSize());
+        }
+
+        // 连接失败时后台按间隔重试，连续失败期间获取连接立即失败而不等待maxWait
+        dataSource.setConnectionErrorRetryAttempts(1);
+        dataSource.setTimeBetweenConnectErrorMillis(poolConfig.getConnectErrorRetryIntervalMillis());
+        dataSource.setFailFast(true);
+
+        try {
+            // 按initialSize预热连接
+            dataSource.init();
+        } catch (SQLException e) {
+            dataSource.close();
+            throw e;
+        }
+        log.info("创建连接池: key={}, url={}, initialSize={}, maxActive={}", key, config.getUrl(), initialSize, maxActive);
+        return dataSource;
+    }
+
+    private String getValidationQuery(String type) {
+        DatabaseType dbType = DatabaseType.fromString(type);
+        if (dbType == DatabaseType.oracle) {
+            return "SELECT 1 FROM DUAL";
+        }
+        return "SELECT 1";
+    }
+
+    /**
+     * 连接池持有者，延迟初始化以避免在ConcurrentHashMap锁内建立连接
+     */
+    private class PoolHolder {
+        private final String key;
+        private volatile DruidDataSource dataSource;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        PoolHolder(String key) {
+            this.key = key;
+        }
+
+        DruidDataSource getDataSource(DatabaseConfig config, Driver driver, Properties props) throws SQLException {
+            lastUsed = System.currentTimeMillis();
+            DruidDataSource current = dataSource;
+            if (current == null) {
+                synchronized (this) {
+                    current = dataSource;
+                    if (current == null) {
+                        current = createDataSource(key, config, driver, props);
+                        dataSource = current;
+                    }
+                }
+            }
+            return current;
+        }
+
+        boolean isReady() {
+            return dataSource != null;
+        }
+
+        /**
+         * 连接池是否持续无法创建连接（如数据库重启、密码修改）
+         */
+        boolean isFailing() {
+            DruidDataSource current = dataSource;
+            return current != null && current.isFailContinuous();
+        }
+
+        boolean isIdle(long now, long timeout) {
+            DruidDataSource current = dataSource;
+            return current != null && current.getActiveCount() == 0 && now - lastUsed > timeout;
+        }
+
+        void close() {
+            DruidDataSource current = dataSource;
+            if (current != null) {
+                current.close();
+            }
+        }
+    }
+}
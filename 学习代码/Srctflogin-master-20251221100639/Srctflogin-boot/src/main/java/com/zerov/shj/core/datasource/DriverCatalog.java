@@ -0,0 +1,345 @@
+package com.zerov.shj.core.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Driver;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * 驱动目录
+ * 启动时扫描一次drivers目录，为每个jar建立类加载器并索引其声明的驱动类，
+ * 之后直接通过缓存的Driver实例建立连接，不再经过DriverManager；
+ * 未指定驱动类名时按URL依次匹配classpath和drivers目录中声明的驱动
+ */
+@Slf4j
+@Component
+public class DriverCatalog {
+
+    private static final String DRIVER_SERVICE = "META-INF/services/java.sql.Driver";
+
+    /**
+     * 记录的不存在的驱动类名数量上限
+     */
+    private static final int MAX_MISSING_DRIVERS = 1000;
+
+    /**
+     * 驱动类名 -> 所在jar的类加载器
+     */
+    private final Map<String, ClassLoader> driverIndex = new ConcurrentHashMap<>();
+
+    /**
+     * drivers目录下每个jar的类加载器
+     */
+    private final List<ClassLoader> jarClassLoaders = new CopyOnWriteArrayList<>();
+
+    /**
+     * 驱动类名 -> 驱动实例
+     */
+    private final Map<String, Driver> drivers = new ConcurrentHashMap<>();
+
+    /**
+     * classpath中通过服务文件声明的驱动实例
+     */
+    private final List<Driver> classpathDrivers = new CopyOnWriteArrayList<>();
+
+    /**
+     * 不存在的驱动类名，drivers目录启动后不变，避免每次请求重新扫描所有jar
+     */
+    private final Set<String> missingDrivers = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        loadClasspathDrivers();
+        try {
+            List<File> jarFiles = locateDriverJars();
+            for (File jarFile : jarFiles) {
+                indexJar(jarFile);
+            }
+            log.info("驱动目录初始化完成: {} 个jar, {} 个驱动类", jarClassLoaders.size(), driverIndex.size());
+        } catch (Exception e) {
+            // drivers目录缺失不影响classpath中的驱动使用
+            log.warn("初始化驱动目录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取驱动实例
+     *
+     * @param driverClassName 驱动类名
+     * @return 缓存的驱动实例
+     */
+    public Driver getDriver(String driverClassName) throws SQLException {
+        Driver driver = drivers.get(driverClassName);
+        if (driver != null) {
+            return driver;
+        }
+        driver = createDriver(driverClassName);
+        Driver existing = drivers.putIfAbsent(driverClassName, driver);
+        return existing != null ? existing : driver;
+    }
+
+    /**
+     * 获取驱动实例，驱动类名为空或驱动类不存在时按URL匹配classpath和驱动目录中声明的驱动
+     *
+     * @param driverClassName 驱动类名，可为空
+     * @param url             连接URL
+     * @return 缓存的驱动实例
+     */
+    public Driver getDriver(String driverClassName, String url) throws SQLException {
+        SQLException failure = null;
+        if (driverClassName != null) {
+            try {
+                return getDriver(driverClassName);
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        Driver driver = url != null ? findDriver(url) : null;
+        if (driver == null) {
+            throw failure != null ? failure : new SQLException("没有可用于该连接URL的驱动: " + url);
+        }
+        // 不按驱动类名缓存匹配结果，同一类名可能用于不同的URL
+        if (driverClassName != null) {
+            log.warn("驱动类 {} 不存在，使用匹配URL的驱动: {}", driverClassName, driver.getClass().getName());
+        }
+        return driver;
+    }
+
+    /**
+     * 按URL匹配驱动，无法加载的驱动跳过
+     */
+    private Driver findDriver(String url) {
+        for (Driver driver : classpathDrivers) {
+            if (acceptsURL(driver, url)) {
+                return driver;
+            }
+        }
+        for (String indexedClassName : driverIndex.keySet()) {
+            Driver driver;
+            try {
+                driver = getDriver(indexedClassName);
+            } catch (SQLException e) {
+                log.debug("跳过无法加载的驱动: {}, {}", indexedClassName, e.getMessage());
+                continue;
+            }
+            if (acceptsURL(driver, url)) {
+                return driver;
+            }
+        }
+        return null;
+    }
+
+    private static boolean acceptsURL(Driver driver, String url) {
+        try {
+            return driver.acceptsURL(url);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Driver createDriver(String driverClassName) throws SQLException {
+        if (missingDrivers.contains(driverClassName)) {
+            throw notFound(driverClassName);
+        }
+        Class<?> driverClass;
+        try {
+            driverClass = findDriverClass(driverClassName);
+        } catch (LinkageError e) {
+            // 驱动类依赖缺失或版本不兼容
+            throw new SQLException("加载驱动类失败: " + driverClassName, e);
+        }
+        if (driverClass == null) {
+            if (missingDrivers.size() < MAX_MISSING_DRIVERS) {
+                missingDrivers.add(driverClassName);
+            }
+            throw notFound(driverClassName);
+        }
+        try {
+            Driver driver = (Driver) driverClass.getDeclaredConstructor().newInstance();
+            log.info("成功加载驱动: {}", driverClassName);
+            return driver;
+        } catch (Exception e) {
+            throw new SQLException("实例化驱动失败: " + driverClassName, e);
+        }
+    }
+
+    private static SQLException notFound(String driverClassName) {
+        return new SQLException("无法找到驱动类: " + driverClassName + "，请确认drivers目录中存在对应的jar文件");
+    }
+
+    /**
+     * 加载classpath中声明的驱动，单个驱动加载失败不影响其他驱动
+     */
+    private void loadClasspathDrivers() {
+        Iterator<Driver> iterator = ServiceLoader.load(Driver.class, getClass().getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                classpathDrivers.add(iterator.next());
+            } catch (ServiceConfigurationError | LinkageError e) {
+                log.warn("加载classpath中的驱动失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private Class<?> findDriverClass(String driverClassName) {
+        // 首先尝试classpath
+        try {
+            return Class.forName(driverClassName, true, getClass().getClassLoader());
+        } catch (ClassNotFoundException e) {
+            log.debug("classpath中不存在驱动: {}", driverClassName);
+        }
+
+        // 其次使用索引
+        ClassLoader indexed = driverIndex.get(driverClassName);
+        if (indexed != null) {
+            try {
+                return Class.forName(driverClassName, true, indexed);
+            } catch (ClassNotFoundException e) {
+                log.debug("索引的jar中不存在驱动: {}", driverClassName);
+            }
+        }
+
+        // 最后在各jar中查找未在服务文件中声明的驱动类（如旧版类名）
+        for (ClassLoader classLoader : jarClassLoaders) {
+            try {
+                Class<?> driverClass = Class.forName(driverClassName, true, classLoader);
+                driverIndex.put(driverClassName, classLoader);
+                return driverClass;
+            } catch (ClassNotFoundException e) {
+                // 继续查找下一个jar
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 为jar建立类加载器，并读取其声明的驱动类
+     */
+    private void indexJar(File file) {
+        try {
+            URLClassLoader classLoader = new URLClassLoader(new URL[]{file.toURI().toURL()}, getClass().getClassLoader());
+            jarClassLoaders.add(classLoader);
+            try (JarFile jarFile = new JarFile(file)) {
+                JarEntry entry = jarFile.getJarEntry(DRIVER_SERVICE);
+                if (entry == null) {
+                    return;
+                }
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(jarFile.getInputStream(entry), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String className = line.trim();
+                        if (!className.isEmpty() && !className.startsWith("#")) {
+                            driverIndex.putIfAbsent(className, classLoader);
+                            log.debug("索引驱动: {} -> {}", className, file.getName());
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("索引驱动jar失败: {} -> {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * 定位drivers目录下的jar文件，位于jar包内部时只提取一次
+     */
+    private List<File> locateDriverJars() throws Exception {
+        // 首先尝试从 classpath 加载（支持 jar 包内部）
+        URL driversUrl = getClass().getClassLoader().getResource("drivers");
+        if (driversUrl == null) {
+            // 尝试相对路径
+            String[] possiblePaths = {
+                    "drivers",
+                    "./drivers",
+                    "../drivers"
+            };
+            for (String path : possiblePaths) {
+                File testDir = new File(path);
+                if (testDir.exists() && testDir.isDirectory()) {
+                    driversUrl = testDir.toURI().toURL();
+                    break;
+                }
+            }
+        }
+
+        if (driversUrl == null) {
+            throw new Exception("无法找到drivers目录，请确保drivers目录存在于classpath或jar包同级目录");
+        }
+
+        log.info("找到drivers资源: {}", driversUrl);
+
+        if ("jar".equals(driversUrl.getProtocol())) {
+            return extractJarsFromJar(driversUrl);
+        }
+
+        File driversDir = new File(driversUrl.toURI());
+        File[] jarFiles = driversDir.listFiles((dir, name) -> name.endsWith(".jar"));
+        List<File> result = new ArrayList<>();
+        if (jarFiles != null) {
+            for (File jarFile : jarFiles) {
+                result.add(jarFile);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 将jar包内部drivers目录中的jar提取到同一个临时目录
+     */
+    private List<File> extractJarsFromJar(URL driversUrl) throws Exception {
+        List<File> result = new ArrayList<>();
+        JarURLConnection jarConnection = (JarURLConnection) driversUrl.openConnection();
+        JarFile jarFile = jarConnection.getJarFile();
+        String driversPath = jarConnection.getEntryName();
+
+        Path tempDir = Files.createTempDirectory("shj-drivers-");
+        tempDir.toFile().deleteOnExit();
+
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            String entryName = entry.getName();
+            if (entryName.startsWith(driversPath + "/") && entryName.endsWith(".jar") && !entry.isDirectory()) {
+                File target = tempDir.resolve(entryName.substring(entryName.lastIndexOf("/") + 1)).toFile();
+                target.deleteOnExit();
+                try (InputStream is = jarFile.getInputStream(entry);
+                     FileOutputStream fos = new FileOutputStream(target)) {
+                    IOUtils.copy(is, fos);
+                }
+                result.add(target);
+                log.info("提取jar文件到临时目录: {}", target);
+            }
+        }
+        return result;
+    }
+}
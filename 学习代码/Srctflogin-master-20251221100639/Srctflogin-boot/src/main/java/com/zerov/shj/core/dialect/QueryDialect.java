@@ -0,0 +1,184 @@
+package com.zerov.shj.core.dialect;
+
+import com.alibaba.druid.DbType;
+import com.zerov.shj.core.config.DatabaseType;
+import com.zerov.shj.core.sql.SqlLexer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 查询方言
+ * 按数据库类型处理各驱动在流式读取和行数限制上的差异
+ */
+public final class QueryDialect {
+
+    /**
+     * SQL Server的SELECT开头（可带DISTINCT/ALL），已带TOP时不匹配
+     */
+    private static final Pattern SELECT_HEAD = Pattern.compile(
+            "^\\s*SELECT(\\s++(DISTINCT|ALL)\\b)?+\\s++(?!TOP\\b)",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    /**
+     * 末尾的分号
+     */
+    private static final Pattern TRAILING_SEMICOLON = Pattern.compile("[\\s;]+$");
+
+    /**
+     * SQL Server中插入TOP只作用于第一个SELECT或与之冲突的最外层子句
+     */
+    private static final Set<String> TOP_CONFLICTS = new HashSet<>(Arrays.asList(
+            "UNION", "INTERSECT", "EXCEPT", "OFFSET"));
+
+    /**
+     * 各数据库中改写后的SQL在解析阶段失败的错误码（不执行查询，可直接用原SQL重试）：
+     * Oracle的列名重复，SQL Server的语法错误、子查询中的ORDER BY、派生表缺少或重复列名、TOP与OFFSET同用，
+     * ClickHouse的语法错误、重复列和别名冲突
+     */
+    private static final Map<DatabaseType, Set<Integer>> REWRITE_ERROR_CODES = new EnumMap<>(DatabaseType.class);
+
+    static {
+        REWRITE_ERROR_CODES.put(DatabaseType.oracle, new HashSet<>(Collections.singletonList(918)));
+        REWRITE_ERROR_CODES.put(DatabaseType.sqlserver, new HashSet<>(Arrays.asList(102, 1033, 8155, 8156, 10741)));
+        REWRITE_ERROR_CODES.put(DatabaseType.ck, new HashSet<>(Arrays.asList(15, 62, 179)));
+    }
+
+    private QueryDialect() {
+    }
+
+    /**
+     * 为流式读取调整会话设置
+     *
+     * @return 是否关闭了自动提交（读取结束后需要恢复）
+     */
+    public static boolean prepareStreamingSession(Connection connection, DatabaseType type) throws SQLException {
+        // PostgreSQL只有在关闭自动提交时才会按fetchSize使用游标
+        if (type == DatabaseType.pg && connection.getAutoCommit()) {
+            connection.setAutoCommit(false);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 恢复流式读取前的会话设置
+     */
+    public static void restoreSession(Connection connection, boolean autoCommitChanged) throws SQLException {
+        if (autoCommitChanged) {
+            // 只读查询，回滚即可结束事务
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * 创建只进只读的流式语句
+     */
+    public static Statement createStreamingStatement(Connection connection, DatabaseType type, int fetchSize) throws SQLException {
+        Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(getStreamingFetchSize(type, fetchSize));
+        return statement;
+    }
+
+    /**
+     * 创建只进只读的流式预编译语句
+     */
+    public static PreparedStatement prepareStreamingStatement(Connection connection, DatabaseType type, String sql,
+                                                              int fetchSize) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(getStreamingFetchSize(type, fetchSize));
+        return statement;
+    }
+
+    /**
+     * 获取流式读取时实际使用的fetchSize
+     */
+    public static int getStreamingFetchSize(DatabaseType type, int fetchSize) {
+        if (type == DatabaseType.mysql || type == DatabaseType.mariadb) {
+            // MySQL Connector/J 5.1只有Integer.MIN_VALUE才会逐行流式读取，否则一次性读入内存
+            return Integer.MIN_VALUE;
+        }
+        return fetchSize;
+    }
+
+    /**
+     * 将行数限制下推到数据库
+     * MySQL驱动的setMaxRows会设置SQL_SELECT_LIMIT，已在服务端生效，无需改写；
+     * 其余数据库按方言包装LIMIT/TOP/ROWNUM，让优化器按前N行生成执行计划
+     *
+     * @param sql   已验证的SELECT语句
+     * @param type  数据库类型，可为空
+     * @param limit 最大行数
+     * @return 改写后的SQL，无需改写时返回原SQL
+     */
+    public static String applyLimit(String sql, DatabaseType type, int limit) {
+        if (type == null) {
+            return sql;
+        }
+        String inner = TRAILING_SEMICOLON.matcher(sql).replaceAll("");
+        switch (type) {
+            case pg:
+            case ck:
+                // 换行包裹，避免原SQL末尾的行注释吞掉右括号
+                return "SELECT * FROM (\n" + inner + "\n) shj_limit LIMIT " + limit;
+            case sqlserver:
+                // 子查询中不允许ORDER BY，直接在SELECT后插入TOP；WITH开头的语句和最外层有UNION等时不改写，
+                // 仍由setMaxRows在服务端限制行数
+                Matcher matcher = SELECT_HEAD.matcher(inner);
+                if (matcher.find() && !hasTopLevelWord(inner, DbType.sqlserver, TOP_CONFLICTS)) {
+                    return inner.substring(0, matcher.end()) + "TOP " + limit + " " + inner.substring(matcher.end());
+                }
+                return sql;
+            case oracle:
+            case dm:
+                return "SELECT * FROM (\n" + inner + "\n) WHERE ROWNUM <= " + limit;
+            default:
+                return sql;
+        }
+    }
+
+    /**
+     * 改写行数限制后的SQL执行失败时，判断错误是否由改写引起
+     * 只有解析阶段的错误（SQLState为42类或各数据库对应的错误码）可以用原SQL重试，不会重复执行查询；
+     * 执行阶段的错误（锁等待、取消、数据错误等）直接返回
+     */
+    public static boolean isRewriteError(DatabaseType type, SQLException e) {
+        String sqlState = e.getSQLState();
+        if (sqlState != null && sqlState.startsWith("42")) {
+            return true;
+        }
+        Set<Integer> codes = type == null ? null : REWRITE_ERROR_CODES.get(type);
+        return codes != null && codes.contains(e.getErrorCode());
+    }
+
+    /**
+     * 最外层（不在括号中）是否出现指定的单词
+     */
+    private static boolean hasTopLevelWord(String sql, DbType dbType, Set<String> words) {
+        SqlLexer lexer = new SqlLexer(sql, dbType);
+        int depth = 0;
+        SqlLexer.TokenType type;
+        while ((type = lexer.nextSignificant()) != SqlLexer.TokenType.EOF) {
+            if (type == SqlLexer.TokenType.SYMBOL) {
+                char c = lexer.getChar();
+                depth += c == '(' ? 1 : c == ')' ? -1 : 0;
+            } else if (depth == 0 && type == SqlLexer.TokenType.WORD && words.contains(lexer.getText().toUpperCase())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,111 @@
+package com.zerov.shj.core.etag;
+
+import com.zerov.shj.core.memory.SpilledRowList;
+import com.zerov.shj.core.model.ColumnarData;
+import com.zerov.shj.core.model.QueryResult;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 结果的实体标签
+ * 查询结果按列式数据的内容哈希和响应中的其他字段生成，不需要序列化；文件按文件内容的MD5生成。
+ * 执行时间等每次都不同的字段不计入标签，因此均为弱标签
+ */
+@Component
+public class ETagGenerator {
+
+    /**
+     * 文件的标签，修改时间和大小不变时沿用
+     */
+    private final Map<String, FileTag> fileTags = new ConcurrentHashMap<>();
+
+    /**
+     * 生成查询结果的标签
+     *
+     * @param result 查询结果
+     * @param full   响应是否为完整的查询结果，否则只有数据列表
+     * @return 标签，失败和溢出到临时文件的结果返回null
+     */
+    public String forResult(QueryResult result, boolean full) {
+        if (!result.isSuccess() || result.getData() instanceof SpilledRowList) {
+            return null;
+        }
+        ColumnarData data = result.getColumnar();
+        if (data == null && result.getDelta() == null) {
+            return null;
+        }
+        StringBuilder content = new StringBuilder(full ? "result" : "data");
+        if (data != null) {
+            content.append('|').append(data.getValueMode()).append('|').append(Long.toHexString(data.getContentHash()));
+        }
+        if (full) {
+            // 增量结果的内容由基准版本和当前版本确定
+            content.append('|').append(result.getMessage())
+                    .append('|').append(result.getSchema())
+                    .append('|').append(result.isTruncated())
+                    .append('|').append(result.getNextPageToken())
+                    .append('|').append(result.getVersion())
+                    .append('|').append(result.getDelta() == null ? null : result.getDelta().getBaseVersion());
+        }
+        return weak(DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 生成文件的标签和修改时间
+     *
+     * @param url 文件地址
+     * @return 文件标签
+     */
+    public FileTag forFile(URL url) throws IOException {
+        URLConnection connection = url.openConnection();
+        try (InputStream in = connection.getInputStream()) {
+            long lastModified = connection.getLastModified();
+            long length = connection.getContentLengthLong();
+            String key = url.toString();
+            FileTag tag = fileTags.get(key);
+            if (tag == null || tag.lastModified != lastModified || tag.length != length) {
+                tag = new FileTag(weak(DigestUtils.md5DigestAsHex(in)), lastModified, length);
+                fileTags.put(key, tag);
+            }
+            return tag;
+        }
+    }
+
+    private static String weak(String hash) {
+        return "W/\"" + hash + "\"";
+    }
+
+    /**
+     * 文件的标签和修改时间
+     */
+    public static class FileTag {
+        private final String etag;
+        private final long lastModified;
+        private final long length;
+
+        FileTag(String etag, long lastModified, long length) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        /**
+         * 文件修改时间(毫秒)，未知时为0
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.zerov.shj.core.lob;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 大字段输出
+ */
+@FunctionalInterface
+public interface LobOutput {
+
+    /**
+     * 开始输出大字段
+     *
+     * @param binary 是否为二进制，否则为UTF-8文本
+     * @return 输出流
+     */
+    OutputStream open(boolean binary) throws IOException;
+}
@@ -0,0 +1,39 @@
+package com.zerov.shj.core.lob;
+
+import com.zerov.shj.core.config.DatabaseConfig;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 大字段所在的查询
+ * 按需获取大字段时重新执行该查询并定位到对应行
+ */
+@Data
+public class LobQuery {
+
+    /**
+     * 数据库配置
+     */
+    private DatabaseConfig config;
+
+    /**
+     * 已验证的SQL
+     */
+    private String sql;
+
+    /**
+     * 绑定参数
+     */
+    private List<Object> params;
+
+    /**
+     * 查询超时时间(秒)
+     */
+    private Integer timeout;
+
+    /**
+     * 过期时间
+     */
+    private long expireAt;
+}
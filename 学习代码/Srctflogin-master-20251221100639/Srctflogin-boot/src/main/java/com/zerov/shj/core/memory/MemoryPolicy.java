@@ -0,0 +1,37 @@
+package com.zerov.shj.core.memory;
+
+/**
+ * 内存预算用尽时的处理方式
+ */
+public enum MemoryPolicy {
+
+    /**
+     * 等待其他请求释放内存，超时后查询失败
+     */
+    block,
+
+    /**
+     * 停止读取，返回已读取的部分结果
+     */
+    truncate,
+
+    /**
+     * 超出预算的行写入临时文件，输出时顺序读回
+     */
+    spill;
+
+    /**
+     * 根据字符串获取处理方式，为空或无法识别时使用默认值
+     */
+    public static MemoryPolicy fromString(String policy, MemoryPolicy defaultPolicy) {
+        if (policy != null) {
+            String lowerPolicy = policy.toLowerCase().trim();
+            for (MemoryPolicy memoryPolicy : values()) {
+                if (memoryPolicy.name().equals(lowerPolicy)) {
+                    return memoryPolicy;
+                }
+            }
+        }
+        return defaultPolicy;
+    }
+}
@@ -0,0 +1,73 @@
+package com.zerov.shj.core.memory;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 部分行溢出到临时文件的结果
+ * 内存中的行在前，溢出的行在后；遍历时顺序读回临时文件，不支持高效的随机访问，
+ * 因此不实现RandomAccess，序列化时按迭代器输出
+ */
+public class SpilledRowList extends AbstractList<Map<String, Object>> {
+
+    private final List<Map<String, Object>> head;
+    private final SpillableRowBuffer buffer;
+
+    public SpilledRowList(List<Map<String, Object>> head, SpillableRowBuffer buffer) {
+        this.head = head;
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, head.size() + buffer.getRowCount());
+    }
+
+    /**
+     * 溢出部分按顺序扫描定位，仅用于少量访问
+     */
+    @Override
+    public Map<String, Object> get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        if (index < head.size()) {
+            return head.get(index);
+        }
+        Iterator<Map<String, Object>> iterator = buffer.iterator();
+        for (int i = head.size(); i < index; i++) {
+            iterator.next();
+        }
+        return iterator.next();
+    }
+
+    @Override
+    public Iterator<Map<String, Object>> iterator() {
+        return new Iterator<Map<String, Object>>() {
+            private final Iterator<Map<String, Object>> headIterator = head.iterator();
+            private Iterator<Map<String, Object>> spillIterator;
+
+            @Override
+            public boolean hasNext() {
+                if (headIterator.hasNext()) {
+                    return true;
+                }
+                if (spillIterator == null) {
+                    spillIterator = buffer.iterator();
+                }
+                return spillIterator.hasNext();
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return headIterator.hasNext() ? headIterator.next() : spillIterator.next();
+            }
+        };
+    }
+}
@@ -0,0 +1,245 @@
+package com.zerov.shj.core.model;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * 列式查询结果
+ * 所有行共享列名列表，每列一个类型化的列存储，按取值模式输出字符串或原生类型
+ */
+public class ColumnarData {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final List<String> columns;
+    private final ColumnVector[] vectors;
+    private final ValueMode valueMode;
+    private int rowCount;
+
+    /**
+     * 对外可见的列：重名列只保留最后一列，顺序按首次出现（与逐行put到LinkedHashMap一致）
+     */
+    private final int[] visibleColumns;
+    private final Map<String, Integer> columnIndex;
+
+    /**
+     * 内容哈希，按需计算，行变化时清除
+     */
+    private volatile Long contentHash;
+
+    public ColumnarData(List<String> columns, ColumnVector[] vectors) {
+        this(columns, vectors, ValueMode.legacy);
+    }
+
+    public ColumnarData(List<String> columns, ColumnVector[] vectors, ValueMode valueMode) {
+        this.columns = columns;
+        this.vectors = vectors;
+        this.valueMode = valueMode;
+        Map<String, Integer> lastIndex = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            lastIndex.put(columns.get(i), i);
+        }
+        this.columnIndex = new HashMap<>(lastIndex);
+        this.visibleColumns = new int[lastIndex.size()];
+        int i = 0;
+        for (Integer index : lastIndex.values()) {
+            visibleColumns[i++] = index;
+        }
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public ColumnVector getVector(int columnIndex) {
+        return vectors[columnIndex];
+    }
+
+    public ValueMode getValueMode() {
+        return valueMode;
+    }
+
+    public int getColumnCount() {
+        return vectors.length;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 估算占用的字节数
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (ColumnVector vector : vectors) {
+            bytes += vector.getBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * 对外可见的列序号
+     */
+    public int[] getVisibleColumns() {
+        return visibleColumns;
+    }
+
+    /**
+     * 清空所有行，用于分批输出时复用
+     */
+    public void clear() {
+        for (ColumnVector vector : vectors) {
+            vector.clear();
+        }
+        rowCount = 0;
+        contentHash = null;
+    }
+
+    /**
+     * 各列追加完一行后调用
+     */
+    public void commitRow() {
+        rowCount++;
+        contentHash = null;
+    }
+
+    /**
+     * 读取单元格
+     */
+    public Object getValue(int row, int column) {
+        return valueMode == ValueMode.typed ? vectors[column].getTyped(row) : vectors[column].get(row);
+    }
+
+    /**
+     * 按字符串形式计算一行中指定列的FNV-1a哈希
+     */
+    public long hashRow(int row, int[] columns) {
+        long hash = FNV_OFFSET;
+        for (int column : columns) {
+            Object value = getValue(row, column);
+            if (value == null) {
+                hash = (hash ^ 0xff) * FNV_PRIME;
+            } else {
+                hash = hashText(hash, value.toString());
+            }
+            // 列分隔，避免相邻列的值拼接后相同
+            hash = (hash ^ 0xfe) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * 列名和所有行内容的哈希，缓存的结果共享同一对象，只计算一次
+     */
+    public long getContentHash() {
+        Long hash = contentHash;
+        if (hash == null) {
+            long content = FNV_OFFSET;
+            for (int column : visibleColumns) {
+                content = hashText(content, columns.get(column));
+                content = (content ^ 0xfe) * FNV_PRIME;
+            }
+            for (int row = 0; row < rowCount; row++) {
+                content = (content ^ hashRow(row, visibleColumns)) * FNV_PRIME;
+            }
+            hash = content;
+            contentHash = hash;
+        }
+        return hash;
+    }
+
+    private static long hashText(long hash, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * 兼容旧版结果的List<Map>视图，行Map在访问时才创建，不复制数据
+     */
+    public List<Map<String, Object>> asMaps() {
+        return new RowListView();
+    }
+
+    private class RowListView extends AbstractList<Map<String, Object>> implements RandomAccess {
+        @Override
+        public Map<String, Object> get(int index) {
+            if (index < 0 || index >= rowCount) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + rowCount);
+            }
+            return new RowView(index);
+        }
+
+        @Override
+        public int size() {
+            return rowCount;
+        }
+    }
+
+    private class RowView extends AbstractMap<String, Object> {
+        private final int row;
+
+        RowView(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer index = columnIndex.get(key);
+            return index == null ? null : getValue(row, index);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return columnIndex.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return visibleColumns.length;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int position;
+
+                        @Override
+                        public boolean hasNext() {
+                            return position < visibleColumns.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int column = visibleColumns[position++];
+                            return new SimpleImmutableEntry<>(columns.get(column), getValue(row, column));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return visibleColumns.length;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.zerov.shj.core.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 内存使用情况
+ */
+@Data
+public class MemoryStatus {
+
+    /**
+     * 是否启用内存预算
+     */
+    private boolean enabled;
+
+    /**
+     * 预算用尽时的处理方式
+     */
+    private String policy;
+
+    /**
+     * 预算字节数
+     */
+    private long budgetBytes;
+
+    /**
+     * 已申请的字节数
+     */
+    private long usedBytes;
+
+    /**
+     * 临时文件占用的字节数
+     */
+    private long spilledBytes;
+
+    /**
+     * 各请求的占用
+     */
+    private List<Usage> requests;
+
+    /**
+     * 单个请求的占用
+     */
+    @Data
+    public static class Usage {
+
+        private long id;
+
+        /**
+         * 请求描述
+         */
+        private String name;
+
+        /**
+         * 估算的占用字节数
+         */
+        private long bytes;
+
+        /**
+         * 是否因预算不足截断了结果
+         */
+        private boolean truncated;
+
+        /**
+         * 溢出到临时文件的字节数
+         */
+        private long spilledBytes;
+
+        /**
+         * 开始时间
+         */
+        private long startTime;
+    }
+}
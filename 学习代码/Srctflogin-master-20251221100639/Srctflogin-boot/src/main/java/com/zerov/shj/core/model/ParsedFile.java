@@ -0,0 +1,25 @@
+package com.zerov.shj.core.model;
+
+import lombok.Data;
+
+/**
+ * 文件的解析结果及其内存占用
+ */
+@Data
+public class ParsedFile {
+
+    /**
+     * 解析结果，格式同parseFile
+     */
+    private Object data;
+
+    /**
+     * 解析结果占用的字节数（估算）
+     */
+    private long bytes;
+
+    /**
+     * 是否为完整结果，因内存预算不足被截断或溢出到临时文件的结果不可缓存
+     */
+    private boolean complete;
+}
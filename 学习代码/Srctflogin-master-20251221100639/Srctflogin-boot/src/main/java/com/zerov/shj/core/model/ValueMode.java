@@ -0,0 +1,33 @@
+package com.zerov.shj.core.model;
+
+/**
+ * 结果取值模式
+ */
+public enum ValueMode {
+
+    /**
+     * 兼容旧版，除空值外均输出为字符串
+     */
+    legacy,
+
+    /**
+     * 按原生类型输出：整数和浮点数保持数值，布尔值输出true/false，
+     * 高精度DECIMAL输出BigDecimal，日期时间输出为毫秒时间戳（DATE/TIME按服务端时区）
+     */
+    typed;
+
+    /**
+     * 根据字符串获取取值模式，为空或无法识别时使用legacy
+     */
+    public static ValueMode fromString(String mode) {
+        if (mode != null) {
+            String lowerMode = mode.toLowerCase().trim();
+            for (ValueMode valueMode : values()) {
+                if (valueMode.name().equals(lowerMode)) {
+                    return valueMode;
+                }
+            }
+        }
+        return legacy;
+    }
+}
@@ -0,0 +1,167 @@
+package com.zerov.shj.core.output;
+
+import com.zerov.shj.core.model.ColumnVector;
+import com.zerov.shj.core.model.ColumnarData;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.util.AutoCloseables;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Arrow IPC流式输出
+ * 直接由列存储填充Arrow向量，每批数据输出为一个RecordBatch
+ * 整数列（含typed模式的毫秒时间戳）输出为Int64，浮点列输出为Float32/Float64，布尔列输出为Bool，其余列输出为Utf8
+ */
+public class ArrowResultWriter implements ResultWriter {
+
+    public static final String CONTENT_TYPE = "application/vnd.apache.arrow.stream";
+
+    /**
+     * 全局内存分配器，每次输出使用独立的子分配器
+     */
+    private static final RootAllocator ROOT_ALLOCATOR = new RootAllocator();
+
+    private final OutputStream outputStream;
+    private BufferAllocator allocator;
+    private VectorSchemaRoot root;
+    private ArrowStreamWriter writer;
+
+    /**
+     * 输出的列序号（重名列只输出最后一列）
+     */
+    private int[] columns;
+
+    public ArrowResultWriter(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    public void start(ColumnarData batch) throws IOException {
+        columns = batch.getVisibleColumns();
+        List<Field> fields = new ArrayList<>(columns.length);
+        for (int column : columns) {
+            fields.add(Field.nullable(batch.getColumns().get(column), toArrowType(batch.getVector(column))));
+        }
+        allocator = ROOT_ALLOCATOR.newChildAllocator("result", 0, Long.MAX_VALUE);
+        root = VectorSchemaRoot.create(new Schema(fields), allocator);
+        writer = new ArrowStreamWriter(root, null, Channels.newChannel(outputStream));
+        writer.start();
+    }
+
+    @Override
+    public void writeBatch(ColumnarData batch) throws IOException {
+        int rowCount = batch.getRowCount();
+        for (int i = 0; i < columns.length; i++) {
+            fill(batch.getVector(columns[i]), root.getVector(i), rowCount);
+        }
+        root.setRowCount(rowCount);
+        writer.writeBatch();
+        outputStream.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.end();
+        outputStream.flush();
+    }
+
+    @Override
+    public void error(String message) {
+        // Arrow流无法在中途表达错误，由调用方中断响应
+    }
+
+    @Override
+    public void close() throws IOException {
+        // 不关闭writer，避免关闭底层输出流
+        try {
+            AutoCloseables.close(root, allocator);
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static ArrowType toArrowType(ColumnVector vector) {
+        if (vector instanceof ColumnVector.LongVector) {
+            return new ArrowType.Int(64, true);
+        }
+        if (vector instanceof ColumnVector.BooleanVector) {
+            return ArrowType.Bool.INSTANCE;
+        }
+        if (vector instanceof ColumnVector.DoubleVector) {
+            return new ArrowType.FloatingPoint(((ColumnVector.DoubleVector) vector).isSinglePrecision()
+                    ? FloatingPointPrecision.SINGLE : FloatingPointPrecision.DOUBLE);
+        }
+        return ArrowType.Utf8.INSTANCE;
+    }
+
+    /**
+     * 将列存储的数据填充到Arrow向量，未设置的位置即为空值
+     */
+    private static void fill(ColumnVector source, FieldVector target, int rowCount) {
+        if (target instanceof BigIntVector) {
+            BigIntVector vector = (BigIntVector) target;
+            vector.allocateNew(rowCount);
+            ColumnVector.LongVector values = (ColumnVector.LongVector) source;
+            for (int row = 0; row < rowCount; row++) {
+                if (!values.isNull(row)) {
+                    vector.set(row, values.getLong(row));
+                }
+            }
+        } else if (target instanceof BitVector) {
+            BitVector vector = (BitVector) target;
+            vector.allocateNew(rowCount);
+            ColumnVector.BooleanVector values = (ColumnVector.BooleanVector) source;
+            for (int row = 0; row < rowCount; row++) {
+                if (!values.isNull(row)) {
+                    vector.set(row, values.getBoolean(row) ? 1 : 0);
+                }
+            }
+        } else if (target instanceof Float8Vector) {
+            Float8Vector vector = (Float8Vector) target;
+            vector.allocateNew(rowCount);
+            ColumnVector.DoubleVector values = (ColumnVector.DoubleVector) source;
+            for (int row = 0; row < rowCount; row++) {
+                if (!values.isNull(row)) {
+                    vector.set(row, values.getDouble(row));
+                }
+            }
+        } else if (target instanceof Float4Vector) {
+            Float4Vector vector = (Float4Vector) target;
+            vector.allocateNew(rowCount);
+            ColumnVector.DoubleVector values = (ColumnVector.DoubleVector) source;
+            for (int row = 0; row < rowCount; row++) {
+                if (!values.isNull(row)) {
+                    vector.set(row, (float) values.getDouble(row));
+                }
+            }
+        } else {
+            VarCharVector vector = (VarCharVector) target;
+            vector.allocateNew(rowCount);
+            for (int row = 0; row < rowCount; row++) {
+                Object value = source.get(row);
+                if (value != null) {
+                    vector.setSafe(row, value.toString().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        target.setValueCount(rowCount);
+    }
+}
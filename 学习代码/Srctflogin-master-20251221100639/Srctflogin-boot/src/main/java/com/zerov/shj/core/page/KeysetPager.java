@@ -0,0 +1,494 @@
+package com.zerov.shj.core.page;
+
+import com.alibaba.druid.DbType;
+import com.alibaba.druid.sql.SQLUtils;
+import com.alibaba.druid.sql.ast.SQLExpr;
+import com.alibaba.druid.sql.ast.SQLObject;
+import com.alibaba.druid.sql.ast.SQLStatement;
+import com.alibaba.druid.sql.ast.expr.SQLAggregateExpr;
+import com.alibaba.druid.sql.ast.expr.SQLAllColumnExpr;
+import com.alibaba.druid.sql.ast.expr.SQLIdentifierExpr;
+import com.alibaba.druid.sql.ast.expr.SQLPropertyExpr;
+import com.alibaba.druid.sql.ast.expr.SQLVariantRefExpr;
+import com.alibaba.druid.sql.ast.statement.SQLSelect;
+import com.alibaba.druid.sql.ast.statement.SQLSelectItem;
+import com.alibaba.druid.sql.ast.statement.SQLSelectQueryBlock;
+import com.alibaba.druid.sql.ast.statement.SQLSelectStatement;
+import com.alibaba.druid.sql.visitor.SQLASTVisitorAdapter;
+import com.alibaba.fastjson.JSON;
+import com.zerov.shj.common.exception.DatasourceException;
+import com.zerov.shj.core.config.DatabaseConfig;
+import com.zerov.shj.core.datasource.DataSourcePoolManager;
+import com.zerov.shj.core.sql.SqlLexer;
+import com.zerov.shj.core.sql.SqlNormalizer;
+import org.springframework.util.DigestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 键集分页
+ * 按分页键列排序，并从上一页最后一行的键值之后继续读取，
+ * 不使用OFFSET，有索引时任意一页的代价与第一页相当
+ * <p>
+ * 单个SELECT块（无GROUP BY、DISTINCT、UNION、行数限制、聚合和窗口函数）的查询直接在原SQL中追加分页条件和排序，
+ * 可以使用分页键列上的索引；其余查询作为子查询包装，MySQL 5.6及更早版本（以及无法合并的子查询）
+ * 会先物化整个子查询，每一页的代价与全量查询相当
+ */
+public final class KeysetPager {
+
+    /**
+     * 分页键列：普通标识符或带引号的标识符，可带ASC/DESC
+     */
+    private static final Pattern KEY_COLUMN = Pattern.compile(
+            "^\\s*([A-Za-z_][A-Za-z0-9_$]*|\"[^\"]+\"|`[^`]+`|\\[[^\\]]+\\])(?:\\s+(ASC|DESC))?\\s*$",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    /**
+     * 末尾的分号
+     */
+    private static final Pattern TRAILING_SEMICOLON = Pattern.compile("[\\s;]+$");
+
+    /**
+     * 出现在最外层时不能直接追加分页条件的子句
+     */
+    private static final Set<String> UNMERGEABLE_CLAUSES = new HashSet<>(Arrays.asList(
+            "GROUP", "HAVING", "LIMIT", "OFFSET", "FETCH", "TOP", "DISTINCT", "DISTINCTROW", "UNIQUE",
+            "UNION", "INTERSECT", "EXCEPT", "MINUS", "OVER", "WINDOW", "QUALIFY", "CONNECT", "START", "INTO", "FOR",
+            "LOCK", "OPTION", "PROCEDURE", "PIVOT", "UNPIVOT", "MODEL", "SAMPLE", "PREWHERE", "ARRAY",
+            "SETTINGS", "FORMAT"));
+
+    /**
+     * SQL中引用的列名
+     */
+    private final List<String> keys = new ArrayList<>();
+
+    /**
+     * 去掉引号后的列名，用于在查询结果中定位
+     */
+    private final List<String> labels = new ArrayList<>();
+
+    private final List<Boolean> descending = new ArrayList<>();
+
+    private final String fingerprint;
+
+    /**
+     * 方言，未知时为空，分页条件只能包装子查询
+     */
+    private final DbType dbType;
+
+    private KeysetPager(DatabaseConfig config, String sql, List<String> keyColumns) {
+        if (keyColumns == null || keyColumns.isEmpty()) {
+            DatasourceException.throwException("分页查询需要指定分页键列keyColumns");
+        }
+        for (String keyColumn : keyColumns) {
+            Matcher matcher = KEY_COLUMN.matcher(keyColumn == null ? "" : keyColumn);
+            if (!matcher.matches()) {
+                DatasourceException.throwException("非法的分页键列: " + keyColumn);
+            }
+            String key = matcher.group(1);
+            keys.add(key);
+            labels.add(key.charAt(0) == '"' || key.charAt(0) == '`' || key.charAt(0) == '['
+                    ? key.substring(1, key.length() - 1) : key);
+            descending.add("DESC".equalsIgnoreCase(matcher.group(2)));
+        }
+        String raw = DataSourcePoolManager.fingerprint(config) + "|" + sql + "|" + String.join(",", keyColumns);
+        this.fingerprint = DigestUtils.md5DigestAsHex(raw.getBytes(StandardCharsets.UTF_8));
+        this.dbType = SqlNormalizer.dialectOf(config);
+    }
+
+    /**
+     * 创建分页器
+     *
+     * @param config     数据库配置
+     * @param sql        已验证的SELECT语句
+     * @param keyColumns 分页键列，组合后须唯一且不为空
+     */
+    public static KeysetPager of(DatabaseConfig config, String sql, List<String> keyColumns) {
+        return new KeysetPager(config, sql, keyColumns);
+    }
+
+    /**
+     * 解析分页令牌
+     *
+     * @param pageToken 上一页返回的令牌，为空表示第一页
+     * @return 上一页最后一行的分页键值，第一页返回空列表
+     */
+    public List<Object> decode(String pageToken) {
+        if (pageToken == null || pageToken.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        PageToken token = null;
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(pageToken.trim()), StandardCharsets.UTF_8);
+            token = JSON.parseObject(json, PageToken.class);
+        } catch (RuntimeException e) {
+            DatasourceException.throwException("无效的分页令牌");
+        }
+        if (token == null || token.getValues() == null || token.getTypes() == null
+                || token.getValues().size() != keys.size() || token.getTypes().size() != keys.size()) {
+            DatasourceException.throwException("无效的分页令牌");
+        }
+        if (!fingerprint.equals(token.getFingerprint())) {
+            DatasourceException.throwException("分页令牌与当前查询不匹配");
+        }
+        List<Object> values = new ArrayList<>(keys.size());
+        try {
+            for (int i = 0; i < keys.size(); i++) {
+                values.add(toParam(token.getValues().get(i), token.getTypes().get(i)));
+            }
+        } catch (IllegalArgumentException e) {
+            DatasourceException.throwException("无效的分页令牌");
+        }
+        return values;
+    }
+
+    /**
+     * 生成读取一页的SQL
+     * 按分页键列排序，有上一页键值时追加 k1 > ? OR (k1 = ? AND k2 > ?) 形式的条件；
+     * 单个SELECT块直接追加到原SQL的WHERE和ORDER BY（替换原有排序），其余查询作为子查询包装
+     *
+     * @param sql      已验证的SELECT语句
+     * @param lastKeys 上一页最后一行的分页键值，第一页为空
+     */
+    public String rewrite(String sql, List<Object> lastKeys) {
+        String inner = TRAILING_SEMICOLON.matcher(sql).replaceAll("");
+        List<String> expressions = resolveKeys(inner);
+        if (expressions != null) {
+            String injected = inject(inner, expressions, lastKeys);
+            if (injected != null) {
+                return injected;
+            }
+        }
+        // 换行包裹，避免原SQL末尾的行注释吞掉右括号
+        StringBuilder builder = new StringBuilder("SELECT * FROM (\n").append(inner).append("\n) shj_page");
+        if (!lastKeys.isEmpty()) {
+            builder.append(" WHERE ");
+            appendCondition(builder, keys);
+        }
+        builder.append(" ORDER BY ");
+        appendOrderBy(builder, keys);
+        return builder.toString();
+    }
+
+    private void appendCondition(StringBuilder builder, List<String> columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                builder.append(" OR ");
+            }
+            builder.append('(');
+            for (int j = 0; j < i; j++) {
+                builder.append(columns.get(j)).append(" = ? AND ");
+            }
+            builder.append(columns.get(i)).append(descending.get(i) ? " < ?" : " > ?").append(')');
+        }
+    }
+
+    private void appendOrderBy(StringBuilder builder, List<String> columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(columns.get(i)).append(descending.get(i) ? " DESC" : " ASC");
+        }
+    }
+
+    /**
+     * 在单个SELECT块的最外层WHERE后追加分页条件，并替换最外层的ORDER BY
+     *
+     * @return 改写后的SQL，最外层出现不能直接追加条件的子句时返回null
+     */
+    private String inject(String sql, List<String> expressions, List<Object> lastKeys) {
+        SqlLexer lexer = new SqlLexer(sql, dbType);
+        int depth = 0;
+        int whereEnd = -1;
+        int orderStart = -1;
+        boolean first = true;
+        SqlLexer.TokenType type;
+        while ((type = lexer.nextSignificant()) != SqlLexer.TokenType.EOF) {
+            if (first) {
+                // WITH等开头的语句包装处理
+                if (!lexer.is("SELECT")) {
+                    return null;
+                }
+                first = false;
+                continue;
+            }
+            if (type == SqlLexer.TokenType.SYMBOL) {
+                char c = lexer.getChar();
+                depth += c == '(' ? 1 : c == ')' ? -1 : 0;
+                continue;
+            }
+            // ROWNUM条件在括号中同样受追加的条件影响
+            if (lexer.is("ROWNUM")) {
+                return null;
+            }
+            if (depth != 0 || type != SqlLexer.TokenType.WORD) {
+                continue;
+            }
+            if (UNMERGEABLE_CLAUSES.contains(lexer.getText().toUpperCase())) {
+                return null;
+            }
+            if (lexer.is("WHERE") && whereEnd < 0 && orderStart < 0) {
+                whereEnd = lexer.getEnd();
+            } else if (lexer.is("ORDER") && orderStart < 0) {
+                orderStart = lexer.getStart();
+            }
+        }
+        int tail = orderStart >= 0 ? orderStart : sql.length();
+        // 换行分隔，避免原SQL中的行注释吞掉追加的内容
+        StringBuilder builder = new StringBuilder(sql.length() + 64);
+        if (lastKeys.isEmpty()) {
+            builder.append(sql, 0, tail);
+        } else if (whereEnd >= 0) {
+            builder.append(sql, 0, whereEnd).append(" (").append(sql, whereEnd, tail).append("\n) AND (");
+            appendCondition(builder, expressions);
+            builder.append(')');
+        } else {
+            builder.append(sql, 0, tail).append("\nWHERE ");
+            appendCondition(builder, expressions);
+        }
+        builder.append("\nORDER BY ");
+        appendOrderBy(builder, expressions);
+        return builder.toString();
+    }
+
+    /**
+     * 在单个SELECT块的选择列表中查找各分页键列对应的表达式，用于在原SQL中引用
+     *
+     * @return 各分页键列的表达式，不是单个SELECT块或无法确定时返回null
+     */
+    private List<String> resolveKeys(String sql) {
+        if (dbType == null) {
+            return null;
+        }
+        SQLSelectQueryBlock block;
+        try {
+            SQLStatement statement = SQLUtils.parseSingleStatement(sql, dbType);
+            if (!(statement instanceof SQLSelectStatement)) {
+                return null;
+            }
+            SQLSelect select = ((SQLSelectStatement) statement).getSelect();
+            if (select.getWithSubQuery() != null || !(select.getQuery() instanceof SQLSelectQueryBlock)
+                    || select.getLimit() != null || select.getOffset() != null || select.getRowCount() != null
+                    || (select.getOrderBy() != null && hasParameter(select.getOrderBy()))) {
+                return null;
+            }
+            block = (SQLSelectQueryBlock) select.getQuery();
+        } catch (RuntimeException e) {
+            return null;
+        }
+        // 聚合和窗口函数的结果与WHERE条件有关
+        if (block.getFrom() == null || block.getGroupBy() != null || block.getDistionOption() != 0
+                || block.getLimit() != null || block.getFirst() != null || block.getOffset() != null
+                || (block.getWindows() != null && !block.getWindows().isEmpty()) || block.getQualify() != null
+                || (block.getOrderBy() != null && hasParameter(block.getOrderBy()))) {
+            return null;
+        }
+        List<String> expressions = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            String expression = resolveKey(block, i);
+            if (expression == null) {
+                return null;
+            }
+            expressions.add(expression);
+        }
+        return expressions;
+    }
+
+    private String resolveKey(SQLSelectQueryBlock block, int index) {
+        String label = labels.get(index);
+        boolean star = false;
+        for (SQLSelectItem item : block.getSelectList()) {
+            SQLExpr expr = item.getExpr();
+            if (containsAggregate(expr)) {
+                return null;
+            }
+            if (item.getAlias() != null) {
+                if (SQLUtils.normalize(item.getAlias()).equalsIgnoreCase(label)) {
+                    // 表达式中的参数会被重复绑定
+                    return hasParameter(expr) ? null : SQLUtils.toSQLString(expr, dbType);
+                }
+            } else if (expr instanceof SQLIdentifierExpr) {
+                if (SQLUtils.normalize(((SQLIdentifierExpr) expr).getName()).equalsIgnoreCase(label)) {
+                    return keys.get(index);
+                }
+            } else if (expr instanceof SQLPropertyExpr) {
+                String name = ((SQLPropertyExpr) expr).getName();
+                if ("*".equals(name)) {
+                    star = true;
+                } else if (SQLUtils.normalize(name).equalsIgnoreCase(label)) {
+                    return SQLUtils.toSQLString(expr, dbType);
+                }
+            } else if (expr instanceof SQLAllColumnExpr) {
+                star = true;
+            }
+        }
+        return star ? keys.get(index) : null;
+    }
+
+    private static boolean containsAggregate(SQLExpr expr) {
+        boolean[] found = new boolean[1];
+        expr.accept(new SQLASTVisitorAdapter() {
+            @Override
+            public boolean visit(SQLAggregateExpr x) {
+                found[0] = true;
+                return false;
+            }
+        });
+        return found[0];
+    }
+
+    private static boolean hasParameter(SQLObject object) {
+        boolean[] found = new boolean[1];
+        object.accept(new SQLASTVisitorAdapter() {
+            @Override
+            public boolean visit(SQLVariantRefExpr x) {
+                found[0] = true;
+                return false;
+            }
+        });
+        return found[0];
+    }
+
+    /**
+     * 按rewrite生成的条件展开绑定参数
+     */
+    public List<Object> getParams(List<Object> lastKeys) {
+        List<Object> params = new ArrayList<>();
+        if (lastKeys.isEmpty()) {
+            return params;
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            params.addAll(lastKeys.subList(0, i + 1));
+        }
+        return params;
+    }
+
+    /**
+     * 按结果集当前行的分页键值生成下一页令牌
+     *
+     * @param rs      定位在本页最后一行的结果集
+     * @param columns 结果列名
+     */
+    public String encode(ResultSet rs, List<String> columns) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        PageToken token = new PageToken();
+        token.setFingerprint(fingerprint);
+        token.setTypes(new ArrayList<>(keys.size()));
+        token.setValues(new ArrayList<>(keys.size()));
+        for (int i = 0; i < keys.size(); i++) {
+            int column = indexOf(columns, labels.get(i)) + 1;
+            if (column == 0) {
+                DatasourceException.throwException("分页键列不在查询结果中: " + keys.get(i));
+            }
+            int type = metaData.getColumnType(column);
+            String value;
+            try {
+                value = readKey(rs, column, type);
+            } catch (SQLException | AbstractMethodError e) {
+                if (type != Types.TIMESTAMP_WITH_TIMEZONE) {
+                    throw e;
+                }
+                // 驱动不支持按OffsetDateTime读取时按Timestamp读取和绑定
+                type = Types.TIMESTAMP;
+                value = readKey(rs, column, type);
+            }
+            if (value == null) {
+                DatasourceException.throwException("分页键列的值为空，无法继续分页: " + keys.get(i));
+            }
+            token.getTypes().add(type);
+            token.getValues().add(value);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(JSON.toJSONString(token).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int indexOf(List<String> columns, String label) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(label)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 读取分页键值，日期时间统一按JDBC转义格式保存
+     */
+    private static String readKey(ResultSet rs, int column, int type) throws SQLException {
+        switch (type) {
+            case Types.DATE:
+            case Types.TIMESTAMP:
+                Timestamp timestamp = rs.getTimestamp(column);
+                return timestamp == null ? null : timestamp.toString();
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                // 保留时区偏移，按ISO-8601格式保存，还原后按OffsetDateTime绑定
+                OffsetDateTime offsetDateTime = rs.getObject(column, OffsetDateTime.class);
+                return offsetDateTime == null ? null : offsetDateTime.toString();
+            case Types.TIME:
+                Time time = rs.getTime(column);
+                return time == null ? null : time.toString();
+            case Types.BOOLEAN:
+            case Types.BIT:
+                boolean value = rs.getBoolean(column);
+                return rs.wasNull() ? null : String.valueOf(value);
+            default:
+                return rs.getString(column);
+        }
+    }
+
+    /**
+     * 将令牌中的键值还原为绑定参数
+     */
+    private static Object toParam(String value, int type) {
+        switch (type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return Long.valueOf(value);
+            case Types.BIGINT:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return new BigDecimal(value);
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return Double.valueOf(value);
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return Boolean.valueOf(value);
+            case Types.DATE:
+            case Types.TIMESTAMP:
+                return Timestamp.valueOf(value);
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                try {
+                    return OffsetDateTime.parse(value);
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException(e);
+                }
+            case Types.TIME:
+                return Time.valueOf(value);
+            default:
+                return value;
+        }
+    }
+}
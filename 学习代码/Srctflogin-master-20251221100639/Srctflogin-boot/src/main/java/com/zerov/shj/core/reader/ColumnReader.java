@@ -0,0 +1,32 @@
+package com.zerov.shj.core.reader;
+
+import com.zerov.shj.core.model.ColumnVector;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 列读取器
+ * 按列类型预先确定读取方式，读取时不再解析元数据
+ */
+public interface ColumnReader {
+
+    /**
+     * 创建对应的列存储
+     */
+    ColumnVector newVector();
+
+    /**
+     * 读取当前行的列值并追加到列存储
+     *
+     * @param rs          结果集
+     * @param columnIndex 列序号，从1开始
+     * @param vector      由newVector创建的列存储
+     */
+    void read(ResultSet rs, int columnIndex, ColumnVector vector) throws SQLException;
+
+    /**
+     * typed模式下的输出值类型，见ColumnSchema.valueType
+     */
+    String getValueType();
+}
@@ -0,0 +1,58 @@
+package com.zerov.shj.core.reader;
+
+import com.zerov.shj.core.config.EngineConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 行读取计划缓存
+ * 按数据源和SQL缓存读取计划，重复执行的组件查询跳过元数据解析
+ */
+@Slf4j
+@Component
+public class RowReaderPlanCache {
+
+    @Autowired
+    private EngineConfig engineConfig;
+
+    private Map<String, RowReaderPlan> plans;
+
+    @PostConstruct
+    public void init() {
+        int maxSize = engineConfig.getReaderPlanCacheSize();
+        plans = Collections.synchronizedMap(new LinkedHashMap<String, RowReaderPlan>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RowReaderPlan> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * 获取读取计划，缓存的计划与结果集结构不一致时重新编译
+     *
+     * @param key      数据源指纹、读取参数与SQL组成的缓存键
+     * @param metaData 结果集元数据
+     * @param options  读取参数
+     */
+    public RowReaderPlan getPlan(String key, ResultSetMetaData metaData, ReaderOptions options) throws SQLException {
+        RowReaderPlan plan = plans.get(key);
+        if (plan != null && plan.getOptions().equals(options) && plan.matches(metaData)) {
+            return plan;
+        }
+        if (plan != null) {
+            log.debug("结果集结构已变化，重新编译读取计划: {}", key);
+        }
+        plan = RowReaderPlan.compile(metaData, options);
+        plans.put(key, plan);
+        return plan;
+    }
+}
@@ -0,0 +1,179 @@
+package com.zerov.shj.core.security;
+
+import com.alibaba.druid.DbType;
+import com.alibaba.druid.sql.SQLUtils;
+import com.alibaba.druid.sql.ast.SQLStatement;
+import com.alibaba.druid.sql.ast.expr.SQLAggregateExpr;
+import com.alibaba.druid.sql.ast.expr.SQLAllExpr;
+import com.alibaba.druid.sql.ast.expr.SQLAnyExpr;
+import com.alibaba.druid.sql.ast.expr.SQLExistsExpr;
+import com.alibaba.druid.sql.ast.expr.SQLInSubQueryExpr;
+import com.alibaba.druid.sql.ast.expr.SQLQueryExpr;
+import com.alibaba.druid.sql.ast.expr.SQLSomeExpr;
+import com.alibaba.druid.sql.ast.statement.SQLJoinTableSource;
+import com.alibaba.druid.sql.ast.statement.SQLSelectQueryBlock;
+import com.alibaba.druid.sql.ast.statement.SQLSelectStatement;
+import com.alibaba.druid.sql.ast.statement.SQLSubqueryTableSource;
+import com.alibaba.druid.sql.ast.statement.SQLUnionQuery;
+import com.alibaba.druid.sql.visitor.SQLASTVisitorAdapter;
+import com.zerov.shj.core.sql.NormalizedSql;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于语法树的SQL验证
+ * 按数据源的方言用Druid解析语句，检查语句类型、SELECT INTO、FOR UPDATE，以及子查询、JOIN、聚合和UNION的开关；
+ * 字面量不影响语法结构，验证结果按去除字面量后的SQL缓存，重复执行的组件查询不再解析；
+ * 方言未知时词法切分可能与数据库不同，字面量的边界不可信，不缓存
+ */
+@Slf4j
+@Component
+public class SqlAstValidator {
+
+    @Autowired
+    private SecurityConfig securityConfig;
+
+    private Map<String, SqlSecurityValidator.SqlValidationResult> verdicts;
+
+    @PostConstruct
+    public void init() {
+        int maxSize = securityConfig.getVerdictCacheSize();
+        verdicts = Collections.synchronizedMap(new LinkedHashMap<String, SqlSecurityValidator.SqlValidationResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SqlSecurityValidator.SqlValidationResult> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * 验证SQL的语法结构
+     *
+     * @param sql 已通过词法检查的SQL，方言为空时按通用语法解析
+     * @return 验证结果
+     */
+    public SqlSecurityValidator.SqlValidationResult validate(NormalizedSql sql) {
+        if (sql.getDbType() == null) {
+            return parse(sql.getSql(), null);
+        }
+        String key = sql.getDbType() + "|" + sql.getFingerprint();
+        SqlSecurityValidator.SqlValidationResult verdict = verdicts.get(key);
+        if (verdict == null) {
+            verdict = parse(sql.getSql(), sql.getDbType());
+            verdicts.put(key, verdict);
+        }
+        return verdict;
+    }
+
+    private SqlSecurityValidator.SqlValidationResult parse(String sql, DbType dbType) {
+        List<SQLStatement> statements;
+        try {
+            statements = SQLUtils.parseStatements(sql, dbType);
+        } catch (Exception e) {
+            log.warn("SQL语法解析失败: {}", e.getMessage());
+            return SqlSecurityValidator.SqlValidationResult.failure("SQL语法解析失败: " + e.getMessage());
+        }
+        if (statements.size() != 1) {
+            return SqlSecurityValidator.SqlValidationResult.failure("只允许执行单条SQL语句");
+        }
+        if (!(statements.get(0) instanceof SQLSelectStatement)) {
+            return SqlSecurityValidator.SqlValidationResult.failure("只允许执行SELECT查询语句");
+        }
+        StructureVisitor visitor = new StructureVisitor();
+        statements.get(0).accept(visitor);
+        if (visitor.error != null) {
+            return SqlSecurityValidator.SqlValidationResult.failure(visitor.error);
+        }
+        return SqlSecurityValidator.SqlValidationResult.success("SQL语句验证通过");
+    }
+
+    /**
+     * 遍历语法树，记录第一个不允许的结构
+     */
+    private class StructureVisitor extends SQLASTVisitorAdapter {
+
+        private String error;
+
+        private boolean reject(String message) {
+            if (error == null) {
+                error = message;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean visit(SQLSelectQueryBlock x) {
+            if (x.getInto() != null) {
+                return reject("不允许使用SELECT INTO");
+            }
+            if (x.isForUpdate()) {
+                return reject("不允许使用FOR UPDATE");
+            }
+            if (x.getGroupBy() != null && !securityConfig.isAllowAggregates()) {
+                return reject("不允许使用聚合查询");
+            }
+            return true;
+        }
+
+        @Override
+        public boolean visit(SQLAggregateExpr x) {
+            return securityConfig.isAllowAggregates() || reject("不允许使用聚合查询");
+        }
+
+        @Override
+        public boolean visit(SQLJoinTableSource x) {
+            return securityConfig.isAllowJoins() || reject("不允许使用JOIN查询");
+        }
+
+        @Override
+        public boolean visit(SQLUnionQuery x) {
+            return securityConfig.isAllowUnion() || reject("不允许使用UNION查询");
+        }
+
+        @Override
+        public boolean visit(SQLSubqueryTableSource x) {
+            return allowSubquery();
+        }
+
+        @Override
+        public boolean visit(SQLInSubQueryExpr x) {
+            return allowSubquery();
+        }
+
+        @Override
+        public boolean visit(SQLExistsExpr x) {
+            return allowSubquery();
+        }
+
+        @Override
+        public boolean visit(SQLQueryExpr x) {
+            return allowSubquery();
+        }
+
+        @Override
+        public boolean visit(SQLAllExpr x) {
+            return allowSubquery();
+        }
+
+        @Override
+        public boolean visit(SQLAnyExpr x) {
+            return allowSubquery();
+        }
+
+        @Override
+        public boolean visit(SQLSomeExpr x) {
+            return allowSubquery();
+        }
+
+        private boolean allowSubquery() {
+            return securityConfig.isAllowSubqueries() || reject("不允许使用子查询");
+        }
+    }
+}
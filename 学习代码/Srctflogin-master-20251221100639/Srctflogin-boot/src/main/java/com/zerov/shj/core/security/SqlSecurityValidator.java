@@ -1,17 +1,30 @@
 package com.zerov.shj.core.security;
 
+import com.alibaba.druid.DbType;
+import com.zerov.shj.core.sql.KeywordAutomaton;
+import com.zerov.shj.core.sql.NormalizedSql;
+import com.zerov.shj.core.sql.SqlLexer;
+import com.zerov.shj.core.sql.SqlNormalizer;
+import com.zerov.shj.core.sql.SqlTemplate;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 /**
  * SQL安全验证器
  * 用于验证SQL语句的安全性，防止SQL注入和非法操作
+ * <p>
+ * 按词法记号单遍检查，字符串和带引号的标识符中的内容不参与关键字匹配，注释被忽略
  */
 @Slf4j
 @Component
@@ -19,11 +32,13 @@ public class SqlSecurityValidator {
 
     @Autowired
     private SecurityConfig securityConfig;
+    @Autowired
+    private SqlAstValidator sqlAstValidator;
 
     // 禁止的SQL关键字（大写）
     private static final Set<String> FORBIDDEN_KEYWORDS = new HashSet<>(Arrays.asList(
         "DELETE", "DROP", "INSERT", "UPDATE", "CREATE", "ALTER", "TRUNCATE", 
-        "EXEC", "EXECUTE", "EXECUTE IMMEDIATE", "MERGE", "REPLACE", "RENAME",
+        "EXEC", "EXECUTE", "MERGE", "REPLACE", "RENAME",
         "GRANT", "REVOKE", "COMMIT", "ROLLBACK", "SAVEPOINT", "SET", "USE",
         "SHUTDOWN", "KILL", "PROCESSLIST", "SHOW", "DESCRIBE", "EXPLAIN"
     ));
@@ -37,17 +52,49 @@ public class SqlSecurityValidator {
         "IS", "NULL", "TRUE", "FALSE", "ASC", "DESC", "TOP", "FETCH", "FIRST"
     ));
 
-    // 危险字符模式（不包含分号，分号单独处理）
-    private static final Pattern DANGEROUS_PATTERNS = Pattern.compile(
-            "(--|/\\*|\\*/|xp_|sp_|@@|WAITFOR|DELAY|BENCHMARK|SLEEP|LOAD_FILE|\\bINTO\\s+OUTFILE\\b|\\bINTO\\s+DUMPFILE\\b)",
-            Pattern.CASE_INSENSITIVE
-    );
+    // 危险函数和语句，出现在标识符中的任意位置即拒绝（如pg_sleep、dbms_lock.sleep）
+    private static final KeywordAutomaton<String> DANGEROUS_WORDS = new KeywordAutomaton<>(
+            toMap(Arrays.asList("WAITFOR", "DELAY", "BENCHMARK", "SLEEP", "LOAD_FILE")));
+
+    // 扩展存储过程和系统存储过程的前缀
+    private static final String[] DANGEROUS_PREFIXES = {"XP_", "SP_"};
+
+    /**
+     * 需要检查的单词
+     */
+    private enum Keyword {
+        FORBIDDEN, UNION, FILE_TARGET
+    }
+
+    private static final KeywordAutomaton<Keyword> KEYWORDS;
+
+    static {
+        Map<String, Keyword> keywords = new HashMap<>();
+        for (String keyword : FORBIDDEN_KEYWORDS) {
+            keywords.put(keyword, Keyword.FORBIDDEN);
+        }
+        keywords.put("UNION", Keyword.UNION);
+        // INTO OUTFILE / INTO DUMPFILE
+        keywords.put("OUTFILE", Keyword.FILE_TARGET);
+        keywords.put("DUMPFILE", Keyword.FILE_TARGET);
+        KEYWORDS = new KeywordAutomaton<>(keywords);
+    }
+
+    /**
+     * SQL模板的验证结果，参数值不拼接到SQL中，验证结果只取决于模板
+     */
+    private Map<String, SqlValidationResult> templateVerdicts;
 
-    // 注释模式
-    private static final Pattern COMMENT_PATTERNS = Pattern.compile(
-        "(/\\*.*?\\*/|--.*?$)", 
-        Pattern.CASE_INSENSITIVE | Pattern.DOTALL | Pattern.MULTILINE
-    );
+    @PostConstruct
+    public void init() {
+        int maxSize = securityConfig.getVerdictCacheSize();
+        templateVerdicts = Collections.synchronizedMap(new LinkedHashMap<String, SqlValidationResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SqlValidationResult> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
 
     /**
      * 验证SQL语句的安全性
@@ -55,40 +102,35 @@ public class SqlSecurityValidator {
      * @return 验证结果
      */
     public SqlValidationResult validateSql(String sql) {
+        return validateSql(SqlNormalizer.normalize(sql, null));
+    }
+
+    /**
+     * 验证SQL语句的安全性，ast方式下按方言检查语法结构
+     * @param normalizedSql 规范化后的SQL
+     * @return 验证结果
+     */
+    public SqlValidationResult validateSql(NormalizedSql normalizedSql) {
+        String sql = normalizedSql.getSql();
         if (!securityConfig.isEnabled()) {
             return SqlValidationResult.success("安全验证已禁用");
         }
 
-        if (sql == null || sql.trim().isEmpty()) {
+        if (StringUtils.isBlank(sql)) {
             return SqlValidationResult.failure("SQL语句不能为空");
         }
 
-        // 移除注释
-        String cleanSql = removeComments(sql.trim());
-        
-        // 检查是否以SELECT开头
-        if (!cleanSql.toUpperCase().startsWith("SELECT")) {
-            return SqlValidationResult.failure("只允许执行SELECT查询语句");
-        }
-
-        // 检查禁止的关键字
-        if (securityConfig.isEnableKeywordFiltering() && containsForbiddenKeywords(cleanSql)) {
-            return SqlValidationResult.failure("SQL语句包含禁止的关键字");
-        }
-
-        // 检查危险模式
-        if (containsDangerousPatterns(cleanSql)) {
-            return SqlValidationResult.failure("SQL语句包含危险模式");
+        String error = check(sql, normalizedSql.getDbType());
+        if (error != null) {
+            return SqlValidationResult.failure(error);
         }
 
-        // 检查SQL注入特征
-        if (securityConfig.isEnableSqlInjectionDetection() && containsSqlInjectionPatterns(cleanSql)) {
-            return SqlValidationResult.failure("检测到SQL注入特征");
-        }
-
-        // 检查UNION查询
-        if (!securityConfig.isAllowUnion() && cleanSql.toUpperCase().contains("UNION")) {
-            return SqlValidationResult.failure("不允许使用UNION查询");
+        // 检查语法结构
+        if (ValidationMode.fromString(securityConfig.getValidationMode(), ValidationMode.lexer) == ValidationMode.ast) {
+            SqlValidationResult verdict = sqlAstValidator.validate(normalizedSql);
+            if (!verdict.isValid()) {
+                return verdict;
+            }
         }
 
         if (securityConfig.isLogSecurityEvents()) {
@@ -99,92 +141,164 @@ public class SqlSecurityValidator {
     }
 
     /**
-     * 移除SQL注释
+     * 验证SQL模板，同一模板只验证一次
+     * @param template 解析后的模板
+     * @return 验证结果
      */
-    private String removeComments(String sql) {
-        return COMMENT_PATTERNS.matcher(sql).replaceAll(" ");
+    public SqlValidationResult validateTemplate(SqlTemplate template) {
+        NormalizedSql normalizedSql = template.getNormalizedSql();
+        String key = normalizedSql.getDbType() + "|" + normalizedSql.getSql();
+        SqlValidationResult verdict = templateVerdicts.get(key);
+        if (verdict == null) {
+            verdict = validateSql(normalizedSql);
+            templateVerdicts.put(key, verdict);
+        }
+        return verdict;
     }
 
     /**
-     * 检查是否包含禁止的关键字
+     * 逐个记号检查，注释和引号按方言切分
+     * @return 错误信息，通过时返回null
      */
-    private boolean containsForbiddenKeywords(String sql) {
-        String upperSql = sql.toUpperCase();
-        for (String keyword : FORBIDDEN_KEYWORDS) {
-            // 使用单词边界检查，避免误判
-            if (containsWord(upperSql, keyword)) {
-                log.warn("检测到禁止的关键字: {}", keyword);
-                return true;
+    private String check(String sql, DbType dbType) {
+        SqlLexer lexer = new SqlLexer(sql, dbType);
+        boolean first = true;
+        boolean statementEnded = false;
+        boolean afterInto = false;
+        SqlLexer.TokenType type;
+        while ((type = lexer.next()) != SqlLexer.TokenType.EOF) {
+            if (lexer.isUnterminated()) {
+                return "SQL语句中的引号或注释未闭合";
+            }
+            // 在不同数据库中切分不同的记号，无法确定其后的内容是否会被执行
+            if (lexer.isAmbiguous()) {
+                log.warn("检测到有歧义的写法: {}", sql);
+                return "SQL语句中的转义、注释或引号写法有歧义，请使用标准写法或设置数据库类型";
+            }
+            if (type == SqlLexer.TokenType.COMMENT) {
+                if (lexer.isConditionalComment()) {
+                    log.warn("检测到可执行的注释: {}", sql);
+                    return "SQL语句包含危险模式";
+                }
+                continue;
+            }
+
+            // 检查是否以SELECT开头
+            if (first && !lexer.is("SELECT")) {
+                return "只允许执行SELECT查询语句";
+            }
+            first = false;
+
+            // 检查多语句执行，语句末尾的分号允许
+            if (statementEnded && securityConfig.isEnableSqlInjectionDetection()) {
+                log.warn("检测到多语句执行: {}", sql);
+                return "检测到SQL注入特征";
+            }
+
+            if (type == SqlLexer.TokenType.WORD) {
+                boolean into = lexer.is("INTO");
+                String error = checkWord(lexer, afterInto);
+                if (error != null) {
+                    return error;
+                }
+                afterInto = into;
+                continue;
+            }
+            afterInto = false;
+            if (type == SqlLexer.TokenType.SYMBOL) {
+                char c = lexer.getChar();
+                if (c == ';') {
+                    statementEnded = true;
+                } else if (c == '@' && lexer.getEnd() < sql.length() && sql.charAt(lexer.getEnd()) == '@') {
+                    log.warn("检测到危险模式: {}", sql);
+                    return "SQL语句包含危险模式";
+                }
             }
         }
-        return false;
-    }
-    
-    /**
-     * 检查字符串是否包含完整的单词（使用单词边界）
-     */
-    private boolean containsWord(String text, String word) {
-        // 构建正则表达式，确保是完整的单词
-        String pattern = "\\b" + Pattern.quote(word) + "\\b";
-        return Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(text).find();
+        return first ? "只允许执行SELECT查询语句" : null;
     }
 
     /**
-     * 检查是否包含危险模式
+     * 检查关键字或标识符
+     * @param afterInto 前一个记号是否为INTO
      */
-    private boolean containsDangerousPatterns(String sql) {
-        if (DANGEROUS_PATTERNS.matcher(sql).find()) {
+    private String checkWord(SqlLexer lexer, boolean afterInto) {
+        String sql = lexer.getSql();
+        Keyword keyword = KEYWORDS.match(sql, lexer.getStart(), lexer.getEnd());
+
+        // 检查禁止的关键字
+        if (keyword == Keyword.FORBIDDEN && securityConfig.isEnableKeywordFiltering()) {
+            log.warn("检测到禁止的关键字: {}", lexer.getText());
+            return "SQL语句包含禁止的关键字";
+        }
+
+        // 检查危险模式
+        if ((keyword == Keyword.FILE_TARGET && afterInto) || hasDangerousPrefix(lexer)
+                || DANGEROUS_WORDS.find(sql, lexer.getStart(), lexer.getEnd()) != null) {
             log.warn("检测到危险模式: {}", sql);
-            return true;
+            return "SQL语句包含危险模式";
+        }
+
+        if (keyword == Keyword.UNION) {
+            // 检查UNION注入
+            if (securityConfig.isEnableSqlInjectionDetection() && !isFollowedBy(lexer, "ALL")) {
+                log.warn("检测到可能的UNION注入: {}", sql);
+                return "检测到SQL注入特征";
+            }
+            // 检查UNION查询
+            if (!securityConfig.isAllowUnion()) {
+                return "不允许使用UNION查询";
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasDangerousPrefix(SqlLexer lexer) {
+        for (String prefix : DANGEROUS_PREFIXES) {
+            if (lexer.startsWith(prefix)) {
+                return true;
+            }
         }
         return false;
     }
 
     /**
-     * 检查SQL注入特征
+     * 下一个记号是否为指定的单词，不改变扫描位置
      */
-    private boolean containsSqlInjectionPatterns(String sql) {
-        // 检查常见的SQL注入模式
-        String upperSql = sql.toUpperCase();
-        
-        // 检查UNION注入
-        if (upperSql.contains("UNION") && !upperSql.contains("UNION ALL")) {
-            log.warn("检测到可能的UNION注入: {}", sql);
-            return true;
-        }
-
-        // 检查多语句执行
-        if (upperSql.contains(";") && upperSql.split(";").length > 1) {
-            log.warn("检测到多语句执行: {}", sql);
-            return true;
-        }
+    private static boolean isFollowedBy(SqlLexer lexer, String word) {
+        int position = lexer.getPosition();
+        lexer.nextSignificant();
+        boolean followed = lexer.is(word);
+        lexer.reset(position);
+        return followed;
+    }
 
-        // 检查注释注入
-        if (upperSql.contains("/*") || upperSql.contains("--")) {
-            log.warn("检测到注释注入: {}", sql);
-            return true;
+    private static Map<String, String> toMap(Iterable<String> words) {
+        Map<String, String> map = new HashMap<>();
+        for (String word : words) {
+            map.put(word, word);
         }
-
-        return false;
+        return map;
     }
 
     /**
      * 获取SQL语句的类型
      */
     public String getSqlType(String sql) {
-        if (sql == null || sql.trim().isEmpty()) {
+        if (StringUtils.isBlank(sql)) {
             return "UNKNOWN";
         }
-        
-        String cleanSql = removeComments(sql.trim()).toUpperCase();
-        
-        if (cleanSql.startsWith("SELECT")) {
+
+        SqlLexer lexer = new SqlLexer(sql);
+        lexer.nextSignificant();
+
+        if (lexer.is("SELECT")) {
             return "SELECT";
-        } else if (cleanSql.startsWith("INSERT")) {
+        } else if (lexer.is("INSERT")) {
             return "INSERT";
-        } else if (cleanSql.startsWith("UPDATE")) {
+        } else if (lexer.is("UPDATE")) {
             return "UPDATE";
-        } else if (cleanSql.startsWith("DELETE")) {
+        } else if (lexer.is("DELETE")) {
             return "DELETE";
         } else {
             return "OTHER";
@@ -0,0 +1,51 @@
+package com.zerov.shj.core.sql;
+
+import com.alibaba.druid.DbType;
+import com.zerov.shj.core.config.EngineConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SQL模板缓存
+ * 按方言和模板原文缓存解析结果，重复执行的模板不再解析和规范化
+ */
+@Component
+public class SqlTemplateCache {
+
+    @Autowired
+    private EngineConfig engineConfig;
+
+    private Map<String, SqlTemplate> templates;
+
+    @PostConstruct
+    public void init() {
+        int maxSize = engineConfig.getTemplateCacheSize();
+        templates = Collections.synchronizedMap(new LinkedHashMap<String, SqlTemplate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SqlTemplate> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * 获取解析后的模板
+     *
+     * @param template 模板原文
+     * @param dbType   方言，未知时为空
+     */
+    public SqlTemplate get(String template, DbType dbType) {
+        String key = dbType + "|" + template;
+        SqlTemplate compiled = templates.get(key);
+        if (compiled == null) {
+            compiled = SqlTemplate.compile(template, dbType);
+            templates.put(key, compiled);
+        }
+        return compiled;
+    }
+}
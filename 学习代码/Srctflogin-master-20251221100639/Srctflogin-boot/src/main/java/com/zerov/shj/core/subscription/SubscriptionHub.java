@@ -0,0 +1,231 @@
+package com.zerov.shj.core.subscription;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zerov.shj.common.entity.R;
+import com.zerov.shj.common.exception.DatasourceException;
+import com.zerov.shj.core.memory.MemoryGovernor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 数据源订阅
+ * 每个数据源按更新间隔只查询一次，序列化后通过SSE推送给所有订阅者，
+ * 结果与上次相同时不推送数据，只发送注释行保持连接
+ */
+@Slf4j
+@Component
+public class SubscriptionHub {
+
+    @Autowired
+    private SubscriptionConfig subscriptionConfig;
+    @Autowired
+    private MemoryGovernor memoryGovernor;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, Source> sources = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(Math.max(1, subscriptionConfig.getThreads()), r -> {
+            Thread thread = new Thread(r, "shj-push-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::evictIdleSources, 10, 10, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+        for (Source source : sources.values()) {
+            source.emitters.forEach(SseEmitter::complete);
+        }
+        sources.clear();
+    }
+
+    /**
+     * 登记数据源，相同的查询和更新间隔返回相同的数据源标识
+     *
+     * @param key      查询键，用于生成数据源标识
+     * @param interval 更新间隔(毫秒)
+     * @param producer 执行查询，返回推送的结果
+     * @return 数据源标识
+     */
+    public String register(Object key, long interval, Supplier<Object> producer) {
+        String id = DigestUtils.md5DigestAsHex((key + "|" + interval).getBytes(StandardCharsets.UTF_8));
+        if (!sources.containsKey(id) && sources.size() >= subscriptionConfig.getMaxSources()) {
+            DatasourceException.throwException("订阅的数据源过多，请稍后重试");
+        }
+        Source source = sources.computeIfAbsent(id,
+                k -> new Source(Math.max(interval, subscriptionConfig.getMinInterval()), producer));
+        source.idleSince = System.currentTimeMillis();
+        return id;
+    }
+
+    /**
+     * 订阅数据源，已有结果时立即推送最近一次的结果
+     *
+     * @param id 数据源标识
+     */
+    public SseEmitter subscribe(String id) {
+        Source source = sources.get(id);
+        if (source == null) {
+            DatasourceException.throwException("数据源不存在或已过期，请重新登记: " + id);
+        }
+        SseEmitter emitter = new SseEmitter(subscriptionConfig.getSseTimeout());
+        emitter.onCompletion(() -> unsubscribe(source, emitter));
+        emitter.onTimeout(() -> unsubscribe(source, emitter));
+        emitter.onError(e -> unsubscribe(source, emitter));
+        synchronized (source) {
+            source.emitters.add(emitter);
+            if (source.task == null) {
+                start(source);
+            }
+        }
+        String payload = source.payload;
+        if (payload != null) {
+            send(source, emitter, payload, source.version);
+        }
+        return emitter;
+    }
+
+    /**
+     * 开始定时查询，首次立即执行，之后对齐到更新间隔的整数倍，相同间隔的数据源同时刷新
+     */
+    private void start(Source source) {
+        long delay = source.interval - System.currentTimeMillis() % source.interval;
+        executor.execute(() -> poll(source));
+        source.task = executor.scheduleAtFixedRate(() -> poll(source), delay, source.interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void unsubscribe(Source source, SseEmitter emitter) {
+        synchronized (source) {
+            source.emitters.remove(emitter);
+            if (source.emitters.isEmpty() && source.task != null) {
+                source.task.cancel(false);
+                source.task = null;
+                source.idleSince = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * 执行查询并推送，结果的哈希与上次相同时只发送注释行
+     */
+    private void poll(Source source) {
+        if (source.emitters.isEmpty() || !source.polling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // 序列化完成后才归还结果占用的内存
+            String payload = memoryGovernor.callInScope(() -> serialize(source.producer.get()));
+            String hash = DigestUtils.md5DigestAsHex(payload.getBytes(StandardCharsets.UTF_8));
+            if (hash.equals(source.hash)) {
+                for (SseEmitter emitter : source.emitters) {
+                    sendComment(source, emitter);
+                }
+                return;
+            }
+            long version;
+            synchronized (source) {
+                source.hash = hash;
+                source.payload = payload;
+                version = ++source.version;
+            }
+            for (SseEmitter emitter : source.emitters) {
+                send(source, emitter, payload, version);
+            }
+        } catch (Exception e) {
+            log.warn("订阅数据源查询失败: {}", e.getMessage());
+        } finally {
+            source.polling.set(false);
+        }
+    }
+
+    private String serialize(Object result) {
+        try {
+            return objectMapper.writeValueAsString(R.success(result));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void send(Source source, SseEmitter emitter, String payload, long version) {
+        try {
+            emitter.send(SseEmitter.event().id(String.valueOf(version)).name("update").data(payload));
+        } catch (IOException | IllegalStateException e) {
+            // 连接已断开
+            unsubscribe(source, emitter);
+        }
+    }
+
+    private void sendComment(Source source, SseEmitter emitter) {
+        try {
+            emitter.send(SseEmitter.event().comment("unchanged"));
+        } catch (IOException | IllegalStateException e) {
+            unsubscribe(source, emitter);
+        }
+    }
+
+    /**
+     * 移除长时间没有订阅者的数据源
+     */
+    private void evictIdleSources() {
+        long now = System.currentTimeMillis();
+        Iterator<Source> iterator = sources.values().iterator();
+        while (iterator.hasNext()) {
+            Source source = iterator.next();
+            synchronized (source) {
+                if (source.emitters.isEmpty() && now - source.idleSince > subscriptionConfig.getIdleTimeout()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 订阅的数据源
+     */
+    private static class Source {
+        private final long interval;
+        private final Supplier<Object> producer;
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean polling = new AtomicBoolean();
+        private ScheduledFuture<?> task;
+        private volatile String hash;
+        private volatile String payload;
+        private volatile long version;
+        private volatile long idleSince;
+
+        Source(long interval, Supplier<Object> producer) {
+            this.interval = interval;
+            this.producer = producer;
+        }
+    }
+}
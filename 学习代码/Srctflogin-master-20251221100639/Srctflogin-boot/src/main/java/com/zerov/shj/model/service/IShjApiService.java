@@ -1,7 +1,15 @@
 package com.zerov.shj.model.service;
 
+import com.zerov.shj.core.lob.LobOutput;
+import com.zerov.shj.core.model.CacheStatus;
+import com.zerov.shj.core.model.MemoryStatus;
 import com.zerov.shj.core.model.QueryRequest;
 import com.zerov.shj.core.model.QueryResult;
+import com.zerov.shj.core.output.ResultWriter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 
 /**
  * 数据查询服务接口
@@ -15,6 +23,14 @@ public interface IShjApiService {
      */
     Object executeQuery(QueryRequest request);
 
+    /**
+     * 执行数据库查询，按结果的标签判断客户端的结果是否仍然有效
+     * @param request 查询请求
+     * @param notModified 接收结果的标签，客户端的结果仍然有效时返回true
+     * @return 查询结果，客户端的结果仍然有效时返回null
+     */
+    Object executeQuery(QueryRequest request, Predicate<String> notModified);
+
     /**
      * 测试数据库连接
      * @param request 查询请求
@@ -22,6 +38,22 @@ public interface IShjApiService {
      */
     QueryResult testConnection(QueryRequest request);
 
+    /**
+     * 流式执行数据库查询
+     * @param request 查询请求
+     * @param writer 结果输出
+     * @return 输出行数
+     */
+    long streamQuery(QueryRequest request, ResultWriter writer) throws Exception;
+
+    /**
+     * 导出查询结果
+     * @param request 查询请求
+     * @param writer 导出格式输出
+     * @return 导出行数
+     */
+    long exportQuery(QueryRequest request, ResultWriter writer) throws Exception;
+
 
     /**
      * 解析指定路径的文件
@@ -29,4 +61,54 @@ public interface IShjApiService {
      * @return 解析结果
      */
     Object parseFile(String fileName) throws Exception;
+
+    /**
+     * 解析指定路径的文件，按文件的标签和修改时间判断客户端的结果是否仍然有效，有效时不解析文件
+     * @param fileName 文件名
+     * @param notModified 接收文件的标签和修改时间，客户端的结果仍然有效时返回true
+     * @return 解析结果，客户端的结果仍然有效时返回null
+     */
+    Object parseFile(String fileName, BiPredicate<String, Long> notModified) throws Exception;
+
+    /**
+     * 解析文件并按列式格式输出
+     * @param fileName 文件名
+     * @param sheetName Excel工作表名称，为空时取第一个工作表
+     * @param writer 结果输出
+     * @return 输出行数
+     */
+    long writeFile(String fileName, String sheetName, ResultWriter writer) throws Exception;
+
+    /**
+     * 按句柄输出大字段的完整值
+     * @param token 大字段句柄
+     * @param output 大字段输出
+     */
+    void writeLob(String token, LobOutput output) throws Exception;
+
+    /**
+     * 查询结果和文件解析结果的内存使用情况
+     * @return 内存预算和各请求的占用
+     */
+    MemoryStatus getMemoryStatus();
+
+    /**
+     * 查询结果缓存的使用情况
+     * @return 缓存大小和命中率
+     */
+    CacheStatus getCacheStatus();
+
+    /**
+     * 登记订阅的数据源
+     * @param request 查询请求，须设置autoUpdateTime
+     * @return 数据源标识
+     */
+    String registerSource(QueryRequest request);
+
+    /**
+     * 订阅数据源的更新
+     * @param sourceId 数据源标识
+     * @return SSE连接
+     */
+    SseEmitter subscribe(String sourceId);
 } 
\ No newline at end of file
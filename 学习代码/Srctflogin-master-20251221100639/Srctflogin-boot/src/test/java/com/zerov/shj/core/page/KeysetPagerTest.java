@@ -0,0 +1,101 @@
+package com.zerov.shj.core.page;
+
+import com.zerov.shj.core.config.DatabaseConfig;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 键集分页：单个SELECT块直接追加条件，其余查询包装为子查询
+ */
+class KeysetPagerTest {
+
+    private static DatabaseConfig config(String type) {
+        DatabaseConfig config = new DatabaseConfig();
+        config.setType(type);
+        config.setUrl("jdbc:test");
+        return config;
+    }
+
+    private static String rewrite(String type, String sql, List<String> keyColumns, List<Object> lastKeys) {
+        return KeysetPager.of(config(type), sql, keyColumns).rewrite(sql, lastKeys);
+    }
+
+    @Test
+    void injectIntoSingleBlock() {
+        assertEquals("SELECT id, name FROM t\nWHERE (id > ?)\nORDER BY id ASC",
+                rewrite("mysql", "SELECT id, name FROM t;", Collections.singletonList("id"), Collections.singletonList(5L)));
+        assertEquals("SELECT id, name FROM t WHERE ( a = ? -- 注释\n\n) AND ((id > ?))\nORDER BY id ASC",
+                rewrite("mysql", "SELECT id, name FROM t WHERE a = ? -- 注释\nORDER BY name",
+                        Collections.singletonList("id"), Collections.singletonList(5L)));
+        // 第一页只追加排序
+        assertEquals("SELECT * FROM t WHERE a = 1 \nORDER BY id DESC",
+                rewrite("mysql", "SELECT * FROM t WHERE a = 1 ORDER BY b", Collections.singletonList("id DESC"),
+                        Collections.emptyList()));
+    }
+
+    @Test
+    void keyAliasUsesSelectExpression() {
+        assertEquals("SELECT t.id AS k, u.v FROM t JOIN u ON t.id = u.tid\n"
+                        + "WHERE (t.id < ?) OR (t.id = ? AND u.v > ?)\nORDER BY t.id DESC, u.v ASC",
+                rewrite("mysql", "SELECT t.id AS k, u.v FROM t JOIN u ON t.id = u.tid", Arrays.asList("k DESC", "v"),
+                        Arrays.asList(1L, "x")));
+        assertEquals("SELECT a + 1 AS id FROM t\nWHERE (a + 1 > ?)\nORDER BY a + 1 ASC",
+                rewrite("mysql", "SELECT a + 1 AS id FROM t", Collections.singletonList("id"), Collections.singletonList(1L)));
+    }
+
+    @Test
+    void wrapOtherQueries() {
+        String wrapped = "SELECT * FROM (\n%s\n) shj_page WHERE (id > ?) ORDER BY id ASC";
+        for (String sql : new String[]{
+                "SELECT id, COUNT(*) AS c FROM t GROUP BY id",
+                "SELECT DISTINCT id FROM t",
+                "SELECT id FROM t UNION SELECT id FROM u",
+                "SELECT id FROM t LIMIT 10",
+                "SELECT id, ROW_NUMBER() OVER (ORDER BY b) AS r FROM t",
+                "SELECT COUNT(*) AS id FROM t",
+                "WITH x AS (SELECT id FROM t) SELECT id FROM x"}) {
+            assertEquals(String.format(wrapped, sql),
+                    rewrite("mysql", sql, Collections.singletonList("id"), Collections.singletonList(1L)), sql);
+        }
+        assertEquals(String.format(wrapped, "SELECT id FROM t WHERE ROWNUM <= 10"),
+                rewrite("oracle", "SELECT id FROM t WHERE ROWNUM <= 10", Collections.singletonList("id"),
+                        Collections.singletonList(1L)));
+        // 方言未知时不解析
+        assertEquals(String.format(wrapped, "SELECT id FROM t"),
+                KeysetPager.of(new DatabaseConfig(), "SELECT id FROM t", Collections.singletonList("id"))
+                        .rewrite("SELECT id FROM t", Collections.singletonList(1L)));
+    }
+
+    @Test
+    void timestampWithTimeZoneKey() throws SQLException {
+        KeysetPager pager = KeysetPager.of(config("pg"), "SELECT ts FROM t", Collections.singletonList("ts"));
+        OffsetDateTime value = OffsetDateTime.parse("2024-03-01T10:15:30.123+08:00");
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnType(1)).thenReturn(Types.TIMESTAMP_WITH_TIMEZONE);
+        when(rs.getObject(1, OffsetDateTime.class)).thenReturn(value);
+        assertEquals(Collections.singletonList(value),
+                pager.decode(pager.encode(rs, Collections.singletonList("ts"))));
+
+        // 驱动不支持OffsetDateTime时按Timestamp绑定
+        Timestamp timestamp = Timestamp.valueOf("2024-03-01 10:15:30.123");
+        when(rs.getObject(1, OffsetDateTime.class)).thenThrow(new SQLException("unsupported"));
+        when(rs.getTimestamp(1)).thenReturn(timestamp);
+        assertEquals(Collections.singletonList(timestamp),
+                pager.decode(pager.encode(rs, Collections.singletonList("ts"))));
+    }
+}
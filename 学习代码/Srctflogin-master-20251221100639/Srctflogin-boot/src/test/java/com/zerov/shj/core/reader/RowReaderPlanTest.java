@@ -0,0 +1,40 @@
+package com.zerov.shj.core.reader;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 缓存的读取计划只在列名和选择读取器用到的元数据都相同时复用
+ */
+class RowReaderPlanTest {
+
+    private static ResultSetMetaData metaData(String label, int type, String typeName, int precision) throws SQLException {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnLabel(1)).thenReturn(label);
+        when(metaData.getColumnName(1)).thenReturn("c");
+        when(metaData.getColumnType(1)).thenReturn(type);
+        when(metaData.getColumnTypeName(1)).thenReturn(typeName);
+        when(metaData.getPrecision(1)).thenReturn(precision);
+        return metaData;
+    }
+
+    @Test
+    void matchesComparesLabelAndPrecision() throws SQLException {
+        RowReaderPlan plan = RowReaderPlan.compile(metaData("a", Types.VARCHAR, "varchar", 100), new ReaderOptions());
+        assertTrue(plan.matches(metaData("a", Types.VARCHAR, "varchar", 100)));
+        // 列别名变化后结果的键不同
+        assertFalse(plan.matches(metaData("b", Types.VARCHAR, "varchar", 100)));
+        // 超过大字段阈值的VARCHAR按大字段读取
+        assertFalse(plan.matches(metaData("a", Types.VARCHAR, "varchar", Integer.MAX_VALUE)));
+        assertFalse(plan.matches(metaData("a", Types.VARCHAR, "text", 100)));
+    }
+}
@@ -0,0 +1,113 @@
+package com.zerov.shj.core.security;
+
+import com.alibaba.druid.DbType;
+import com.zerov.shj.core.sql.SqlNormalizer;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SQL安全验证：注释、引号和数字的切分须与数据库一致，否则可执行的SQL会被当作字符串或注释跳过
+ */
+class SqlSecurityValidatorTest {
+
+    static SqlSecurityValidator newValidator(ValidationMode mode) {
+        SecurityConfig config = new SecurityConfig();
+        config.setValidationMode(mode.name());
+        config.setLogSecurityEvents(false);
+        SqlAstValidator astValidator = new SqlAstValidator();
+        ReflectionTestUtils.setField(astValidator, "securityConfig", config);
+        astValidator.init();
+        SqlSecurityValidator validator = new SqlSecurityValidator();
+        ReflectionTestUtils.setField(validator, "securityConfig", config);
+        ReflectionTestUtils.setField(validator, "sqlAstValidator", astValidator);
+        validator.init();
+        return validator;
+    }
+
+    private final SqlSecurityValidator validator = newValidator(ValidationMode.lexer);
+
+    private boolean valid(String sql, DbType dbType) {
+        return validator.validateSql(SqlNormalizer.normalize(sql, dbType)).isValid();
+    }
+
+    private void assertRejected(String sql, DbType... dbTypes) {
+        assertFalse(validator.validateSql(sql).isValid(), "未知方言: " + sql);
+        for (DbType dbType : dbTypes) {
+            assertFalse(valid(sql, dbType), dbType + ": " + sql);
+        }
+    }
+
+    @Test
+    void dashCommentWithoutSpace() {
+        // MySQL以外的数据库中--后不跟空白也是注释
+        assertRejected("SELECT 1 --'\nDROP TABLE t--'", DbType.postgresql, DbType.oracle, DbType.sqlserver, DbType.h2);
+        assertRejected("SELECT 1 --'\n; DELETE FROM t; --'", DbType.postgresql, DbType.oracle, DbType.sqlserver, DbType.h2);
+    }
+
+    @Test
+    void hashComment() {
+        assertRejected("SELECT 1 #'\nINTO OUTFILE '/tmp/x' #'", DbType.mysql, DbType.mariadb, DbType.clickhouse);
+        assertRejected("SELECT 1 #'\n, SLEEP(10) #'", DbType.mysql, DbType.mariadb, DbType.clickhouse);
+    }
+
+    @Test
+    void dollarQuotedString() {
+        assertRejected("SELECT $$'$$; DROP TABLE t; --'", DbType.postgresql, DbType.h2);
+        assertRejected("SELECT $tag$'$tag$; DROP TABLE t; --'", DbType.postgresql);
+    }
+
+    @Test
+    void slashCommentInH2() {
+        assertRejected("SELECT 1 //'\n; DROP TABLE t; //'", DbType.h2);
+    }
+
+    @Test
+    void bracketOutsideSqlServer() {
+        // PostgreSQL中方括号是数组下标，不是引号
+        assertRejected("SELECT a[1]; DROP TABLE t; --]", DbType.postgresql);
+    }
+
+    @Test
+    void oracleQuotedString() {
+        // q'[']'是包含单引号的字符串，其后的内容会被执行
+        assertRejected("SELECT q'[']', 1 FROM dual; DROP TABLE t --'", DbType.oracle);
+    }
+
+    @Test
+    void numberFollowedByKeyword() {
+        assertRejected("SELECT 1.union select password from users", DbType.mysql, DbType.postgresql);
+        assertRejected("SELECT 1.into outfile '/tmp/x'", DbType.mysql);
+        assertRejected("SELECT 1e1union select password from users", DbType.mysql);
+    }
+
+    @Test
+    void astVerdictCacheNotPoisoned() {
+        SqlSecurityValidator astValidator = newValidator(ValidationMode.ast);
+        String harmless = "SELECT 1 --'x'";
+        String malicious = "SELECT 1 --'\n; DELETE FROM t; --'";
+        for (DbType dbType : new DbType[]{null, DbType.postgresql, DbType.oracle, DbType.h2}) {
+            astValidator.validateSql(SqlNormalizer.normalize(harmless, dbType));
+            assertFalse(astValidator.validateSql(SqlNormalizer.normalize(malicious, dbType)).isValid(), dbType + ": " + malicious);
+        }
+        // 字面量不同、结构相同的查询共用缓存的结果
+        assertTrue(astValidator.validateSql(SqlNormalizer.normalize("SELECT a FROM t WHERE b = 'x'", DbType.mysql)).isValid());
+        assertTrue(astValidator.validateSql(SqlNormalizer.normalize("SELECT a FROM t WHERE b = 'y'", DbType.mysql)).isValid());
+        assertFalse(astValidator.validateSql(SqlNormalizer.normalize("SELECT a FROM t FOR UPDATE", DbType.mysql)).isValid());
+    }
+
+    @Test
+    void ordinaryQueriesPass() {
+        assertTrue(validator.validateSql("SELECT id, name FROM t WHERE name = 'it''s' -- 注释\nORDER BY id").isValid());
+        assertTrue(validator.validateSql("SELECT [id], `name` FROM t /* 注释 */").isValid());
+        assertTrue(valid("SELECT `id` FROM t # 注释", DbType.mysql));
+        assertTrue(valid("SELECT 1 - -1 FROM t", DbType.mysql));
+        assertTrue(valid("SELECT [order] FROM t", DbType.sqlserver));
+        assertTrue(valid("SELECT a[1], b::int, $1 FROM t --注释", DbType.postgresql));
+        assertTrue(valid("SELECT $$it's$$ FROM t", DbType.postgresql));
+        assertTrue(valid("SELECT q'[it's]' FROM dual", DbType.oracle));
+        assertTrue(valid("SELECT 1e5, 1.5E-3, 0x1F, .5 FROM t", DbType.mysql));
+    }
+}
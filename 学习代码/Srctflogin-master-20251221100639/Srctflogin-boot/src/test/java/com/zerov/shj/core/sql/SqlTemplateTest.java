@@ -0,0 +1,99 @@
+package com.zerov.shj.core.sql;
+
+import com.alibaba.druid.DbType;
+import com.zerov.shj.common.exception.DatasourceException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * SQL模板：只有代码中的:name是参数，字符串、注释和类型转换中的不是
+ */
+class SqlTemplateTest {
+
+    private static Map<String, Object> values(Object... pairs) {
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            values.put((String) pairs[i], pairs[i + 1]);
+        }
+        return values;
+    }
+
+    @Test
+    void namedParameters() {
+        SqlTemplate template = SqlTemplate.compile("SELECT a FROM t WHERE b = :b AND c = ':c' AND d = :b", DbType.mysql);
+        assertEquals("SELECT a FROM t WHERE b = ? AND c = ':c' AND d = ?", template.getSql());
+        assertEquals(Arrays.asList("b", "b"), template.getNames());
+        List<Object> params = new ArrayList<>();
+        assertSame(template.getSql(), template.bind(values("b", 1), params));
+        assertEquals(Arrays.<Object>asList(1, 1), params);
+    }
+
+    @Test
+    void inListExpansion() {
+        SqlTemplate template = SqlTemplate.compile("SELECT a FROM t WHERE b IN (:ids) AND c = :c", DbType.mysql);
+        List<Object> params = new ArrayList<>();
+        assertEquals("SELECT a FROM t WHERE b IN (?, ?, ?) AND c = ?",
+                template.bind(values("ids", Arrays.asList(1, 2, 3), "c", "x"), params));
+        assertEquals(Arrays.<Object>asList(1, 2, 3, "x"), params);
+
+        params.clear();
+        assertEquals("SELECT a FROM t WHERE b IN (NULL) AND c = ?",
+                template.bind(values("ids", Collections.emptyList(), "c", "x"), params));
+        assertEquals(Collections.<Object>singletonList("x"), params);
+
+        // 识别相同查询时集合不展开
+        assertEquals(Arrays.<Object>asList(Arrays.asList(1, 2), "x"), template.getValues(values("ids", Arrays.asList(1, 2), "c", "x")));
+    }
+
+    @Test
+    void castAndAssignmentAreNotParameters() {
+        SqlTemplate cast = SqlTemplate.compile("SELECT a::int, b::text FROM t WHERE c = :c::int", DbType.postgresql);
+        assertEquals("SELECT a::int, b::text FROM t WHERE c = ?::int", cast.getSql());
+        assertEquals(Collections.singletonList("c"), cast.getNames());
+
+        SqlTemplate assign = SqlTemplate.compile("SELECT @n := :start, a FROM t", DbType.mysql);
+        assertEquals("SELECT @n := ?, a FROM t", assign.getSql());
+        assertEquals(Collections.singletonList("start"), assign.getNames());
+    }
+
+    @Test
+    void dollarQuotedBodyAndComments() {
+        SqlTemplate template = SqlTemplate.compile(
+                "SELECT $$ :a $$, $tag$ :b $tag$ FROM t --x :c\nWHERE d = :d /* :e */", DbType.postgresql);
+        assertEquals(Collections.singletonList("d"), template.getNames());
+        assertEquals("SELECT $$ :a $$, $tag$ :b $tag$ FROM t --x :c\nWHERE d = ? /* :e */", template.getSql());
+
+        // MySQL中--后须跟空白才是注释
+        SqlTemplate mysql = SqlTemplate.compile("SELECT 1 --:a\n, :b # :c\nFROM t", DbType.mysql);
+        assertEquals(Arrays.asList("a", "b"), mysql.getNames());
+    }
+
+    @Test
+    void missingParameter() {
+        SqlTemplate template = SqlTemplate.compile("SELECT a FROM t WHERE b = :b AND c = :c", DbType.mysql);
+        DatasourceException e = assertThrows(DatasourceException.class,
+                () -> template.bind(values("b", 1), new ArrayList<>()));
+        assertEquals("缺少SQL模板参数: c", e.getMessage());
+        // 显式传入null是有效的参数值
+        List<Object> params = new ArrayList<>();
+        template.bind(values("b", 1, "c", null), params);
+        assertEquals(Arrays.asList(1, null), params);
+    }
+
+    @Test
+    void positionalPlaceholderRejected() {
+        assertThrows(DatasourceException.class, () -> SqlTemplate.compile("SELECT a FROM t WHERE b = ?", DbType.mysql));
+        // 字符串中的?不是占位符
+        assertEquals("SELECT '?' FROM t", SqlTemplate.compile("SELECT '?' FROM t", DbType.mysql).getSql());
+    }
+}